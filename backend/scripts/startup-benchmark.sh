@@ -0,0 +1,102 @@
+#!/usr/bin/env bash
+# Measures cold start: time until /actuator/health/readiness is UP (vector store loaded)
+# and time until the first /ask is answered, both from process (or container) start.
+#
+# Usage (from backend/, with MySQL from docker-compose running and OPENAI_API_KEY and
+# VECTORSTORE_ENC_KEY set):
+#   scripts/startup-benchmark.sh jar            # mvn package; plain java -jar
+#   scripts/startup-benchmark.sh fast           # mvn -Pfast-startup package; AOT + CDS archive
+#   scripts/startup-benchmark.sh image <name>   # docker image, e.g. one built from Dockerfile.fast-startup
+#
+# RUNS (default 5) cold starts are measured; each run is appended to
+# target/startup-benchmark.csv so results can be compared across commits.
+set -euo pipefail
+
+VARIANT=${1:-jar}
+IMAGE=${2:-}
+RUNS=${RUNS:-5}
+PORT=${PORT:-8080}
+QUESTION=${QUESTION:-"What projects has Kevin worked on?"}
+TIMEOUT_S=${TIMEOUT_S:-180}
+BASE="http://localhost:${PORT}"
+OUT=target/startup-benchmark.csv
+LOG=target/startup-benchmark.log
+JAVA_OPTS=(-XX:+UseContainerSupport -XX:MaxRAMPercentage=75.0)
+
+now_ms() { date +%s%3N; }
+
+start_app() {
+  case "$VARIANT" in
+    jar)
+      java "${JAVA_OPTS[@]}" -Dserver.port="$PORT" -jar "$(ls target/*.jar | head -1)" >"$LOG" 2>&1 &
+      PID=$!
+      ;;
+    fast)
+      (cd target/app && exec java "${JAVA_OPTS[@]}" -XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true \
+        -Dserver.port="$PORT" -jar "$(ls *.jar | head -1)") >"$LOG" 2>&1 &
+      PID=$!
+      ;;
+    image)
+      [ -n "$IMAGE" ] || { echo "usage: $0 image <name>" >&2; exit 2; }
+      CONTAINER=$(docker run -d --rm --network host -e SERVER_PORT="$PORT" \
+        -e OPENAI_API_KEY -e VECTORSTORE_ENC_KEY -e ADMIN_TOKEN "$IMAGE")
+      ;;
+    *)
+      echo "unknown variant: $VARIANT (jar, fast or image)" >&2
+      exit 2
+      ;;
+  esac
+}
+
+stop_app() {
+  if [ "$VARIANT" = image ]; then
+    docker logs "$CONTAINER" >"$LOG" 2>&1 || true
+    docker stop "$CONTAINER" >/dev/null 2>&1 || true
+  else
+    kill "$PID" 2>/dev/null || true
+    wait "$PID" 2>/dev/null || true
+  fi
+}
+
+# Polls until the command succeeds; prints the elapsed ms since $1, or fails after TIMEOUT_S
+wait_until() {
+  local t0=$1; shift
+  local deadline=$(( t0 + TIMEOUT_S * 1000 ))
+  until "$@" >/dev/null 2>&1; do
+    [ "$(now_ms)" -lt "$deadline" ] || return 1
+    sleep 0.1
+  done
+  echo $(( $(now_ms) - t0 ))
+}
+
+ready() { curl -fs "$BASE/actuator/health/readiness" | grep -q '"status":"UP"'; }
+ask() {
+  curl -fs -X POST "$BASE/ask" -H 'Content-Type: application/json' \
+    -d "{\"question\": \"$QUESTION\"}" | grep -q '"answer"'
+}
+
+mkdir -p target
+[ -f "$OUT" ] || echo "timestamp,commit,variant,run,started_s,ready_ms,first_ask_ms" >"$OUT"
+COMMIT=$(git rev-parse --short HEAD 2>/dev/null || echo unknown)
+LABEL=$VARIANT${IMAGE:+:$IMAGE}
+READY=()
+ASK=()
+
+for run in $(seq 1 "$RUNS"); do
+  t0=$(now_ms)
+  start_app
+  trap stop_app EXIT
+  ready_ms=$(wait_until "$t0" ready) || { stop_app; echo "run $run: not ready after ${TIMEOUT_S}s, see $LOG" >&2; exit 1; }
+  ask_ms=$(wait_until "$t0" ask) || { stop_app; echo "run $run: /ask failed, see $LOG" >&2; exit 1; }
+  stop_app
+  trap - EXIT
+  # Spring's own figure: "Started PortfolioApplication in 4.2 seconds"
+  started=$(grep -o 'Started PortfolioApplication in [0-9.]*' "$LOG" | grep -o '[0-9.]*$' || echo "")
+  echo "$(date -u +%FT%TZ),$COMMIT,$LABEL,$run,$started,$ready_ms,$ask_ms" >>"$OUT"
+  echo "run $run: started ${started:-?}s, ready ${ready_ms}ms, first /ask ${ask_ms}ms"
+  READY+=("$ready_ms")
+  ASK+=("$ask_ms")
+done
+
+median() { printf '%s\n' "$@" | sort -n | awk '{a[NR]=$1} END {print (NR % 2) ? a[(NR+1)/2] : int((a[NR/2] + a[NR/2+1]) / 2)}'; }
+echo "$LABEL median over $RUNS runs: ready $(median "${READY[@]}")ms, first /ask $(median "${ASK[@]}")ms (all runs in $OUT)"
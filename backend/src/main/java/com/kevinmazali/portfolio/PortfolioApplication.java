@@ -2,12 +2,14 @@ package com.kevinmazali.portfolio;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Spring Boot entry point for the portfolio backend application.
  * Boots the web context and exposes REST APIs.
  */
 @SpringBootApplication
+@EnableScheduling
 public class PortfolioApplication {
 
 	/**
@@ -0,0 +1,80 @@
+package com.kevinmazali.portfolio.analytics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog distinct counter with 2^10 one-byte registers (about 3% standard error).
+ *
+ * <p>Sketches of different hours merge by taking the register-wise maximum, so unique
+ * requesters over any window cost the same regardless of traffic.</p>
+ */
+public final class HyperLogLog {
+
+  static final int PRECISION = 10;
+  static final int REGISTERS = 1 << PRECISION;
+  private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+  private final byte[] registers;
+
+  public HyperLogLog() {
+    this(new byte[REGISTERS]);
+  }
+
+  private HyperLogLog(byte[] registers) {
+    this.registers = registers;
+  }
+
+  /** Restores a sketch from {@link #toBytes()}; {@code null} or malformed input yields an empty sketch. */
+  public static HyperLogLog fromBytes(byte[] bytes) {
+    return bytes != null && bytes.length == REGISTERS ? new HyperLogLog(bytes.clone()) : new HyperLogLog();
+  }
+
+  public void add(String value) {
+    long hash = hash(value);
+    int index = (int) (hash >>> (64 - PRECISION));
+    // Guard bit keeps the rank bounded when the remaining bits are all zero
+    int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+    if (rank > registers[index]) registers[index] = (byte) rank;
+  }
+
+  public void merge(HyperLogLog other) {
+    for (int i = 0; i < REGISTERS; i++) {
+      if (other.registers[i] > registers[i]) registers[i] = other.registers[i];
+    }
+  }
+
+  public long estimate() {
+    double sum = 0;
+    int zeros = 0;
+    for (byte r : registers) {
+      sum += 1.0 / (1L << r);
+      if (r == 0) zeros++;
+    }
+    double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+    if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+      // Linear counting is more accurate for small cardinalities
+      estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  public byte[] toBytes() {
+    return Arrays.copyOf(registers, REGISTERS);
+  }
+
+  /** 64-bit FNV-1a followed by the MurmurHash3 finalizer for avalanche. */
+  private static long hash(String value) {
+    long h = 0xcbf29ce484222325L;
+    for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+      h ^= b;
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,82 @@
+package com.kevinmazali.portfolio.analytics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitters sketch (Metwally et al.) over a fixed number of counters.
+ *
+ * <p>Any item whose true frequency exceeds {@code total / capacity} is guaranteed to be
+ * tracked. A counter's value overestimates the true count by at most its {@code error},
+ * which is the count of the item it replaced. Not thread-safe.</p>
+ */
+public final class SpaceSaving {
+
+  private final int capacity;
+  private final Map<String, Counter> counters;
+
+  public SpaceSaving(int capacity) {
+    if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+    this.capacity = capacity;
+    this.counters = new HashMap<>(capacity * 2);
+  }
+
+  public void offer(String item) {
+    Counter c = counters.get(item);
+    if (c != null) {
+      c.count++;
+      return;
+    }
+    if (counters.size() < capacity) {
+      counters.put(item, new Counter(item, 1, 0));
+      return;
+    }
+    // Evictions only happen for new items; a linear scan over the counters is cheap at this size
+    Counter min = null;
+    for (Counter candidate : counters.values()) {
+      if (min == null || candidate.count < min.count) min = candidate;
+    }
+    counters.remove(min.item);
+    counters.put(item, new Counter(item, min.count + 1, min.count));
+  }
+
+  /** Re-inserts a counter from a persisted snapshot. */
+  public void restore(String item, long count, long error) {
+    if (counters.size() < capacity || counters.containsKey(item)) {
+      counters.put(item, new Counter(item, count, error));
+    }
+  }
+
+  /** The {@code n} largest counters, highest count first. */
+  public List<Entry> top(int n) {
+    List<Entry> entries = new ArrayList<>(counters.size());
+    for (Counter c : counters.values()) entries.add(new Entry(c.item, c.count, c.error));
+    entries.sort(Comparator.comparingLong(Entry::count).reversed().thenComparing(Entry::item));
+    return entries.size() <= n ? entries : entries.subList(0, n);
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * @param count estimated frequency (never below the true one)
+   * @param error maximum overestimation of {@code count}
+   */
+  public record Entry(String item, long count, long error) {}
+
+  private static final class Counter {
+    final String item;
+    long count;
+    final long error;
+
+    Counter(String item, long count, long error) {
+      this.item = item;
+      this.count = count;
+      this.error = error;
+    }
+  }
+}
@@ -0,0 +1,257 @@
+package com.kevinmazali.portfolio.analytics;
+
+import com.kevinmazali.portfolio.model.HourlyUsage;
+import com.kevinmazali.portfolio.model.TopQuestion;
+import com.kevinmazali.portfolio.model.dto.AnalyticsDtos;
+import com.kevinmazali.portfolio.repository.HourlyUsageRepository;
+import com.kevinmazali.portfolio.repository.TopQuestionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+/**
+ * Streaming usage rollups for /ask, maintained as requests are served.
+ *
+ * <p>Each hour gets a bucket with question and answer counts, an HdrHistogram of answer
+ * latency and a HyperLogLog of requester ids. The last {@link #WINDOW_HOURS} buckets stay in
+ * memory and dirty ones are flushed to {@code usage_hourly} periodically. Top questions come
+ * from an all-time Space-Saving sketch, stored in {@code usage_top_question}. A summary
+ * only merges at most {@link #WINDOW_HOURS} buckets, so its cost does not depend on how
+ * much history request_log holds.</p>
+ */
+@Slf4j
+@Service
+public class UsageAnalytics {
+
+  public static final int WINDOW_HOURS = 168;
+  private static final int TOP_QUESTIONS = 100;
+  private static final int MAX_QUESTION_CHARS = 300;
+  private static final long MAX_LATENCY_MS = TimeUnit.MINUTES.toMillis(10);
+
+  private final HourlyUsageRepository hourlyUsageRepository;
+  private final TopQuestionRepository topQuestionRepository;
+  private final TransactionTemplate tx;
+
+  private final TreeMap<Instant, Bucket> buckets = new TreeMap<>();
+  private final SpaceSaving topQuestions = new SpaceSaving(TOP_QUESTIONS);
+  private boolean topQuestionsDirty;
+
+  public UsageAnalytics(HourlyUsageRepository hourlyUsageRepository, TopQuestionRepository topQuestionRepository,
+                        PlatformTransactionManager transactionManager) {
+    this.hourlyUsageRepository = hourlyUsageRepository;
+    this.topQuestionRepository = topQuestionRepository;
+    this.tx = new TransactionTemplate(transactionManager);
+  }
+
+  /** Reloads the in-memory window and the heavy-hitters sketch. */
+  @EventListener(ApplicationStartedEvent.class)
+  public synchronized void restore() {
+    try {
+      LocalDateTime since = LocalDateTime.ofInstant(currentHour().minus(WINDOW_HOURS, ChronoUnit.HOURS), ZoneOffset.UTC);
+      for (HourlyUsage row : hourlyUsageRepository.findByHourStartGreaterThanEqualOrderByHourStartAsc(since)) {
+        Instant hour = row.getHourStart().toInstant(ZoneOffset.UTC);
+        // Merge, since requests may already have been recorded for the current hour
+        Bucket b = bucket(hour);
+        b.questions += row.getQuestions();
+        b.answers += row.getAnswers();
+        b.latency.add(decodeHistogram(row.getLatencyHistogram()));
+        b.requesters.merge(HyperLogLog.fromBytes(row.getRequesterSketch()));
+      }
+      for (TopQuestion tq : topQuestionRepository.findAll()) {
+        topQuestions.restore(tq.getQuestion(), tq.getCount(), tq.getError());
+      }
+      log.info("Usage analytics restored: {} hourly bucket(s)", buckets.size());
+    } catch (RuntimeException e) {
+      log.error("Could not restore usage analytics; starting empty", e);
+    }
+  }
+
+  public synchronized void recordQuestion(String requesterId, String question) {
+    Bucket b = bucket(currentHour());
+    b.questions++;
+    if (requesterId != null && !requesterId.isBlank()) b.requesters.add(requesterId);
+    b.dirty = true;
+    String key = normalize(question);
+    if (!key.isEmpty()) {
+      topQuestions.offer(key);
+      topQuestionsDirty = true;
+    }
+  }
+
+  public synchronized void recordAnswer(long latencyMillis) {
+    Bucket b = bucket(currentHour());
+    b.answers++;
+    b.latency.recordValue(Math.max(0, Math.min(latencyMillis, MAX_LATENCY_MS)));
+    b.dirty = true;
+  }
+
+  /** The {@code n} most asked normalized questions of all time, most frequent first. */
+  public synchronized List<String> topQuestions(int n) {
+    return topQuestions.top(n).stream().map(SpaceSaving.Entry::item).toList();
+  }
+
+  /** Rollup over the last {@code hours} hours, including the current one. */
+  public synchronized AnalyticsDtos.Summary summary(int hours, int top) {
+    Instant now = currentHour();
+    Instant from = now.minus(Math.max(1, Math.min(hours, WINDOW_HOURS)) - 1L, ChronoUnit.HOURS);
+    long questions = 0;
+    long answers = 0;
+    HyperLogLog requesters = new HyperLogLog();
+    Histogram latency = newHistogram();
+    List<AnalyticsDtos.Hour> hourly = new ArrayList<>();
+    for (Bucket b : buckets.subMap(from, true, now, true).values()) {
+      questions += b.questions;
+      answers += b.answers;
+      requesters.merge(b.requesters);
+      latency.add(b.latency);
+      hourly.add(new AnalyticsDtos.Hour(b.hour.atOffset(ZoneOffset.UTC), b.questions, b.answers,
+          b.requesters.estimate(), latency(b.latency)));
+    }
+    List<AnalyticsDtos.TopQuestion> topList = topQuestions.top(top).stream()
+        .map(e -> new AnalyticsDtos.TopQuestion(e.item(), e.count(), e.error()))
+        .toList();
+    return new AnalyticsDtos.Summary(from.atOffset(ZoneOffset.UTC), now.plus(Duration.ofHours(1)).atOffset(ZoneOffset.UTC),
+        questions, answers, requesters.estimate(), latency(latency), hourly, topList);
+  }
+
+  /** Writes changed hourly buckets and the heavy-hitters snapshot. */
+  @Scheduled(fixedDelayString = "${sfg.aiapp.analytics.flush-interval-ms:60000}")
+  public void flush() {
+    List<HourlyUsage> rows = new ArrayList<>();
+    List<TopQuestion> top = null;
+    synchronized (this) {
+      for (Bucket b : buckets.values()) {
+        if (!b.dirty) continue;
+        rows.add(b.toRow());
+        b.dirty = false;
+      }
+      if (topQuestionsDirty) {
+        top = new ArrayList<>();
+        int position = 1;
+        for (SpaceSaving.Entry e : topQuestions.top(TOP_QUESTIONS)) {
+          TopQuestion tq = new TopQuestion();
+          tq.setPosition(position++);
+          tq.setQuestion(e.item());
+          tq.setCount(e.count());
+          tq.setError(e.error());
+          top.add(tq);
+        }
+        topQuestionsDirty = false;
+      }
+      evictExpired();
+    }
+    if (rows.isEmpty() && top == null) return;
+    List<TopQuestion> topSnapshot = top;
+    try {
+      tx.executeWithoutResult(status -> {
+        hourlyUsageRepository.saveAll(rows);
+        if (topSnapshot != null) {
+          topQuestionRepository.deleteAllInBatch();
+          topQuestionRepository.saveAll(topSnapshot);
+        }
+      });
+    } catch (RuntimeException e) {
+      log.warn("Could not flush usage analytics; will retry", e);
+      synchronized (this) {
+        for (HourlyUsage row : rows) {
+          Bucket b = buckets.get(row.getHourStart().toInstant(ZoneOffset.UTC));
+          if (b != null) b.dirty = true;
+        }
+        if (topSnapshot != null) topQuestionsDirty = true;
+      }
+    }
+  }
+
+  @PreDestroy
+  void flushOnShutdown() {
+    flush();
+  }
+
+  /** Lower-cased, whitespace-collapsed question without trailing punctuation, capped in length. */
+  public static String normalize(String question) {
+    if (question == null) return "";
+    String q = question.toLowerCase(Locale.ROOT).strip().replaceAll("\\s+", " ").replaceAll("[?!.\\s]+$", "");
+    return q.length() <= MAX_QUESTION_CHARS ? q : q.substring(0, MAX_QUESTION_CHARS);
+  }
+
+  private Bucket bucket(Instant hour) {
+    return buckets.computeIfAbsent(hour, Bucket::new);
+  }
+
+  private void evictExpired() {
+    Instant oldest = currentHour().minus(WINDOW_HOURS, ChronoUnit.HOURS);
+    buckets.headMap(oldest, false).entrySet().removeIf(e -> !e.getValue().dirty);
+  }
+
+  private static Instant currentHour() {
+    return Instant.now().truncatedTo(ChronoUnit.HOURS);
+  }
+
+  private static Histogram newHistogram() {
+    return new Histogram(MAX_LATENCY_MS, 2);
+  }
+
+  private static Histogram decodeHistogram(byte[] bytes) {
+    if (bytes == null || bytes.length == 0) return newHistogram();
+    try {
+      Histogram h = newHistogram();
+      h.add(Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 0));
+      return h;
+    } catch (DataFormatException | RuntimeException e) {
+      log.warn("Discarding unreadable latency histogram: {}", e.getMessage());
+      return newHistogram();
+    }
+  }
+
+  private static AnalyticsDtos.Latency latency(Histogram h) {
+    if (h.getTotalCount() == 0) return new AnalyticsDtos.Latency(0, 0, 0, 0, 0);
+    return new AnalyticsDtos.Latency(h.getTotalCount(), h.getValueAtPercentile(50), h.getValueAtPercentile(90),
+        h.getValueAtPercentile(99), h.getMaxValue());
+  }
+
+  private static final class Bucket {
+    final Instant hour;
+    long questions;
+    long answers;
+    Histogram latency = newHistogram();
+    HyperLogLog requesters = new HyperLogLog();
+    boolean dirty;
+
+    Bucket(Instant hour) {
+      this.hour = hour;
+    }
+
+    HourlyUsage toRow() {
+      HourlyUsage row = new HourlyUsage();
+      row.setHourStart(LocalDateTime.ofInstant(hour, ZoneOffset.UTC));
+      row.setQuestions(questions);
+      row.setAnswers(answers);
+      ByteBuffer buffer = ByteBuffer.allocate(latency.getNeededByteBufferCapacity());
+      int length = latency.encodeIntoCompressedByteBuffer(buffer);
+      row.setLatencyHistogram(Arrays.copyOf(buffer.array(), length));
+      row.setRequesterSketch(requesters.toBytes());
+      return row;
+    }
+  }
+}
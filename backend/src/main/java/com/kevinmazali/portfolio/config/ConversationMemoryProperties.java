@@ -0,0 +1,50 @@
+package com.kevinmazali.portfolio.config;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Limits for per-chat conversation memory. Token counts are estimated as characters / 4.
+ */
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "sfg.aiapp.memory")
+public class ConversationMemoryProperties {
+
+  /**
+   * Maximum number of chats held in memory; the least recently used is evicted. Default: 5000.
+   */
+  private int maxChats = 5000;
+
+  /**
+   * Maximum number of question/answer turns kept verbatim. Default: 4.
+   */
+  private int recentTurns = 4;
+
+  /**
+   * Token budget for the verbatim turns in the prompt. Default: 1200.
+   */
+  private int recentTokenBudget = 1200;
+
+  /**
+   * Token budget for the rolling summary of older turns. Default: 250.
+   */
+  private int summaryTokenBudget = 250;
+
+  public void setMaxChats(int maxChats) {
+    this.maxChats = maxChats;
+  }
+
+  public void setRecentTurns(int recentTurns) {
+    this.recentTurns = recentTurns;
+  }
+
+  public void setRecentTokenBudget(int recentTokenBudget) {
+    this.recentTokenBudget = recentTokenBudget;
+  }
+
+  public void setSummaryTokenBudget(int summaryTokenBudget) {
+    this.summaryTokenBudget = summaryTokenBudget;
+  }
+}
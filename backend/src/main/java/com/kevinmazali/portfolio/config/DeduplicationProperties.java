@@ -0,0 +1,61 @@
+package com.kevinmazali.portfolio.config;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Near-duplicate chunk elimination at ingestion (MinHash over word shingles).
+ */
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "sfg.aiapp.dedup")
+public class DeduplicationProperties {
+
+  /**
+   * Drops chunks that nearly duplicate one already ingested, before they are embedded. Default: true.
+   */
+  private boolean enabled = true;
+
+  /**
+   * Estimated Jaccard similarity of the word shingles at or above which a chunk is a
+   * near duplicate. Lower drops more. Default: 0.85.
+   */
+  private double threshold = 0.85;
+
+  /**
+   * Words per shingle. Default: 3.
+   */
+  private int shingleSize = 3;
+
+  /**
+   * MinHash signature length. Default: 128.
+   */
+  private int numHashes = 128;
+
+  /**
+   * LSH bands; must divide numHashes. More bands find more candidate pairs at lower
+   * similarity. Default: 32.
+   */
+  private int bands = 32;
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public void setThreshold(double threshold) {
+    this.threshold = threshold;
+  }
+
+  public void setShingleSize(int shingleSize) {
+    this.shingleSize = shingleSize;
+  }
+
+  public void setNumHashes(int numHashes) {
+    this.numHashes = numHashes;
+  }
+
+  public void setBands(int bands) {
+    this.bands = bands;
+  }
+}
@@ -0,0 +1,158 @@
+package com.kevinmazali.portfolio.config;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Deadlines, hedging, load shedding and circuit breaking for chat model calls.
+ */
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "sfg.aiapp.llm")
+public class LlmProperties {
+
+  /**
+   * Time an /ask request has for translation, retrieval and generation together. Default: 30s.
+   */
+  private Duration requestTimeout = Duration.ofSeconds(30);
+
+  /**
+   * Upper bound for the query translation call; when it runs out, retrieval continues with
+   * the original question only. Default: 5s.
+   */
+  private Duration translationTimeout = Duration.ofSeconds(5);
+
+  /**
+   * Sends a duplicate call when the first has not returned after the hedge percentile of
+   * recent latencies, and uses whichever returns first. Default: true.
+   */
+  private boolean hedgeEnabled = true;
+
+  /**
+   * Latency percentile (per call type) after which a call is hedged. Default: 0.95.
+   */
+  private double hedgePercentile = 0.95;
+
+  /**
+   * Successful calls of a type observed before hedging starts. Default: 20.
+   */
+  private int hedgeMinSamples = 20;
+
+  /**
+   * Lower bound for the hedge delay, so fast calls are not duplicated on jitter. Default: 300ms.
+   */
+  private Duration hedgeMinDelay = Duration.ofMillis(300);
+
+  /**
+   * Recent call latencies (per call type) the percentile is computed over. Default: 200.
+   */
+  private int latencyWindow = 200;
+
+  /**
+   * Recent calls whose outcome the circuit breaker considers. Default: 20.
+   */
+  private int breakerWindow = 20;
+
+  /**
+   * Calls seen before the breaker may open. Default: 10.
+   */
+  private int breakerMinimumCalls = 10;
+
+  /**
+   * Share of failed or timed-out calls at which the breaker opens. Default: 0.5.
+   */
+  private double breakerFailureRate = 0.5;
+
+  /**
+   * Time an open breaker fails fast before letting a probe call through. Default: 30s.
+   */
+  private Duration breakerOpenDuration = Duration.ofSeconds(30);
+
+  /**
+   * Chat model calls allowed in flight at once; further calls are shed immediately.
+   * Default: 16.
+   */
+  private int maxConcurrentCalls = 16;
+
+  /**
+   * Answers from the retrieved chunks without the chat model (see
+   * {@code ExtractiveAnswerer}) when the model call times out, is shed, fails or the
+   * circuit is open, instead of returning an error. Default: true.
+   */
+  private boolean extractiveFallback = true;
+
+  /**
+   * Most questions accepted by one /ask/batch request. Each question costs one rate limit
+   * token, so more than the bucket's 5 never fit. Default: 5.
+   */
+  private int batchMaxQuestions = 5;
+
+  /**
+   * Chat model calls one batch may have in flight; the rest of the batch waits for them,
+   * so a batch never takes more than this share of {@code maxConcurrentCalls}. Default: 4.
+   */
+  private int batchConcurrency = 4;
+
+  public void setRequestTimeout(Duration requestTimeout) {
+    this.requestTimeout = requestTimeout;
+  }
+
+  public void setTranslationTimeout(Duration translationTimeout) {
+    this.translationTimeout = translationTimeout;
+  }
+
+  public void setHedgeEnabled(boolean hedgeEnabled) {
+    this.hedgeEnabled = hedgeEnabled;
+  }
+
+  public void setHedgePercentile(double hedgePercentile) {
+    this.hedgePercentile = hedgePercentile;
+  }
+
+  public void setHedgeMinSamples(int hedgeMinSamples) {
+    this.hedgeMinSamples = hedgeMinSamples;
+  }
+
+  public void setHedgeMinDelay(Duration hedgeMinDelay) {
+    this.hedgeMinDelay = hedgeMinDelay;
+  }
+
+  public void setLatencyWindow(int latencyWindow) {
+    this.latencyWindow = latencyWindow;
+  }
+
+  public void setBreakerWindow(int breakerWindow) {
+    this.breakerWindow = breakerWindow;
+  }
+
+  public void setBreakerMinimumCalls(int breakerMinimumCalls) {
+    this.breakerMinimumCalls = breakerMinimumCalls;
+  }
+
+  public void setBreakerFailureRate(double breakerFailureRate) {
+    this.breakerFailureRate = breakerFailureRate;
+  }
+
+  public void setBreakerOpenDuration(Duration breakerOpenDuration) {
+    this.breakerOpenDuration = breakerOpenDuration;
+  }
+
+  public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+    this.maxConcurrentCalls = maxConcurrentCalls;
+  }
+
+  public void setExtractiveFallback(boolean extractiveFallback) {
+    this.extractiveFallback = extractiveFallback;
+  }
+
+  public void setBatchMaxQuestions(int batchMaxQuestions) {
+    this.batchMaxQuestions = batchMaxQuestions;
+  }
+
+  public void setBatchConcurrency(int batchConcurrency) {
+    this.batchConcurrency = batchConcurrency;
+  }
+}
@@ -0,0 +1,43 @@
+package com.kevinmazali.portfolio.config;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Write-ahead log for uploads appended to the serving vector store generation, folded
+ * into a new snapshot by the compactor.
+ */
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "sfg.aiapp.mutation-log")
+public class MutationLogProperties {
+
+  /**
+   * Logs uploads instead of re-saving the whole snapshot after each one. Default: true.
+   */
+  private boolean enabled = true;
+
+  /**
+   * Size after which the log starts a new segment file. Default: 64 MB.
+   */
+  private long segmentBytes = 64L * 1024 * 1024;
+
+  /**
+   * Log size at which it is folded into the snapshot right after an upload; smaller logs
+   * are folded every compaction interval. Default: 256 MB.
+   */
+  private long compactBytes = 256L * 1024 * 1024;
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public void setSegmentBytes(long segmentBytes) {
+    this.segmentBytes = segmentBytes;
+  }
+
+  public void setCompactBytes(long compactBytes) {
+    this.compactBytes = compactBytes;
+  }
+}
@@ -0,0 +1,75 @@
+package com.kevinmazali.portfolio.config;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Limits for parsing source documents with Tika.
+ */
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "sfg.aiapp.parsing")
+public class ParsingProperties {
+
+  /**
+   * Files larger than this are rejected without being parsed. Default: 50MB.
+   */
+  private DataSize maxFileSize = DataSize.ofMegabytes(50);
+
+  /**
+   * Extracted characters kept per file; text beyond this is dropped. Default: 2000000.
+   */
+  private int maxChars = 2_000_000;
+
+  /**
+   * Time the parser may spend on one file, not counting time waiting for the splitter
+   * and embedding to catch up. Default: 60s.
+   */
+  private Duration timeout = Duration.ofSeconds(60);
+
+  /**
+   * Cap on the heap the parser thread may allocate for one file, as a multiple of the
+   * file size. This is cumulative allocation (work), not memory held: it catches
+   * decompression bombs and runaway parsers. Default: 200.
+   */
+  private int allocationPerInputByte = 200;
+
+  /**
+   * Lower bound of the allocation cap, so small files have room to parse. Default: 1GB.
+   */
+  private DataSize allocationFloor = DataSize.ofGigabytes(1);
+
+  /**
+   * Extracted text is handed to the splitter in segments of about this many characters,
+   * so only a few segments are held in memory at once. Default: 32000.
+   */
+  private int segmentChars = 32_000;
+
+  public void setMaxFileSize(DataSize maxFileSize) {
+    this.maxFileSize = maxFileSize;
+  }
+
+  public void setMaxChars(int maxChars) {
+    this.maxChars = maxChars;
+  }
+
+  public void setTimeout(Duration timeout) {
+    this.timeout = timeout;
+  }
+
+  public void setAllocationPerInputByte(int allocationPerInputByte) {
+    this.allocationPerInputByte = allocationPerInputByte;
+  }
+
+  public void setAllocationFloor(DataSize allocationFloor) {
+    this.allocationFloor = allocationFloor;
+  }
+
+  public void setSegmentChars(int segmentChars) {
+    this.segmentChars = segmentChars;
+  }
+}
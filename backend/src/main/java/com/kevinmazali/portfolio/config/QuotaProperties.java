@@ -0,0 +1,42 @@
+package com.kevinmazali.portfolio.config;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Daily chat model token quotas per chat and per client address, reset at midnight UTC.
+ */
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "sfg.aiapp.quota")
+public class QuotaProperties {
+
+  /**
+   * Enforces the quotas below; usage is recorded either way. Default: true.
+   */
+  private boolean enabled = true;
+
+  /**
+   * Prompt plus completion tokens one chat may use per day; 0 is unlimited. Default: 30000.
+   */
+  private long chatDailyTokens = 30_000;
+
+  /**
+   * Prompt plus completion tokens one client address may use per day, across all its
+   * chats; 0 is unlimited. Default: 150000.
+   */
+  private long ipDailyTokens = 150_000;
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public void setChatDailyTokens(long chatDailyTokens) {
+    this.chatDailyTokens = chatDailyTokens;
+  }
+
+  public void setIpDailyTokens(long ipDailyTokens) {
+    this.ipDailyTokens = ipDailyTokens;
+  }
+}
@@ -0,0 +1,52 @@
+package com.kevinmazali.portfolio.config;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for request_log partitioning, retention and archival.
+ */
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "sfg.aiapp.request-log")
+public class RequestLogProperties {
+
+  /**
+   * Partition request_log by month on created_at (MySQL only). Default: true.
+   */
+  private boolean partitioningEnabled = true;
+
+  /**
+   * Number of upcoming months to keep pre-created partitions for. Default: 2.
+   */
+  private int futurePartitions = 2;
+
+  /**
+   * Months of history kept in MySQL; older monthly partitions are archived and dropped.
+   * 0 disables retention. Default: 12.
+   */
+  private int retentionMonths = 12;
+
+  /**
+   * Directory for compressed monthly archives (request_log-YYYY-MM.ndjson.gz).
+   * Relative paths resolve against the working directory.
+   */
+  private String archiveDir = "request-log-archive";
+
+  public void setPartitioningEnabled(boolean partitioningEnabled) {
+    this.partitioningEnabled = partitioningEnabled;
+  }
+
+  public void setFuturePartitions(int futurePartitions) {
+    this.futurePartitions = futurePartitions;
+  }
+
+  public void setRetentionMonths(int retentionMonths) {
+    this.retentionMonths = retentionMonths;
+  }
+
+  public void setArchiveDir(String archiveDir) {
+    this.archiveDir = archiveDir;
+  }
+}
@@ -0,0 +1,111 @@
+package com.kevinmazali.portfolio.config;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for hybrid (vector + BM25) retrieval.
+ */
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "sfg.aiapp.retrieval")
+public class RetrievalProperties {
+
+  /**
+   * Number of chunks fetched by vector similarity per query variant. Default: 20.
+   */
+  private int vectorTopK = 20;
+
+  /**
+   * Number of chunks fetched by BM25 per query variant. Default: 20.
+   */
+  private int lexicalTopK = 20;
+
+  /**
+   * Number of fused chunks placed in the prompt. Default: 16.
+   */
+  private int contextChunks = 16;
+
+  /**
+   * Leading embedding dimensions (Matryoshka prefix) used for the first-stage vector
+   * search, e.g. 256 or 512. 0 disables the first stage. Default: 256.
+   */
+  private int prefixDimensions = 256;
+
+  /**
+   * First-stage shortlist size as a multiple of topK; the shortlist is re-ranked with
+   * the full vectors. Default: 10.
+   */
+  private int prefixShortlistFactor = 10;
+
+  /**
+   * How long a chat's retrieved chunks stay reusable after their last use. Default: 10m.
+   */
+  private Duration cacheTtl = Duration.ofMinutes(10);
+
+  /**
+   * Cosine similarity to the chat's cached query centroid at or above which the cached
+   * chunks are reused without any search. Default: 0.80.
+   */
+  private double cacheReuseThreshold = 0.80;
+
+  /**
+   * Similarity at or above which the cached chunks are topped up with one vector and one
+   * BM25 search instead of a full multi-language retrieval. Default: 0.55.
+   */
+  private double cacheTopUpThreshold = 0.55;
+
+  /**
+   * Maximum number of chats with cached chunks; the least recently used is evicted. Default: 5000.
+   */
+  private int cacheMaxChats = 5000;
+
+  /**
+   * Query embeddings and query translations kept for repeated questions, least recently
+   * used evicted first. 0 disables both caches. Default: 2000.
+   */
+  private int queryCacheSize = 2000;
+
+  public void setVectorTopK(int vectorTopK) {
+    this.vectorTopK = vectorTopK;
+  }
+
+  public void setLexicalTopK(int lexicalTopK) {
+    this.lexicalTopK = lexicalTopK;
+  }
+
+  public void setContextChunks(int contextChunks) {
+    this.contextChunks = contextChunks;
+  }
+
+  public void setPrefixDimensions(int prefixDimensions) {
+    this.prefixDimensions = prefixDimensions;
+  }
+
+  public void setPrefixShortlistFactor(int prefixShortlistFactor) {
+    this.prefixShortlistFactor = prefixShortlistFactor;
+  }
+
+  public void setCacheTtl(Duration cacheTtl) {
+    this.cacheTtl = cacheTtl;
+  }
+
+  public void setCacheReuseThreshold(double cacheReuseThreshold) {
+    this.cacheReuseThreshold = cacheReuseThreshold;
+  }
+
+  public void setCacheTopUpThreshold(double cacheTopUpThreshold) {
+    this.cacheTopUpThreshold = cacheTopUpThreshold;
+  }
+
+  public void setCacheMaxChats(int cacheMaxChats) {
+    this.cacheMaxChats = cacheMaxChats;
+  }
+
+  public void setQueryCacheSize(int queryCacheSize) {
+    this.queryCacheSize = queryCacheSize;
+  }
+}
@@ -0,0 +1,43 @@
+package com.kevinmazali.portfolio.config;
+
+import com.kevinmazali.portfolio.service.VectorStoreManager;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health contributor "vectorStore": UP once the vector store is loaded, OUT_OF_SERVICE
+ * while it is still loading or building, DOWN when initialization failed.
+ *
+ * <p>Part of the readiness group only (see application.yaml), so liveness stays green
+ * while the index is being prepared.</p>
+ */
+@Component
+public class VectorStoreHealthIndicator implements HealthIndicator {
+
+    private final VectorStoreManager vectorStoreManager;
+
+    public VectorStoreHealthIndicator(VectorStoreManager vectorStoreManager) {
+        this.vectorStoreManager = vectorStoreManager;
+    }
+
+    @Override
+    public Health health() {
+        VectorStoreManager.Status status = vectorStoreManager.status();
+        Health.Builder builder = switch (status.state()) {
+            case READY -> Health.up();
+            case FAILED -> Health.down();
+            default -> Health.outOfService();
+        };
+        builder
+            .withDetail("state", status.state())
+            .withDetail("processedDocuments", status.processedDocuments())
+            .withDetail("totalDocuments", status.totalDocuments())
+            .withDetail("chunks", status.chunks())
+            .withDetail("elapsedMillis", status.elapsedMillis());
+        if (status.error() != null) {
+            builder.withDetail("error", status.error());
+        }
+        return builder.build();
+    }
+}
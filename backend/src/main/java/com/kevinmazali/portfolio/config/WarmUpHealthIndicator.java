@@ -0,0 +1,35 @@
+package com.kevinmazali.portfolio.config;
+
+import com.kevinmazali.portfolio.service.WarmUpService;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health contributor "warmUp": OUT_OF_SERVICE until the startup warm-up has finished
+ * (or given up), UP afterwards and when it is disabled.
+ *
+ * <p>Part of the readiness group only, next to "vectorStore".</p>
+ */
+@Component
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+    private final WarmUpService warmUpService;
+
+    public WarmUpHealthIndicator(WarmUpService warmUpService) {
+        this.warmUpService = warmUpService;
+    }
+
+    @Override
+    public Health health() {
+        WarmUpService.Status status = warmUpService.status();
+        Health.Builder builder = warmUpService.isDone() ? Health.up() : Health.outOfService();
+        return builder
+            .withDetail("state", status.state())
+            .withDetail("questions", status.questions())
+            .withDetail("generated", status.generated())
+            .withDetail("rounds", status.rounds())
+            .withDetail("elapsedMillis", status.elapsedMillis())
+            .build();
+    }
+}
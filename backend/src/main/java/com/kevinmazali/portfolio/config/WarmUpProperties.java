@@ -0,0 +1,73 @@
+package com.kevinmazali.portfolio.config;
+
+import lombok.Getter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Warm-up with the most asked questions after startup, before readiness reports UP.
+ */
+@Getter
+@Configuration
+@ConfigurationProperties(prefix = "sfg.aiapp.warm-up")
+public class WarmUpProperties {
+
+  /**
+   * Runs the warm-up; when false, readiness only waits for the vector store. Default: true.
+   */
+  private boolean enabled = true;
+
+  /**
+   * Most asked questions that are run through retrieval. Default: 20.
+   */
+  private int questions = 20;
+
+  /**
+   * How many of those also get an answer from the chat model, which costs completion
+   * tokens on every start. Default: 0.
+   */
+  private int generate = 0;
+
+  /**
+   * Extra passes over the questions with warm caches. They make no provider calls and
+   * only serve to get the retrieval code JIT-compiled. Default: 20.
+   */
+  private int rounds = 20;
+
+  /**
+   * Longest the warm-up may hold back readiness; what is left is skipped. Default: 60s.
+   */
+  private Duration timeout = Duration.ofSeconds(60);
+
+  /**
+   * Recent /ask rows read from request_log when there are no persisted top questions yet.
+   * Default: 5000.
+   */
+  private int requestLogRows = 5000;
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public void setQuestions(int questions) {
+    this.questions = questions;
+  }
+
+  public void setGenerate(int generate) {
+    this.generate = generate;
+  }
+
+  public void setRounds(int rounds) {
+    this.rounds = rounds;
+  }
+
+  public void setTimeout(Duration timeout) {
+    this.timeout = timeout;
+  }
+
+  public void setRequestLogRows(int requestLogRows) {
+    this.requestLogRows = requestLogRows;
+  }
+}
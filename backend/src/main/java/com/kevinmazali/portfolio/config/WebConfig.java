@@ -4,6 +4,7 @@ import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
 import io.github.bucket4j.Refill;
 import jakarta.servlet.Filter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -16,16 +17,28 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.Cookie;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Web configuration including CORS and a lightweight rate limiter for the /ask endpoint.
+ * Web configuration including CORS, a lightweight rate limiter for the /ask endpoint
+ * and a shared-token guard for the /admin endpoints.
  */
 @Configuration
 public class WebConfig {
 
+    /**
+     * Request attribute holding the caller's rate limit {@link Bucket} on /ask requests, so
+     * /ask/batch can charge its further questions to it.
+     */
+    public static final String RATE_LIMIT_BUCKET = "rateLimitBucket";
+
+    @Value("${sfg.aiapp.admin.token:}")
+    private String adminToken;
+
     /**
      * Configures permissive CORS for the known front-end origins.
      */
@@ -113,7 +126,8 @@ public class WebConfig {
     }
 
     /**
-     * Simple per-user/IP rate limiter using Bucket4j for the /ask endpoint.
+     * Simple per-user/IP rate limiter using Bucket4j for the /ask endpoints. Each request
+     * costs one token; /ask/batch charges one more per further question itself.
      */
     @Bean
     public Filter rateLimitFilter() {
@@ -128,6 +142,7 @@ public class WebConfig {
 
                 Bucket bucket = buckets.computeIfAbsent(key(request), k -> newBucket());
                 if (bucket.tryConsume(1)) {
+                    request.setAttribute(RATE_LIMIT_BUCKET, bucket);
                     filterChain.doFilter(request, response);
                 } else {
                     response.setStatus(429);
@@ -137,6 +152,36 @@ public class WebConfig {
             }
         };
     }
-}
 
+    /**
+     * Requires the configured admin token in the X-Admin-Token header for /admin/**.
+     * When no token is configured the admin endpoints are disabled (403).
+     */
+    @Bean
+    public Filter adminTokenFilter() {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                throws ServletException, IOException {
+                if (!request.getRequestURI().startsWith("/admin")) {
+                    filterChain.doFilter(request, response);
+                    return;
+                }
 
+                String provided = request.getHeader("X-Admin-Token");
+                if (adminToken == null || adminToken.isBlank()) {
+                    response.setStatus(403);
+                    response.setContentType("application/json");
+                    response.getWriter().write("{\"error\":\"Admin API disabled\"}");
+                } else if (provided != null && MessageDigest.isEqual(
+                    provided.getBytes(StandardCharsets.UTF_8), adminToken.getBytes(StandardCharsets.UTF_8))) {
+                    filterChain.doFilter(request, response);
+                } else {
+                    response.setStatus(401);
+                    response.setContentType("application/json");
+                    response.getWriter().write("{\"error\":\"Unauthorized\"}");
+                }
+            }
+        };
+    }
+}
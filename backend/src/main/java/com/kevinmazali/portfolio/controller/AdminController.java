@@ -0,0 +1,57 @@
+package com.kevinmazali.portfolio.controller;
+
+import com.kevinmazali.portfolio.service.VectorStoreManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Administrative operations on the vector store. Access is guarded by the admin token
+ * filter in {@link com.kevinmazali.portfolio.config.WebConfig}.
+ */
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/admin/vectorstore")
+public class AdminController {
+
+    private final VectorStoreManager vectorStoreManager;
+
+    @GetMapping
+    public VectorStoreManager.Status status() {
+        return vectorStoreManager.status();
+    }
+
+    /**
+     * Starts building a new store generation in the background; the current one keeps serving.
+     *
+     * @return 202 when the rebuild was started, 409 when the store is not ready or already rebuilding
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<?> rebuild() {
+        if (!vectorStoreManager.rebuild()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Vector store is not ready or a rebuild is already running"));
+        }
+        return ResponseEntity.accepted().body(vectorStoreManager.status());
+    }
+
+    /**
+     * Swaps back to the previous store generation.
+     *
+     * @return the generation now serving, or 409 when there is no previous generation
+     */
+    @PostMapping("/rollback")
+    public ResponseEntity<?> rollback() throws IOException {
+        return vectorStoreManager.rollback()
+            .<ResponseEntity<?>>map(generation -> ResponseEntity.ok(Map.of("generation", generation)))
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "No previous generation to roll back to")));
+    }
+}
@@ -0,0 +1,28 @@
+package com.kevinmazali.portfolio.controller;
+
+import com.kevinmazali.portfolio.analytics.UsageAnalytics;
+import com.kevinmazali.portfolio.model.dto.AnalyticsDtos;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/analytics")
+public class AnalyticsController {
+
+    private final UsageAnalytics usageAnalytics;
+
+    /**
+     * Usage rollup for the last {@code hours} hours (1-168), with the all-time top questions.
+     */
+    @GetMapping
+    public AnalyticsDtos.Summary summary(
+        @RequestParam(name = "hours", defaultValue = "24") int hours,
+        @RequestParam(name = "top", defaultValue = "10") int top
+    ) {
+        return usageAnalytics.summary(hours, Math.max(0, Math.min(top, 100)));
+    }
+}
@@ -1,17 +1,26 @@
 package com.kevinmazali.portfolio.controller;
 
 import com.kevinmazali.portfolio.model.dto.ConversationDtos;
+import com.kevinmazali.portfolio.service.ConversationSearchIndex;
 import com.kevinmazali.portfolio.service.ConversationService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Duration;
+import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RequiredArgsConstructor
 @RestController
@@ -19,24 +28,79 @@ import java.util.List;
 public class ConversationController {
 
     private final ConversationService conversationService;
+    private final ConversationSearchIndex searchIndex;
 
     @GetMapping
     public List<ConversationDtos.ConversationSummary> list(
         @RequestParam(name = "gapMinutes", required = false) Integer gapMinutes,
-        @RequestParam(name = "requesterId", required = false) String requesterId
+        @RequestParam(name = "requesterId", required = false) String requesterId,
+        @RequestParam(name = "includeArchived", defaultValue = "false") boolean includeArchived
     ) {
         Duration gap = gapMinutes != null ? Duration.ofMinutes(gapMinutes) : null;
-        return conversationService.listConversations(gap, requesterId);
+        return conversationService.listConversations(gap, requesterId, includeArchived);
+    }
+
+    /**
+     * Streams every conversation as NDJSON, one conversation per line, with the same ids as
+     * {@link #list}. With {@code gzip=true} the download is a gzip-compressed file.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+        @RequestParam(name = "gapMinutes", required = false) Integer gapMinutes,
+        @RequestParam(name = "requesterId", required = false) String requesterId,
+        @RequestParam(name = "includeArchived", defaultValue = "false") boolean includeArchived,
+        @RequestParam(name = "gzip", defaultValue = "false") boolean gzip
+    ) {
+        Duration gap = gapMinutes != null ? Duration.ofMinutes(gapMinutes) : null;
+        StreamingResponseBody body = out -> {
+            if (!gzip) {
+                conversationService.export(out, gap, requesterId, includeArchived);
+                return;
+            }
+            GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+            conversationService.export(compressed, gap, requesterId, includeArchived);
+            compressed.finish();
+        };
+        String filename = gzip ? "conversations.ndjson.gz" : "conversations.ndjson";
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : "application/x-ndjson"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+            .body(body);
+    }
+
+    /**
+     * Searches question and answer text; every term must match. {@code from} is inclusive,
+     * {@code to} exclusive, both ISO-8601 date-times.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(
+        @RequestParam(name = "q") String q,
+        @RequestParam(name = "requesterId", required = false) String requesterId,
+        @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime from,
+        @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) OffsetDateTime to,
+        @RequestParam(name = "page", defaultValue = "0") int page,
+        @RequestParam(name = "size", defaultValue = "20") int size
+    ) {
+        if (q.isBlank() || page < 0 || size < 1 || size > 100) {
+            return ResponseEntity.badRequest().body("q is required, page must be >= 0 and size 1-100");
+        }
+        if (!searchIndex.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "10")
+                .body("Search index is still building, please retry shortly");
+        }
+        return ResponseEntity.ok(conversationService.search(q, requesterId, from, to, page, size));
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<?> get(
         @PathVariable("id") long id,
         @RequestParam(name = "gapMinutes", required = false) Integer gapMinutes,
-        @RequestParam(name = "requesterId", required = false) String requesterId
+        @RequestParam(name = "requesterId", required = false) String requesterId,
+        @RequestParam(name = "includeArchived", defaultValue = "false") boolean includeArchived
     ) {
         Duration gap = gapMinutes != null ? Duration.ofMinutes(gapMinutes) : null;
-        ConversationDtos.Conversation conv = conversationService.getConversation(id, gap, requesterId);
+        ConversationDtos.Conversation conv = conversationService.getConversation(id, gap, requesterId, includeArchived);
         if (conv == null) {
             return ResponseEntity.notFound().build();
         }
@@ -0,0 +1,77 @@
+package com.kevinmazali.portfolio.controller;
+
+import com.kevinmazali.portfolio.service.DocumentIngestionService;
+import com.kevinmazali.portfolio.service.VectorStoreManager;
+import com.kevinmazali.portfolio.vectorstore.ParseQuarantine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live document upload into the vector store. Access is guarded by the admin token
+ * filter in {@link com.kevinmazali.portfolio.config.WebConfig}.
+ */
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/admin/documents")
+public class DocumentController {
+
+    private final DocumentIngestionService documentIngestionService;
+    private final VectorStoreManager vectorStoreManager;
+
+    /**
+     * Uploads a document and queues it for ingestion.
+     *
+     * @return 202 with the job to poll, 400 for unsupported files, 503 while the store is starting
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> upload(@RequestParam("file") MultipartFile file) throws IOException {
+        if (!vectorStoreManager.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", "Vector store is not ready"));
+        }
+        try {
+            return ResponseEntity.accepted().body(documentIngestionService.submit(file));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> job(@PathVariable("id") String id) {
+        return documentIngestionService.find(id)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /** Documents skipped because they failed to parse, with the reason. */
+    @GetMapping("/quarantine")
+    public List<ParseQuarantine.Entry> quarantine() {
+        return documentIngestionService.quarantined();
+    }
+
+    /**
+     * Releases a document from quarantine so the next rebuild tries it again.
+     *
+     * @return 204, or 404 when the document was not quarantined
+     */
+    @DeleteMapping("/quarantine")
+    public ResponseEntity<?> release(@RequestParam("source") String source) {
+        return documentIngestionService.release(source)
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
+    }
+}
@@ -3,16 +3,44 @@ package com.kevinmazali.portfolio.controller;
 
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kevinmazali.portfolio.analytics.UsageAnalytics;
+import com.kevinmazali.portfolio.config.LlmProperties;
+import com.kevinmazali.portfolio.config.WebConfig;
 import com.kevinmazali.portfolio.model.Answer;
 import com.kevinmazali.portfolio.model.Question;
+import com.kevinmazali.portfolio.model.RequestLog;
+import com.kevinmazali.portfolio.model.dto.BatchDtos;
+import com.kevinmazali.portfolio.service.ChatModelGateway;
+import com.kevinmazali.portfolio.service.CircuitBreaker;
+import com.kevinmazali.portfolio.service.Deadline;
+import com.kevinmazali.portfolio.service.DeadlineExceededException;
 import com.kevinmazali.portfolio.service.OpenAIService;
+import com.kevinmazali.portfolio.service.QuotaExceededException;
 import com.kevinmazali.portfolio.service.RequestLogService;
+import com.kevinmazali.portfolio.service.Requester;
+import com.kevinmazali.portfolio.service.VectorStoreManager;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * REST controller exposing the question answering endpoint.
@@ -25,38 +53,217 @@ public class QuestionController {
 
     private final OpenAIService openAIService;
     private final RequestLogService requestLogService;
+    private final VectorStoreManager vectorStoreManager;
+    private final UsageAnalytics usageAnalytics;
+    private final LlmProperties llmProperties;
+    private final ObjectMapper objectMapper;
     private static final int MAX_PROMPT_CHARS = 3000;
+    private static final String RETRY_AFTER_SECONDS = "10";
 
     /**
      * Answers a user question using the RAG-enabled AI service.
      *
      * <p>Guards against overly long prompts, persists a request/response audit trail,
-     * then returns the generated answer.</p>
+     * then returns the answer. Its {@code mode} is {@code extractive} when it was quoted
+     * from the documents because the chat model was unavailable.</p>
+     *
+     * <p>Chat model tokens are charged to the chat and the client address. Over their daily
+     * quota the answer is extractive.</p>
      *
      * @param question input containing the natural-language question
-     * @return {@link Answer} on success, or a 400 response with an error when the prompt is too long
+     * @return {@link Answer} on success, a 400 response with an error when the prompt is too long
+     *         or the optional metadata filter cannot be parsed, a 503 with Retry-After while
+     *         the vector store is still loading or the AI provider is degraded or saturated,
+     *         or a 504 when the answer is not ready within {@code sfg.aiapp.llm.request-timeout};
+     *         AI provider errors and a 429 with Retry-After for a used-up token quota only surface
+     *         when {@code sfg.aiapp.llm.extractive-fallback} is off
      */
     @PostMapping("/ask")
     public Object askQuestion(
         @RequestBody Question question,
-        @RequestHeader(name = "X-Chat-Id", required = false) String chatId
+        @RequestHeader(name = "X-Chat-Id", required = false) String chatIdHeader,
+        HttpServletRequest request
     ) {
-        if (chatId == null || chatId.isBlank()) {
-            Object attr = ((jakarta.servlet.http.HttpServletRequest) org.springframework.web.context.request.RequestContextHolder.getRequestAttributes()
-                .resolveReference(org.springframework.web.context.request.RequestAttributes.REFERENCE_REQUEST))
-                .getAttribute("chatId");
-            if (attr instanceof String s && !s.isBlank()) {
-                chatId = s;
-            }
+        String chatId = chatId(chatIdHeader, request);
+        if (!vectorStoreManager.isReady()) {
+            return ResponseEntity.status(503)
+                .header("Retry-After", RETRY_AFTER_SECONDS)
+                .body(java.util.Map.of("error", "Service is starting, please retry shortly"));
         }
         if (question.question() != null && question.question().length() > MAX_PROMPT_CHARS) {
             return ResponseEntity.badRequest().body(java.util.Map.of("error", "Prompt too long"));
         }
+        if (question.filter() != null && !question.filter().isBlank()) {
+            try {
+                new FilterExpressionTextParser().parse(question.filter());
+            } catch (RuntimeException e) {
+                return ResponseEntity.badRequest().body(java.util.Map.of("error", "Invalid filter"));
+            }
+        }
         requestLogService.save("/ask", "POST", question.question(), chatId);
-        Answer answer = openAIService.getAnswer(question);
+        usageAnalytics.recordQuestion(chatId, question.question());
+        long started = System.nanoTime();
+        Answer answer;
+        try {
+            answer = openAIService.getAnswer(question, new Requester(chatId, request.getRemoteAddr()),
+                Deadline.after(llmProperties.getRequestTimeout()));
+        } catch (DeadlineExceededException e) {
+            return ResponseEntity.status(504).body(java.util.Map.of("error", "The answer took too long, please retry"));
+        } catch (CircuitBreaker.OpenException e) {
+            return ResponseEntity.status(503)
+                .header("Retry-After", String.valueOf(Math.max(1, e.retryAfter().toSeconds())))
+                .body(java.util.Map.of("error", "The AI provider is currently degraded, please retry shortly"));
+        } catch (ChatModelGateway.SaturatedException e) {
+            return ResponseEntity.status(503)
+                .header("Retry-After", "1")
+                .body(java.util.Map.of("error", "Too many questions right now, please retry shortly"));
+        } catch (QuotaExceededException e) {
+            return ResponseEntity.status(429)
+                .header("Retry-After", String.valueOf(Math.max(1, e.retryAfter().toSeconds())))
+                .body(java.util.Map.of("error", "Daily question budget used up, please come back tomorrow"));
+        }
+        usageAnalytics.recordAnswer((System.nanoTime() - started) / 1_000_000);
         // Also log the answer for history
         requestLogService.save("/ask:response", "POST", answer.answer(), chatId);
         return answer;
     }
 
+    /**
+     * Answers up to {@code sfg.aiapp.llm.batch-max-questions} questions in one request, for
+     * suggested questions and evaluation scripts. Each question is answered like a stateless
+     * /ask, but translations, embeddings and chat model calls are shared or run
+     * concurrently (see {@link OpenAIService#getAnswers}). Every question counts against the
+     * rate limit like one /ask, and a batch larger than what is left of it is rejected whole;
+     * chat model tokens count against the token quotas as usual.
+     *
+     * <p>The response is NDJSON: one {@link BatchDtos.Item} per question, written as soon as
+     * its answer is ready, so lines arrive in completion order. Audit rows for the questions
+     * and for the answers are each written with one multi-row insert.</p>
+     *
+     * @return the NDJSON stream, a 400 response when there are no or too many questions or one
+     *         of them is too long or has an invalid filter, a 429 with Retry-After when the batch
+     *         exceeds the caller's remaining rate limit, or a 503 with Retry-After while the
+     *         vector store is still loading
+     */
+    @PostMapping("/ask/batch")
+    public ResponseEntity<StreamingResponseBody> askBatch(
+        @RequestBody BatchDtos.Request batch,
+        @RequestHeader(name = "X-Chat-Id", required = false) String chatIdHeader,
+        HttpServletRequest request
+    ) {
+        String chatId = chatId(chatIdHeader, request);
+        if (!vectorStoreManager.isReady()) {
+            return ResponseEntity.status(503)
+                .header("Retry-After", RETRY_AFTER_SECONDS)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(error("Service is starting, please retry shortly"));
+        }
+        List<Question> questions = batch == null || batch.questions() == null ? List.of() : batch.questions();
+        if (questions.isEmpty() || questions.size() > llmProperties.getBatchMaxQuestions()) {
+            return badRequest("Send between 1 and " + llmProperties.getBatchMaxQuestions() + " questions");
+        }
+        for (int i = 0; i < questions.size(); i++) {
+            Question question = questions.get(i);
+            if (question == null || question.question() == null || question.question().isBlank()) {
+                return badRequest("Question " + i + " is empty");
+            }
+            if (question.question().length() > MAX_PROMPT_CHARS) {
+                return badRequest("Question " + i + " is too long");
+            }
+            if (question.filter() != null && !question.filter().isBlank()) {
+                try {
+                    new FilterExpressionTextParser().parse(question.filter());
+                } catch (RuntimeException e) {
+                    return badRequest("Question " + i + " has an invalid filter");
+                }
+            }
+        }
+        // The rate limit filter charged one question for the request; charge the rest here
+        if (questions.size() > 1 && request.getAttribute(WebConfig.RATE_LIMIT_BUCKET) instanceof Bucket bucket) {
+            ConsumptionProbe probe = bucket.tryConsumeAndReturnRemaining(questions.size() - 1);
+            if (!probe.isConsumed()) {
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(probe.getNanosToWaitForRefill()) + 1);
+                return ResponseEntity.status(429)
+                    .header("Retry-After", String.valueOf(retryAfter))
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(error("Only " + (probe.getRemainingTokens() + 1) + " of the " + questions.size()
+                        + " questions fit in the rate limit right now"));
+            }
+        }
+        requestLogService.saveAll(questions.stream().map(q -> auditRow("/ask", q.question(), chatId)).toList());
+        questions.forEach(q -> usageAnalytics.recordQuestion(chatId, q.question()));
+
+        long started = System.nanoTime();
+        List<CompletableFuture<Answer>> answers = openAIService.getAnswers(questions,
+            new Requester(chatId, request.getRemoteAddr()), Deadline.after(llmProperties.getRequestTimeout()));
+        BlockingQueue<Integer> done = new LinkedBlockingQueue<>();
+        for (int i = 0; i < answers.size(); i++) {
+            int index = i;
+            answers.get(i).whenComplete((answer, error) -> done.add(index));
+        }
+
+        StreamingResponseBody body = out -> {
+            List<RequestLog> responses = new ArrayList<>();
+            try {
+                for (int n = 0; n < answers.size(); n++) {
+                    int index = done.take();
+                    BatchDtos.Item item;
+                    try {
+                        Answer answer = answers.get(index).join();
+                        usageAnalytics.recordAnswer((System.nanoTime() - started) / 1_000_000);
+                        responses.add(auditRow("/ask:response", answer.answer(), chatId));
+                        item = new BatchDtos.Item(index, answer.answer(), answer.mode(), null);
+                    } catch (CompletionException e) {
+                        item = new BatchDtos.Item(index, null, null, batchError(e.getCause()));
+                    }
+                    out.write(objectMapper.writeValueAsBytes(item));
+                    out.write('\n');
+                    out.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Batch interrupted");
+            } finally {
+                requestLogService.saveAll(responses);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    /** The X-Chat-Id header, or the id {@link WebConfig} assigned from the cookie or generated. */
+    private static String chatId(String header, HttpServletRequest request) {
+        if (header != null && !header.isBlank()) {
+            return header;
+        }
+        return request.getAttribute("chatId") instanceof String s && !s.isBlank() ? s : header;
+    }
+
+    private ResponseEntity<StreamingResponseBody> badRequest(String message) {
+        return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(error(message));
+    }
+
+    /** Error body for /ask/batch, which has to be a stream like its regular response. */
+    private StreamingResponseBody error(String message) {
+        return out -> out.write(objectMapper.writeValueAsBytes(java.util.Map.of("error", message)));
+    }
+
+    private static RequestLog auditRow(String path, String payload, String chatId) {
+        RequestLog row = new RequestLog();
+        row.setPath(path);
+        row.setMethod("POST");
+        row.setPayload(payload);
+        row.setRequesterId(chatId);
+        return row;
+    }
+
+    /** The error line for a failed batch question, worded like the /ask error responses. */
+    private static String batchError(Throwable e) {
+        return switch (e) {
+            case DeadlineExceededException d -> "The answer took too long, please retry";
+            case CircuitBreaker.OpenException o -> "The AI provider is currently degraded, please retry shortly";
+            case ChatModelGateway.SaturatedException s -> "Too many questions right now, please retry shortly";
+            case QuotaExceededException q -> "Daily question budget used up, please come back tomorrow";
+            case null, default -> "Could not answer this question";
+        };
+    }
 }
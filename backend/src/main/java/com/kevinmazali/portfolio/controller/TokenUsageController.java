@@ -0,0 +1,33 @@
+package com.kevinmazali.portfolio.controller;
+
+import com.kevinmazali.portfolio.model.dto.TokenUsageDtos;
+import com.kevinmazali.portfolio.service.TokenAccounting;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Chat model token usage per requester. Access is guarded by the admin token filter in
+ * {@link com.kevinmazali.portfolio.config.WebConfig}.
+ */
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/admin/usage")
+public class TokenUsageController {
+
+    private final TokenAccounting tokenAccounting;
+
+    /**
+     * Accounts ({@code chat:<id>}, {@code ip:<address>}, {@code system}) with the most tokens
+     * over the last {@code days} UTC days (1-90, 1 is today), with the configured quotas.
+     */
+    @GetMapping("/tokens")
+    public TokenUsageDtos.TopConsumers tokens(
+        @RequestParam(name = "days", defaultValue = "1") int days,
+        @RequestParam(name = "top", defaultValue = "20") int top
+    ) {
+        return tokenAccounting.topConsumers(Math.max(1, Math.min(days, 90)), Math.max(1, Math.min(top, 100)));
+    }
+}
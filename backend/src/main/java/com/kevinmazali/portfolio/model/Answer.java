@@ -2,6 +2,18 @@ package com.kevinmazali.portfolio.model;
 
 /**
  * DTO representing an answer returned by the AI service.
+ *
+ * @param answer the answer text
+ * @param mode how it was produced: {@link #GENERATED} by the chat model, or
+ *             {@link #EXTRACTIVE} from sentences of the retrieved documents when the
+ *             chat model was unavailable, too slow or overloaded
  */
-public record Answer(String answer) {
+public record Answer(String answer, String mode) {
+
+    public static final String GENERATED = "generated";
+    public static final String EXTRACTIVE = "extractive";
+
+    public Answer(String answer) {
+        this(answer, GENERATED);
+    }
 }
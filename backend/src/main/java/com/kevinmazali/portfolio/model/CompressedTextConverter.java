@@ -0,0 +1,134 @@
+package com.kevinmazali.portfolio.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores text columns as DEFLATE-compressed bytes behind a small format header.
+ *
+ * <p>Layout: {@code 0xFF, codec, dictionaryId, int32 plaintext length, body}. {@code 0xFF}
+ * never occurs in UTF-8, so a value without it is a legacy row holding plain UTF-8 text
+ * and is returned as is. Codec {@code 0} stores the UTF-8 bytes unchanged (used when
+ * compression does not pay off); codec {@code 1} is raw DEFLATE, primed with the preset
+ * dictionary named by {@code dictionaryId}.</p>
+ *
+ * <p>The dictionary is a sample of typical questions and answers. A preset dictionary
+ * mostly helps short texts, which otherwise have no history to reference. Dictionaries are
+ * never changed in place: a new one gets a new id and the old one stays available for
+ * existing rows.</p>
+ */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, byte[]> {
+
+  static final byte MAGIC = (byte) 0xFF;
+  static final byte CODEC_STORED = 0;
+  static final byte CODEC_DEFLATE = 1;
+  static final int HEADER_LENGTH = 7;
+
+  /** Dictionary used for new writes. */
+  static final byte CURRENT_DICTIONARY = 1;
+  private static final byte[][] DICTIONARIES = {
+      new byte[0],
+      loadDictionary("/request-log/payload-dictionary-1.txt")
+  };
+
+  @Override
+  public byte[] convertToDatabaseColumn(String attribute) {
+    if (attribute == null) return null;
+    byte[] plain = attribute.getBytes(StandardCharsets.UTF_8);
+    byte[] compressed = deflate(plain, DICTIONARIES[CURRENT_DICTIONARY]);
+    boolean worthIt = compressed.length < plain.length;
+    byte[] body = worthIt ? compressed : plain;
+    return ByteBuffer.allocate(HEADER_LENGTH + body.length)
+        .put(MAGIC)
+        .put(worthIt ? CODEC_DEFLATE : CODEC_STORED)
+        .put(worthIt ? CURRENT_DICTIONARY : 0)
+        .putInt(plain.length)
+        .put(body)
+        .array();
+  }
+
+  @Override
+  public String convertToEntityAttribute(byte[] dbData) {
+    if (dbData == null) return null;
+    if (dbData.length < HEADER_LENGTH || dbData[0] != MAGIC) {
+      // Legacy row written before compression was introduced
+      return new String(dbData, StandardCharsets.UTF_8);
+    }
+    ByteBuffer header = ByteBuffer.wrap(dbData, 0, HEADER_LENGTH);
+    header.get();
+    byte codec = header.get();
+    int dictionaryId = header.get() & 0xFF;
+    int length = header.getInt();
+    return switch (codec) {
+      case CODEC_STORED -> new String(dbData, HEADER_LENGTH, dbData.length - HEADER_LENGTH, StandardCharsets.UTF_8);
+      case CODEC_DEFLATE -> {
+        if (dictionaryId >= DICTIONARIES.length) {
+          throw new IllegalStateException("Unknown payload dictionary: " + dictionaryId);
+        }
+        yield new String(inflate(dbData, length, DICTIONARIES[dictionaryId]), StandardCharsets.UTF_8);
+      }
+      default -> throw new IllegalStateException("Unknown payload codec: " + codec);
+    };
+  }
+
+  private static byte[] deflate(byte[] plain, byte[] dictionary) {
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+    try {
+      if (dictionary.length > 0) deflater.setDictionary(dictionary);
+      deflater.setInput(plain);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, plain.length / 2));
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        int n = deflater.deflate(buffer);
+        out.write(buffer, 0, n);
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(byte[] data, int length, byte[] dictionary) {
+    Inflater inflater = new Inflater(true);
+    try {
+      if (dictionary.length > 0) inflater.setDictionary(dictionary);
+      inflater.setInput(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+      byte[] plain = new byte[length];
+      int off = 0;
+      while (off < length) {
+        int n = inflater.inflate(plain, off, length - off);
+        if (n == 0 && (inflater.finished() || inflater.needsInput())) break;
+        off += n;
+      }
+      if (off != length) {
+        throw new IllegalStateException("Truncated payload: expected " + length + " bytes, got " + off);
+      }
+      return plain;
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Corrupt compressed payload", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static byte[] loadDictionary(String resource) {
+    try (InputStream in = CompressedTextConverter.class.getResourceAsStream(resource)) {
+      if (in == null) throw new IllegalStateException("Missing payload dictionary " + resource);
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
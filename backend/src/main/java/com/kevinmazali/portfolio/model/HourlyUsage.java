@@ -0,0 +1,56 @@
+package com.kevinmazali.portfolio.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One hour of pre-aggregated /ask usage, written by the analytics rollup.
+ */
+@Getter
+@Entity
+@Table(name = "usage_hourly")
+public class HourlyUsage {
+
+    /** Start of the hour in UTC. */
+    @Id
+    private LocalDateTime hourStart;
+
+    @Column(nullable = false)
+    private long questions;
+
+    @Column(nullable = false)
+    private long answers;
+
+    /** Answer latency in milliseconds as a compressed HdrHistogram. */
+    @Column(columnDefinition = "MEDIUMBLOB")
+    private byte[] latencyHistogram;
+
+    /** HyperLogLog registers over requester ids. */
+    @Column(columnDefinition = "BLOB")
+    private byte[] requesterSketch;
+
+    public void setHourStart(LocalDateTime hourStart) {
+        this.hourStart = hourStart;
+    }
+
+    public void setQuestions(long questions) {
+        this.questions = questions;
+    }
+
+    public void setAnswers(long answers) {
+        this.answers = answers;
+    }
+
+    public void setLatencyHistogram(byte[] latencyHistogram) {
+        this.latencyHistogram = latencyHistogram;
+    }
+
+    public void setRequesterSketch(byte[] requesterSketch) {
+        this.requesterSketch = requesterSketch;
+    }
+}
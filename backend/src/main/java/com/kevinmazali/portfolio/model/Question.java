@@ -2,6 +2,14 @@ package com.kevinmazali.portfolio.model;
 
 /**
  * DTO carrying a user question submitted to the API.
+ *
+ * @param question the natural-language question
+ * @param filter optional metadata filter expression restricting retrieval to matching chunks,
+ *               e.g. {@code content_type == 'text'} or {@code filename in ['Projects.pdf']}
  */
-public record Question(String question) {
+public record Question(String question, String filter) {
+
+    public Question(String question) {
+        this(question, null);
+    }
 }
@@ -1,11 +1,12 @@
 package com.kevinmazali.portfolio.model;
 
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.Lob;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Getter;
 
@@ -16,7 +17,7 @@ import java.time.OffsetDateTime;
  */
 @Getter
 @Entity
-@Table(name = "request_log")
+@Table(name = "request_log", indexes = @Index(name = "idx_request_log_requester", columnList = "requester_id, id"))
 public class RequestLog {
 
     @Id
@@ -29,8 +30,9 @@ public class RequestLog {
     @Column(nullable = false)
     private String method;
 
-    @Lob
-    @Column(nullable = false, columnDefinition = "LONGTEXT")
+    /** Stored compressed; see {@link CompressedTextConverter}. */
+    @Convert(converter = CompressedTextConverter.class)
+    @Column(nullable = false, columnDefinition = "LONGBLOB")
     private String payload;
 
     @Column(nullable = true, length = 128)
@@ -39,6 +41,11 @@ public class RequestLog {
     @Column(nullable = false)
     private OffsetDateTime createdAt = OffsetDateTime.now();
 
+  /** Only for rehydrating archived rows; persisted entities get their id from the database. */
+  public void setId(Long id) {
+        this.id = id;
+    }
+
   public void setPath(String path) {
         this.path = path;
     }
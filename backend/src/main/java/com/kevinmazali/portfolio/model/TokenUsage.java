@@ -0,0 +1,68 @@
+package com.kevinmazali.portfolio.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Chat model tokens one account (chat or client address) used on one UTC day, written by
+ * the token accounting flush.
+ */
+@Getter
+@Entity
+@Table(name = "usage_tokens", indexes = @Index(name = "idx_usage_tokens_day", columnList = "day, account"))
+public class TokenUsage {
+
+    /** {@code <day>|<account>}. */
+    @Id
+    @Column(length = 160)
+    private String id;
+
+    @Column(nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false, length = 128)
+    private String account;
+
+    @Column(nullable = false)
+    private long promptTokens;
+
+    @Column(nullable = false)
+    private long completionTokens;
+
+    @Column(nullable = false)
+    private long calls;
+
+    public static String id(LocalDate day, String account) {
+        return day + "|" + account;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public void setAccount(String account) {
+        this.account = account;
+    }
+
+    public void setPromptTokens(long promptTokens) {
+        this.promptTokens = promptTokens;
+    }
+
+    public void setCompletionTokens(long completionTokens) {
+        this.completionTokens = completionTokens;
+    }
+
+    public void setCalls(long calls) {
+        this.calls = calls;
+    }
+}
@@ -0,0 +1,46 @@
+package com.kevinmazali.portfolio.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+
+/**
+ * Persisted counter of the heavy-hitters sketch over normalized questions.
+ */
+@Getter
+@Entity
+@Table(name = "usage_top_question")
+public class TopQuestion {
+
+    /** Position in the snapshot, 1-based. */
+    @Id
+    private Integer position;
+
+    @Column(nullable = false, length = 512)
+    private String question;
+
+    @Column(nullable = false)
+    private long count;
+
+    /** Maximum overestimation of {@link #count}. */
+    @Column(nullable = false)
+    private long error;
+
+    public void setPosition(Integer position) {
+        this.position = position;
+    }
+
+    public void setQuestion(String question) {
+        this.question = question;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public void setError(long error) {
+        this.error = error;
+    }
+}
@@ -0,0 +1,20 @@
+package com.kevinmazali.portfolio.model.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public final class AnalyticsDtos {
+
+    private AnalyticsDtos() {}
+
+    /** Latency percentiles in milliseconds. */
+    public record Latency(long count, long p50, long p90, long p99, long max) {}
+
+    public record Hour(OffsetDateTime hourStart, long questions, long answers, long uniqueRequesters, Latency latency) {}
+
+    /** {@code error} is the maximum amount by which {@code count} may overestimate. */
+    public record TopQuestion(String question, long count, long error) {}
+
+    public record Summary(OffsetDateTime from, OffsetDateTime to, long questions, long answers, long uniqueRequesters,
+                          Latency latency, List<Hour> hourly, List<TopQuestion> topQuestions) {}
+}
@@ -0,0 +1,20 @@
+package com.kevinmazali.portfolio.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.kevinmazali.portfolio.model.Question;
+
+import java.util.List;
+
+public final class BatchDtos {
+
+    private BatchDtos() {}
+
+    public record Request(List<Question> questions) {}
+
+    /**
+     * One line of the /ask/batch response. {@code index} is the question's position in the
+     * request; either {@code answer} and {@code mode} or {@code error} are set.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Item(int index, String answer, String mode, String error) {}
+}
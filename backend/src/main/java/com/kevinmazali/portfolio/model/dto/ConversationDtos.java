@@ -12,6 +12,10 @@ public final class ConversationDtos {
     public record Conversation(Long id, OffsetDateTime startedAt, OffsetDateTime endedAt, List<Message> messages) {}
 
     public record ConversationSummary(Long id, OffsetDateTime startedAt, OffsetDateTime endedAt, int messageCount, String preview) {}
+
+    public record SearchHit(Long id, String role, String requesterId, OffsetDateTime createdAt, String snippet) {}
+
+    public record SearchPage(String query, int page, int size, long total, List<SearchHit> hits) {}
 }
 
 
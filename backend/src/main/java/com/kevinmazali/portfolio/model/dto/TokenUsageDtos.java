@@ -0,0 +1,17 @@
+package com.kevinmazali.portfolio.model.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public final class TokenUsageDtos {
+
+    private TokenUsageDtos() {}
+
+    /** {@code account} is {@code chat:<id>}, {@code ip:<address>} or {@code system}. */
+    public record Consumer(String account, long promptTokens, long completionTokens, long totalTokens, long calls) {}
+
+    /** Daily limits; 0 means unlimited. */
+    public record Quota(boolean enabled, long chatDailyTokens, long ipDailyTokens) {}
+
+    public record TopConsumers(LocalDate from, LocalDate to, Quota quota, List<Consumer> consumers) {}
+}
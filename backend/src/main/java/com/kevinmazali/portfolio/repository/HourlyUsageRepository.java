@@ -0,0 +1,12 @@
+package com.kevinmazali.portfolio.repository;
+
+import com.kevinmazali.portfolio.model.HourlyUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface HourlyUsageRepository extends JpaRepository<HourlyUsage, LocalDateTime> {
+
+    List<HourlyUsage> findByHourStartGreaterThanEqualOrderByHourStartAsc(LocalDateTime start);
+}
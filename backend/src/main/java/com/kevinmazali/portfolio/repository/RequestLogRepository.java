@@ -1,10 +1,15 @@
 package com.kevinmazali.portfolio.repository;
 
 import com.kevinmazali.portfolio.model.RequestLog;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface RequestLogRepository extends JpaRepository<RequestLog, Long> {
 
@@ -17,6 +22,25 @@ public interface RequestLogRepository extends JpaRepository<RequestLog, Long> {
     List<RequestLog> findByRequesterIdOrderByCreatedAtAsc(String requesterId);
 
     List<RequestLog> findByRequesterIdAndCreatedAtBetweenOrderByCreatedAtAsc(String requesterId, OffsetDateTime start, OffsetDateTime end);
+
+    List<RequestLog> findByRequesterIdOrderByIdDesc(String requesterId, Pageable pageable);
+
+    List<RequestLog> findByPathOrderByIdDesc(String path, Pageable pageable);
+
+    /**
+     * Streams every row in id order with a forward-only MySQL cursor. Must be consumed
+     * inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    Stream<RequestLog> streamAllByOrderByIdAsc();
+
+    /** Streams every row in creation order; same cursor rules as above. */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    Stream<RequestLog> streamAllByOrderByCreatedAtAsc();
+
+    /** Streams one requester's rows in creation order; same cursor rules as above. */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    Stream<RequestLog> streamByRequesterIdOrderByCreatedAtAsc(String requesterId);
 }
 
 
@@ -0,0 +1,31 @@
+package com.kevinmazali.portfolio.repository;
+
+import com.kevinmazali.portfolio.model.TokenUsage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface TokenUsageRepository extends JpaRepository<TokenUsage, String> {
+
+    List<TokenUsage> findByDay(LocalDate day);
+
+    /** Per-account totals since {@code from}, largest total first. */
+    @Query("SELECT t.account AS account, SUM(t.promptTokens) AS promptTokens, SUM(t.completionTokens) AS completionTokens, "
+        + "SUM(t.calls) AS calls FROM TokenUsage t WHERE t.day >= :from GROUP BY t.account "
+        + "ORDER BY SUM(t.promptTokens) + SUM(t.completionTokens) DESC")
+    List<AccountTotals> topConsumers(@Param("from") LocalDate from, Pageable pageable);
+
+    interface AccountTotals {
+        String getAccount();
+
+        Long getPromptTokens();
+
+        Long getCompletionTokens();
+
+        Long getCalls();
+    }
+}
@@ -0,0 +1,7 @@
+package com.kevinmazali.portfolio.repository;
+
+import com.kevinmazali.portfolio.model.TopQuestion;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface TopQuestionRepository extends JpaRepository<TopQuestion, Integer> {
+}
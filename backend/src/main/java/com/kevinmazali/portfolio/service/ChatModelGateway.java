@@ -0,0 +1,306 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.config.LlmProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Calls the chat model within a request's {@link Deadline}, with hedging and a circuit breaker.
+ *
+ * <p>Each call runs on a virtual thread while the caller waits at most until the deadline;
+ * a call that misses it fails with {@link DeadlineExceededException} and no longer holds
+ * the request thread. Calls are grouped by type ({@code translate}, {@code answer}). Once a
+ * type has enough samples, a call that has not returned after the configured percentile
+ * (p95 by default) of that type's recent latencies gets a duplicate, and whichever succeeds
+ * first is used. The slower one is left to finish, since the provider charges for it anyway,
+ * and its latency shows what the hedge saved.</p>
+ *
+ * <p>Failures and missed deadlines feed a {@link CircuitBreaker}; while it is open, calls
+ * fail immediately with {@link CircuitBreaker.OpenException} instead of queueing on a
+ * degraded provider. At most {@code max-concurrent-calls} calls are in flight, counting
+ * hedges and calls that are still running after their caller gave up; beyond that, calls
+ * are shed with {@link SaturatedException} and hedges are skipped.</p>
+ *
+ * <p>Metrics, tagged with {@code operation}: {@code rag.llm.calls} (tag {@code outcome}),
+ * {@code rag.llm.hedges} and {@code rag.llm.hedge.wins} (hedge rate = hedges / calls),
+ * {@code rag.llm.hedges.skipped} (hedges not sent because no permit was free),
+ * {@code rag.llm.latency} as seen by the caller, {@code rag.llm.hedge.saved} (how much
+ * sooner a winning hedge answered than the original call) and {@code rag.llm.hedge.delay}.
+ * {@code rag.llm.circuit.state} is 0 closed, 1 half open, 2 open.</p>
+ */
+@Slf4j
+@Service
+public class ChatModelGateway {
+
+  private final Function<Prompt, ChatResponse> model;
+  private final LlmProperties props;
+  private final MeterRegistry registry;
+  private final LongSupplier clock;
+  private final CircuitBreaker breaker;
+  private final Semaphore permits;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+
+  @Autowired
+  public ChatModelGateway(ChatModel chatModel, LlmProperties props, MeterRegistry registry) {
+    this(chatModel::call, props, registry, System::nanoTime);
+  }
+
+  ChatModelGateway(Function<Prompt, ChatResponse> model, LlmProperties props, MeterRegistry registry,
+                   LongSupplier clock) {
+    this.model = model;
+    this.props = props;
+    this.registry = registry;
+    this.clock = clock;
+    this.permits = new Semaphore(Math.max(1, props.getMaxConcurrentCalls()));
+    this.breaker = new CircuitBreaker(props.getBreakerWindow(), props.getBreakerMinimumCalls(),
+        props.getBreakerFailureRate(), props.getBreakerOpenDuration(), clock);
+    Gauge.builder("rag.llm.circuit.state", breaker, b -> switch (b.state()) {
+          case CLOSED -> 0;
+          case HALF_OPEN -> 1;
+          case OPEN -> 2;
+        })
+        .description("Chat model circuit breaker: 0 closed, 1 half open, 2 open")
+        .register(registry);
+  }
+
+  /**
+   * Calls the chat model with {@code prompt}, hedging and failing fast as described above.
+   *
+   * @param operation call type; latencies and hedge thresholds are tracked per type
+   * @throws DeadlineExceededException when no response arrives before the deadline
+   * @throws CircuitBreaker.OpenException while the provider is considered degraded
+   * @throws SaturatedException when too many calls are in flight
+   */
+  public ChatResponse call(String operation, Prompt prompt, Deadline deadline) {
+    return execute(operation, () -> model.apply(prompt), deadline);
+  }
+
+  /** Thrown when {@code max-concurrent-calls} chat model calls are already in flight. */
+  public static class SaturatedException extends RuntimeException {
+    public SaturatedException() {
+      super("Too many chat model calls in flight");
+    }
+  }
+
+  public CircuitBreaker.State circuitState() {
+    return breaker.state();
+  }
+
+  <T> T execute(String operation, Supplier<T> call, Deadline deadline) {
+    Operation op = operations.computeIfAbsent(operation, Operation::new);
+    deadline.check(operation);
+    // Taken before the breaker, so a shed call never claims the half-open probe
+    if (!permits.tryAcquire()) {
+      op.count("shed");
+      throw new SaturatedException();
+    }
+    try {
+      breaker.acquire();
+    } catch (CircuitBreaker.OpenException e) {
+      permits.release();
+      op.count("rejected");
+      throw e;
+    }
+    return execute(op, call, deadline);
+  }
+
+  /** Runs the call with the permit the caller took, plus a hedge if one is due and a permit is free. */
+  private <T> T execute(Operation op, Supplier<T> call, Deadline deadline) {
+    String operation = op.name;
+    long start = clock.getAsLong();
+    CompletableFuture<T> primary = attempt(op, call);
+    CompletableFuture<Attempt<T>> first = primary.thenApply(r -> new Attempt<>(r, false));
+    CompletableFuture<T> hedge = null;
+    long delay = op.hedgeDelayNanos();
+    try {
+      if (delay >= 0 && delay < deadline.remainingNanos() && breaker.state() == CircuitBreaker.State.CLOSED
+          && !completesWithin(primary, delay)) {
+        if (permits.tryAcquire()) {
+          hedge = attempt(op, call);
+          op.hedges.increment();
+          first = firstSuccessful(primary, hedge);
+        } else {
+          op.hedgesSkipped.increment();
+        }
+      }
+      Attempt<T> winner = first.get(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+      long latency = clock.getAsLong() - start;
+      breaker.onSuccess();
+      op.count("success");
+      op.latency.record(latency, TimeUnit.NANOSECONDS);
+      if (winner.hedge()) {
+        op.hedgeWins.increment();
+        // The original call is still running; when it finishes, its lateness is what the hedge saved
+        primary.thenRun(() -> op.saved.record(clock.getAsLong() - start - latency, TimeUnit.NANOSECONDS));
+      }
+      return winner.value();
+    } catch (TimeoutException e) {
+      breaker.onFailure();
+      op.count("timeout");
+      log.warn("Chat model call '{}' missed its deadline after {} ms{}", operation,
+          (clock.getAsLong() - start) / 1_000_000, hedge != null ? " (hedged)" : "");
+      throw new DeadlineExceededException(operation);
+    } catch (ExecutionException e) {
+      breaker.onFailure();
+      op.count("failure");
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException re) throw re;
+      if (cause instanceof Error err) throw err;
+      throw new IllegalStateException(cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DeadlineExceededException(operation);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Runs one call on a virtual thread. The caller has taken a permit for it, which is
+   * released when the model returns, so a call abandoned at its deadline or a losing
+   * hedge still counts as in flight until it actually finishes.
+   */
+  private <T> CompletableFuture<T> attempt(Operation op, Supplier<T> call) {
+    try {
+      return CompletableFuture.supplyAsync(() -> {
+        try {
+          long start = clock.getAsLong();
+          T value = call.get();
+          op.sample(clock.getAsLong() - start);
+          return value;
+        } finally {
+          permits.release();
+        }
+      }, executor);
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  private static boolean completesWithin(CompletableFuture<?> future, long nanos) throws InterruptedException {
+    try {
+      future.get(nanos, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      return false;
+    } catch (ExecutionException e) {
+      // Failed fast; the caller sees the failure without a hedge
+    }
+    return true;
+  }
+
+  /** Completes with the first successful attempt, or exceptionally when both fail. */
+  private static <T> CompletableFuture<Attempt<T>> firstSuccessful(CompletableFuture<T> primary,
+                                                                   CompletableFuture<T> hedge) {
+    CompletableFuture<Attempt<T>> first = new CompletableFuture<>();
+    AtomicInteger failures = new AtomicInteger();
+    primary.whenComplete((r, ex) -> {
+      if (ex == null) first.complete(new Attempt<>(r, false));
+      else if (failures.incrementAndGet() == 2) first.completeExceptionally(ex);
+    });
+    hedge.whenComplete((r, ex) -> {
+      if (ex == null) first.complete(new Attempt<>(r, true));
+      else if (failures.incrementAndGet() == 2) first.completeExceptionally(ex);
+    });
+    return first;
+  }
+
+  private record Attempt<T>(T value, boolean hedge) {}
+
+  /** Latency samples and meters for one call type. */
+  private final class Operation {
+    private final String name;
+    private final long[] latencies = new long[Math.max(1, props.getLatencyWindow())];
+    private int samples;
+    private final Counter hedges;
+    private final Counter hedgeWins;
+    private final Counter hedgesSkipped;
+    private final Timer latency;
+    private final Timer saved;
+
+    Operation(String name) {
+      this.name = name;
+      this.hedges = Counter.builder("rag.llm.hedges")
+          .description("Chat model calls that got a hedged duplicate")
+          .tag("operation", name)
+          .register(registry);
+      this.hedgeWins = Counter.builder("rag.llm.hedge.wins")
+          .description("Hedged duplicates that answered before the original call")
+          .tag("operation", name)
+          .register(registry);
+      this.hedgesSkipped = Counter.builder("rag.llm.hedges.skipped")
+          .description("Hedges not sent because max-concurrent-calls calls were in flight")
+          .tag("operation", name)
+          .register(registry);
+      this.latency = Timer.builder("rag.llm.latency")
+          .description("Chat model latency seen by the caller, after hedging")
+          .tag("operation", name)
+          .publishPercentiles(0.5, 0.95, 0.99)
+          .register(registry);
+      this.saved = Timer.builder("rag.llm.hedge.saved")
+          .description("How much sooner a winning hedge answered than the original call")
+          .tag("operation", name)
+          .register(registry);
+      Gauge.builder("rag.llm.hedge.delay", this, o -> Math.max(0, o.hedgeDelayNanos()) / 1e6)
+          .description("Current hedge threshold in milliseconds; 0 while hedging is off")
+          .tag("operation", name)
+          .register(registry);
+    }
+
+    void count(String outcome) {
+      Counter.builder("rag.llm.calls")
+          .tag("operation", name)
+          .tag("outcome", outcome)
+          .register(registry)
+          .increment();
+    }
+
+    /** Records the latency of one successful attempt. */
+    synchronized void sample(long nanos) {
+      latencies[samples % latencies.length] = nanos;
+      samples++;
+    }
+
+    /**
+     * The configured percentile of recent attempt latencies, at least the minimum delay,
+     * or -1 while hedging is disabled or there are too few samples.
+     */
+    synchronized long hedgeDelayNanos() {
+      int n = Math.min(samples, latencies.length);
+      if (!props.isHedgeEnabled() || n == 0 || samples < props.getHedgeMinSamples()) return -1;
+      long[] sorted = Arrays.copyOf(latencies, n);
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(props.getHedgePercentile() * n) - 1;
+      long percentile = sorted[Math.max(0, Math.min(n - 1, index))];
+      return Math.max(percentile, props.getHedgeMinDelay().toNanos());
+    }
+  }
+}
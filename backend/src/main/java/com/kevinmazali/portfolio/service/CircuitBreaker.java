@@ -0,0 +1,122 @@
+package com.kevinmazali.portfolio.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Count-based circuit breaker for calls to the chat model provider.
+ *
+ * <p>While {@code CLOSED} the outcome of the last {@code windowSize} calls is kept. Once
+ * at least {@code minimumCalls} have been seen and the share of failures (errors and
+ * missed deadlines) reaches {@code failureRateThreshold}, the breaker opens and calls
+ * fail immediately. After {@code openDuration} a single probe call is let through
+ * ({@code HALF_OPEN}): success closes the breaker, failure opens it again.</p>
+ */
+public final class CircuitBreaker {
+
+  public enum State { CLOSED, OPEN, HALF_OPEN }
+
+  /** Thrown instead of calling the provider while the breaker is open. */
+  public static class OpenException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public OpenException(Duration retryAfter) {
+      super("Chat model provider is degraded; retry in " + retryAfter.toSeconds() + "s");
+      this.retryAfter = retryAfter;
+    }
+
+    public Duration retryAfter() {
+      return retryAfter;
+    }
+  }
+
+  private final boolean[] failures;
+  private final int minimumCalls;
+  private final double failureRateThreshold;
+  private final long openNanos;
+  private final LongSupplier clock;
+
+  private State state = State.CLOSED;
+  private int recorded;
+  private int next;
+  private int failed;
+  private long openedAt;
+  private boolean probing;
+
+  public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, Duration openDuration,
+                        LongSupplier clock) {
+    this.failures = new boolean[Math.max(1, windowSize)];
+    this.minimumCalls = Math.max(1, Math.min(minimumCalls, failures.length));
+    this.failureRateThreshold = failureRateThreshold;
+    this.openNanos = openDuration.toNanos();
+    this.clock = clock;
+  }
+
+  /**
+   * Admits a call, moving an open breaker whose wait is over to {@code HALF_OPEN}.
+   *
+   * @throws OpenException while the breaker is open or a probe is already in flight
+   */
+  public synchronized void acquire() {
+    if (state == State.OPEN) {
+      long waited = clock.getAsLong() - openedAt;
+      if (waited < openNanos) throw new OpenException(Duration.ofNanos(openNanos - waited));
+      state = State.HALF_OPEN;
+      probing = false;
+    }
+    if (state == State.HALF_OPEN) {
+      if (probing) throw new OpenException(Duration.ZERO);
+      probing = true;
+    }
+  }
+
+  public synchronized void onSuccess() {
+    if (state == State.HALF_OPEN) {
+      reset();
+      state = State.CLOSED;
+      return;
+    }
+    record(false);
+  }
+
+  public synchronized void onFailure() {
+    if (state == State.HALF_OPEN) {
+      open();
+      return;
+    }
+    record(true);
+    if (state == State.CLOSED && recorded >= minimumCalls && (double) failed / recorded >= failureRateThreshold) {
+      open();
+    }
+  }
+
+  public synchronized State state() {
+    return state;
+  }
+
+  private void record(boolean failure) {
+    if (recorded == failures.length) {
+      if (failures[next]) failed--;
+    } else {
+      recorded++;
+    }
+    failures[next] = failure;
+    if (failure) failed++;
+    next = (next + 1) % failures.length;
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openedAt = clock.getAsLong();
+    probing = false;
+    reset();
+  }
+
+  private void reset() {
+    recorded = 0;
+    next = 0;
+    failed = 0;
+    Arrays.fill(failures, false);
+  }
+}
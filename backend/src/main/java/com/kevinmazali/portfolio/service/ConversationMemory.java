@@ -0,0 +1,299 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.config.ConversationMemoryProperties;
+import com.kevinmazali.portfolio.model.RequestLog;
+import com.kevinmazali.portfolio.repository.RequestLogRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Bounded multi-turn memory per chat id.
+ *
+ * <p>The most recent turns are kept verbatim. Once there are more than
+ * {@code recentTurns} of them or they exceed their token budget, the oldest are folded into
+ * a rolling summary by the chat model, in the background, and the summary is capped at its
+ * own budget. What a prompt gets from memory is therefore bounded by
+ * {@code summaryTokenBudget + recentTokenBudget}, however long the chat runs.</p>
+ *
+ * <p>Chats live in an LRU map capped at {@code maxChats}. A chat that is not in memory (after
+ * eviction or a restart) is recovered from its latest request_log rows. Its summary is
+ * rebuilt from those rows only, not from the entire history.</p>
+ */
+@Slf4j
+@Component
+public class ConversationMemory {
+
+  private static final int CHARS_PER_TOKEN = 4;
+  private static final String QUESTION_PATH = "/ask";
+  private static final String ANSWER_PATH = "/ask:response";
+
+  private final RequestLogRepository requestLogRepository;
+  private final ConversationMemoryProperties props;
+  private final Function<String, String> summarizer;
+  private final Executor compactor;
+  private final ExecutorService ownedExecutor;
+  private final Map<String, ChatState> chats;
+
+  @Autowired
+  public ConversationMemory(ChatModel chatModel, RequestLogRepository requestLogRepository,
+                            ConversationMemoryProperties props) {
+    this(requestLogRepository, props, chatModel::call, Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "conversation-summary");
+      t.setDaemon(true);
+      return t;
+    }));
+  }
+
+  ConversationMemory(RequestLogRepository requestLogRepository, ConversationMemoryProperties props,
+                     Function<String, String> summarizer, Executor compactor) {
+    this.requestLogRepository = requestLogRepository;
+    this.props = props;
+    this.summarizer = summarizer;
+    this.compactor = compactor;
+    this.ownedExecutor = compactor instanceof ExecutorService es ? es : null;
+    int maxChats = Math.max(1, props.getMaxChats());
+    this.chats = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ChatState> eldest) {
+        return size() > maxChats;
+      }
+    };
+  }
+
+  /**
+   * Returns the chat's history rendered for a prompt, recovering it from request_log when
+   * it is not in memory. A {@code null} chat id has no history.
+   */
+  public History history(String chatId) {
+    if (chatId == null || chatId.isBlank()) return History.EMPTY;
+    ChatState s = state(chatId);
+    synchronized (s) {
+      if (s.turns.isEmpty() && s.summary.isEmpty()) return History.EMPTY;
+      return new History(render(s), s.version);
+    }
+  }
+
+  /** Records a completed turn and compacts in the background when over budget. */
+  public void append(String chatId, String question, String answer) {
+    if (chatId == null || chatId.isBlank() || question == null || answer == null) return;
+    ChatState s = state(chatId);
+    boolean compact;
+    synchronized (s) {
+      s.turns.addLast(new Turn(question, answer));
+      s.version++;
+      compact = claimCompaction(s);
+    }
+    if (compact) scheduleCompaction(s);
+  }
+
+  private ChatState state(String chatId) {
+    synchronized (chats) {
+      ChatState s = chats.get(chatId);
+      if (s != null) return s;
+    }
+    ChatState recovered = recover(chatId);
+    ChatState s;
+    synchronized (chats) {
+      s = chats.putIfAbsent(chatId, recovered);
+      if (s == null) s = recovered;
+    }
+    if (s == recovered) {
+      boolean compact;
+      synchronized (s) {
+        compact = claimCompaction(s);
+      }
+      if (compact) scheduleCompaction(s);
+    }
+    return s;
+  }
+
+  /** Rebuilds turns from the chat's latest question/answer rows. */
+  private ChatState recover(String chatId) {
+    ChatState s = new ChatState();
+    try {
+      int rows = Math.max(2, props.getRecentTurns()) * 4;
+      List<RequestLog> latest = new ArrayList<>(
+          requestLogRepository.findByRequesterIdOrderByIdDesc(chatId, PageRequest.of(0, rows)));
+      String pendingQuestion = null;
+      for (int i = latest.size() - 1; i >= 0; i--) {
+        RequestLog rl = latest.get(i);
+        if (QUESTION_PATH.equals(rl.getPath())) {
+          pendingQuestion = rl.getPayload();
+        } else if (ANSWER_PATH.equals(rl.getPath()) && pendingQuestion != null) {
+          s.turns.addLast(new Turn(pendingQuestion, rl.getPayload()));
+          pendingQuestion = null;
+        }
+      }
+      if (!s.turns.isEmpty()) log.debug("Recovered {} turn(s) for chat {}", s.turns.size(), chatId);
+    } catch (RuntimeException e) {
+      log.warn("Could not recover conversation memory for chat {}: {}", chatId, e.getMessage());
+    }
+    return s;
+  }
+
+  private boolean claimCompaction(ChatState s) {
+    if (s.compacting || !overBudget(s.turns.size(), tokens(s.turns))) return false;
+    s.compacting = true;
+    return true;
+  }
+
+  private void scheduleCompaction(ChatState s) {
+    try {
+      compactor.execute(() -> compact(s));
+    } catch (RuntimeException e) {
+      synchronized (s) {
+        s.compacting = false;
+      }
+      log.warn("Could not schedule conversation compaction: {}", e.getMessage());
+    }
+  }
+
+  /** Folds the oldest turns into the summary until the verbatim window fits again. */
+  void compact(ChatState s) {
+    List<Turn> fold = new ArrayList<>();
+    String summary;
+    synchronized (s) {
+      int remaining = s.turns.size();
+      int remainingTokens = tokens(s.turns);
+      Iterator<Turn> it = s.turns.iterator();
+      while (remaining > 1 && overBudget(remaining, remainingTokens) && it.hasNext()) {
+        Turn t = it.next();
+        fold.add(t);
+        remaining--;
+        remainingTokens -= t.tokens();
+      }
+      summary = s.summary;
+    }
+
+    String updated = null;
+    if (!fold.isEmpty()) {
+      try {
+        updated = summarizer.apply(summaryPrompt(summary, fold));
+      } catch (RuntimeException e) {
+        log.warn("Summarization failed, falling back to an extractive summary: {}", e.getMessage());
+      }
+      if (updated == null || updated.isBlank()) updated = extractiveSummary(summary, fold);
+      updated = keepTail(updated.strip(), props.getSummaryTokenBudget() * CHARS_PER_TOKEN);
+    }
+
+    boolean again;
+    synchronized (s) {
+      // Only this task removes turns, and appends go to the tail, so the head is still `fold`
+      for (int i = 0; i < fold.size(); i++) s.turns.pollFirst();
+      if (updated != null) {
+        s.summary = updated;
+        s.version++;
+      }
+      s.compacting = false;
+      again = !fold.isEmpty() && claimCompaction(s);
+    }
+    if (again) scheduleCompaction(s);
+  }
+
+  private boolean overBudget(int turns, int tokens) {
+    return turns > props.getRecentTurns() || (turns > 1 && tokens > props.getRecentTokenBudget());
+  }
+
+  private String render(ChatState s) {
+    int budget = props.getRecentTokenBudget() * CHARS_PER_TOKEN;
+    Deque<String> recent = new ArrayDeque<>();
+    Iterator<Turn> newestFirst = s.turns.descendingIterator();
+    while (newestFirst.hasNext() && budget > 0) {
+      Turn t = newestFirst.next();
+      String text = "Visitor: " + t.question() + "\nAssistant: " + t.answer();
+      if (text.length() > budget) {
+        if (!recent.isEmpty()) break;
+        text = text.substring(0, budget) + "…";
+      }
+      recent.addFirst(text);
+      budget -= text.length();
+    }
+    StringBuilder sb = new StringBuilder();
+    if (!s.summary.isEmpty()) sb.append("Summary of earlier turns: ").append(s.summary).append("\n\n");
+    sb.append(String.join("\n\n", recent));
+    return sb.toString().strip();
+  }
+
+  private String summaryPrompt(String summary, List<Turn> fold) {
+    int words = Math.max(20, props.getSummaryTokenBudget() * 3 / 4);
+    StringBuilder sb = new StringBuilder()
+        .append("Update the running summary of a chat between a visitor and an assistant that answers ")
+        .append("questions about Kevin. Keep the topics, projects, courses and names that were discussed ")
+        .append("and anything the visitor may refer back to. Use at most ").append(words)
+        .append(" words and reply with the summary only.\n\nCurrent summary: ")
+        .append(summary.isEmpty() ? "(none)" : summary)
+        .append("\n\nNew turns:\n");
+    for (Turn t : fold) {
+      sb.append("Visitor: ").append(t.question()).append("\nAssistant: ").append(t.answer()).append("\n");
+    }
+    return sb.toString();
+  }
+
+  private static String extractiveSummary(String summary, List<Turn> fold) {
+    StringBuilder sb = new StringBuilder(summary);
+    for (Turn t : fold) {
+      if (!sb.isEmpty()) sb.append(' ');
+      sb.append("Visitor asked: ").append(t.question().strip());
+    }
+    return sb.toString();
+  }
+
+  /** Keeps the newest end of the text when it exceeds {@code max} characters. */
+  private static String keepTail(String text, int max) {
+    return text.length() <= max ? text : "…" + text.substring(text.length() - max + 1);
+  }
+
+  private static int tokens(Deque<Turn> turns) {
+    int sum = 0;
+    for (Turn t : turns) sum += t.tokens();
+    return sum;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (ownedExecutor != null) ownedExecutor.shutdownNow();
+  }
+
+  /**
+   * Conversation context for a prompt.
+   *
+   * @param text summary and recent turns, within the configured budgets
+   * @param version changes whenever the chat's memory changes
+   */
+  public record History(String text, long version) {
+    static final History EMPTY = new History("", 0);
+
+    public boolean isEmpty() {
+      return text.isEmpty();
+    }
+  }
+
+  record Turn(String question, String answer) {
+    int tokens() {
+      return (question.length() + answer.length()) / CHARS_PER_TOKEN + 1;
+    }
+  }
+
+  static final class ChatState {
+    private String summary = "";
+    private final Deque<Turn> turns = new ArrayDeque<>();
+    private long version;
+    private boolean compacting;
+  }
+}
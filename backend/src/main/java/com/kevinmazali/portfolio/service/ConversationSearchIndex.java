@@ -0,0 +1,315 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.model.RequestLog;
+import com.kevinmazali.portfolio.repository.RequestLogRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-process inverted index over request_log payloads for conversation search.
+ *
+ * <p>Payloads are stored compressed, so a MySQL FULLTEXT index cannot be used. This index
+ * keeps term postings and a few bytes of row metadata per entry; the payload text itself is
+ * not retained. It is built once in the background by streaming the table, then kept current
+ * by {@link RequestLogService#save} and trimmed by the retention job. Archived months are
+ * not searchable.</p>
+ *
+ * <p>Entries are kept in id order, so descending ordinals are newest first and a page is
+ * produced by walking the intersection of the term postings backwards. Concurrent requests
+ * commit out of id order, so a row that arrives after one with a higher id is inserted at
+ * its position and the few newer entries move up one ordinal.</p>
+ */
+@Slf4j
+@Component
+public class ConversationSearchIndex {
+
+  private final RequestLogRepository requestLogRepository;
+  private final TransactionTemplate readOnlyTx;
+  private final EntityManager entityManager;
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "conversation-index");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  /** term -> ascending ordinals */
+  private final Map<String, Postings> postings = new HashMap<>();
+  private long[] ids = new long[1024];
+  private long[] createdAt = new long[1024];
+  private String[] requesters = new String[1024];
+  private final BitSet removed = new BitSet();
+  private int size;
+  /** Rows saved while the initial build is running; appended once it completes. */
+  private final List<RequestLog> pending = new ArrayList<>();
+  private volatile boolean ready;
+
+  public ConversationSearchIndex(RequestLogRepository requestLogRepository, PlatformTransactionManager transactionManager,
+                                 EntityManager entityManager) {
+    this.requestLogRepository = requestLogRepository;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.entityManager = entityManager;
+  }
+
+  @EventListener(ApplicationStartedEvent.class)
+  public void buildInBackground() {
+    executor.submit(() -> {
+      try {
+        build();
+      } catch (RuntimeException e) {
+        log.error("Could not build conversation search index", e);
+      }
+    });
+  }
+
+  void build() {
+    long start = System.nanoTime();
+    readOnlyTx.executeWithoutResult(status -> {
+      try (Stream<RequestLog> rows = requestLogRepository.streamAllByOrderByIdAsc()) {
+        rows.forEach(rl -> {
+          entityManager.detach(rl);
+          lock.writeLock().lock();
+          try {
+            append(rl);
+          } finally {
+            lock.writeLock().unlock();
+          }
+        });
+      }
+    });
+    markReady();
+    log.info("Conversation search index built: {} entries, {} terms in {} ms", size, postings.size(),
+        (System.nanoTime() - start) / 1_000_000);
+  }
+
+  /** Appends rows saved during the build and starts serving searches. */
+  void markReady() {
+    lock.writeLock().lock();
+    try {
+      pending.sort(Comparator.comparing(RequestLog::getId));
+      for (RequestLog rl : pending) insert(rl);
+      pending.clear();
+      ready = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public boolean isReady() {
+    return ready;
+  }
+
+  /** Indexes a newly committed row. */
+  public void add(RequestLog rl) {
+    if (rl.getId() == null) return;
+    lock.writeLock().lock();
+    try {
+      if (!ready) {
+        pending.add(rl);
+      } else {
+        insert(rl);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Hides entries created before {@code cutoff}, e.g. after their partition was archived. */
+  public void removeBefore(OffsetDateTime cutoff) {
+    long millis = cutoff.toInstant().toEpochMilli();
+    lock.writeLock().lock();
+    try {
+      for (int i = 0; i < size; i++) {
+        if (createdAt[i] < millis) removed.set(i);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Finds rows containing every term of {@code query}, newest first.
+   *
+   * @param requesterId only rows from this requester, or {@code null} for all
+   * @param from inclusive lower bound on creation time, or {@code null}
+   * @param to exclusive upper bound on creation time, or {@code null}
+   * @param page zero-based page number
+   * @param pageSize rows per page
+   */
+  public Result search(String query, @Nullable String requesterId, @Nullable OffsetDateTime from,
+                       @Nullable OffsetDateTime to, int page, int pageSize) {
+    Set<String> terms = new LinkedHashSet<>(tokenize(query));
+    if (terms.isEmpty() || pageSize <= 0 || page < 0) return new Result(0, List.of());
+    long fromMillis = from == null ? Long.MIN_VALUE : from.toInstant().toEpochMilli();
+    long toMillis = to == null ? Long.MAX_VALUE : to.toInstant().toEpochMilli();
+    boolean anyRequester = requesterId == null || requesterId.isBlank();
+
+    lock.readLock().lock();
+    try {
+      List<Postings> lists = new ArrayList<>(terms.size());
+      for (String term : terms) {
+        Postings p = postings.get(term);
+        if (p == null) return new Result(0, List.of());
+        lists.add(p);
+      }
+      lists.sort(Comparator.comparingInt(Postings::size));
+      Postings driver = lists.getFirst();
+
+      long skip = (long) page * pageSize;
+      long total = 0;
+      List<Long> hits = new ArrayList<>(pageSize);
+      for (int i = driver.size - 1; i >= 0; i--) {
+        int ordinal = driver.ordinals[i];
+        if (removed.get(ordinal)) continue;
+        if (createdAt[ordinal] < fromMillis || createdAt[ordinal] >= toMillis) continue;
+        if (!anyRequester && !requesterId.equals(requesters[ordinal])) continue;
+        if (!containsAll(lists, ordinal)) continue;
+        if (total >= skip && hits.size() < pageSize) hits.add(ids[ordinal]);
+        total++;
+      }
+      return new Result(total, hits);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Number of searchable entries. */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return size - removed.cardinality();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private static boolean containsAll(List<Postings> lists, int ordinal) {
+    for (int l = 1; l < lists.size(); l++) {
+      Postings p = lists.get(l);
+      if (Arrays.binarySearch(p.ordinals, 0, p.size, ordinal) < 0) return false;
+    }
+    return true;
+  }
+
+  /** Adds a row at the ordinal its id sorts to; ids already indexed are ignored. */
+  private void insert(RequestLog rl) {
+    long id = rl.getId();
+    if (size == 0 || id > ids[size - 1]) {
+      append(rl);
+      return;
+    }
+    int found = Arrays.binarySearch(ids, 0, size, id);
+    if (found >= 0) return;
+    int ordinal = -found - 1;
+    grow();
+    System.arraycopy(ids, ordinal, ids, ordinal + 1, size - ordinal);
+    System.arraycopy(createdAt, ordinal, createdAt, ordinal + 1, size - ordinal);
+    System.arraycopy(requesters, ordinal, requesters, ordinal + 1, size - ordinal);
+    for (int i = size - 1; i >= ordinal; i--) removed.set(i + 1, removed.get(i));
+    removed.clear(ordinal);
+    size++;
+    for (Postings p : postings.values()) p.shiftFrom(ordinal);
+    set(ordinal, rl);
+  }
+
+  private void append(RequestLog rl) {
+    grow();
+    set(size++, rl);
+  }
+
+  private void grow() {
+    if (size == ids.length) {
+      int capacity = size * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      createdAt = Arrays.copyOf(createdAt, capacity);
+      requesters = Arrays.copyOf(requesters, capacity);
+    }
+  }
+
+  private void set(int ordinal, RequestLog rl) {
+    ids[ordinal] = rl.getId();
+    createdAt[ordinal] = rl.getCreatedAt().toInstant().toEpochMilli();
+    requesters[ordinal] = rl.getRequesterId() == null ? null : rl.getRequesterId().intern();
+    for (String term : new LinkedHashSet<>(tokenize(rl.getPayload()))) {
+      postings.computeIfAbsent(term, k -> new Postings()).add(ordinal);
+    }
+  }
+
+  /** Same rules as the lexical chunk index: lower-case runs of letters/digits, 2+ chars. */
+  static List<String> tokenize(@Nullable String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null || text.isEmpty()) return tokens;
+    String lower = text.toLowerCase(Locale.ROOT);
+    int start = -1;
+    for (int i = 0; i <= lower.length(); i++) {
+      boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+      if (word && start < 0) {
+        start = i;
+      } else if (!word && start >= 0) {
+        if (i - start > 1) tokens.add(lower.substring(start, i));
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * @param total number of matching rows across all pages
+   * @param ids request_log ids on the requested page, newest first
+   */
+  public record Result(long total, List<Long> ids) {}
+
+  private static final class Postings {
+    private int[] ordinals = new int[2];
+    private int size;
+
+    /** Adds {@code ordinal}, keeping the list ascending; it is usually the largest. */
+    void add(int ordinal) {
+      if (size == ordinals.length) ordinals = Arrays.copyOf(ordinals, size * 2);
+      int at = size;
+      while (at > 0 && ordinals[at - 1] > ordinal) at--;
+      System.arraycopy(ordinals, at, ordinals, at + 1, size - at);
+      ordinals[at] = ordinal;
+      size++;
+    }
+
+    /** Moves the ordinals from {@code ordinal} up by one, making room for an inserted entry. */
+    void shiftFrom(int ordinal) {
+      for (int i = size - 1; i >= 0 && ordinals[i] >= ordinal; i--) ordinals[i]++;
+    }
+
+    int size() {
+      return size;
+    }
+  }
+}
@@ -1,31 +1,66 @@
 package com.kevinmazali.portfolio.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kevinmazali.portfolio.model.RequestLog;
 import com.kevinmazali.portfolio.repository.RequestLogRepository;
 import com.kevinmazali.portfolio.model.dto.ConversationDtos;
+import jakarta.persistence.EntityManager;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ConversationService {
 
     private final RequestLogRepository requestLogRepository;
+    private final RequestLogArchive requestLogArchive;
+    private final ConversationSearchIndex searchIndex;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+    private final EntityManager entityManager;
 
     // Default idle gap to split conversations
     private static final Duration DEFAULT_GAP = Duration.ofMinutes(20);
 
-    public ConversationService(RequestLogRepository requestLogRepository) {
+    public ConversationService(RequestLogRepository requestLogRepository, RequestLogArchive requestLogArchive,
+                               ConversationSearchIndex searchIndex, ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager, EntityManager entityManager) {
         this.requestLogRepository = requestLogRepository;
+        this.requestLogArchive = requestLogArchive;
+        this.searchIndex = searchIndex;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.entityManager = entityManager;
     }
 
     public List<ConversationDtos.ConversationSummary> listConversations(Duration gap, String requesterId) {
+        return listConversations(gap, requesterId, false);
+    }
+
+    /**
+     * @param includeArchived also read months that retention has moved to the archive
+     */
+    public List<ConversationDtos.ConversationSummary> listConversations(Duration gap, String requesterId,
+                                                                        boolean includeArchived) {
         Duration splitGap = Objects.requireNonNullElse(gap, DEFAULT_GAP);
-        List<List<RequestLog>> grouped = groupByGap(splitGap, requesterId);
+        List<List<RequestLog>> grouped = groupByGap(splitGap, requesterId, includeArchived);
         List<ConversationDtos.ConversationSummary> summaries = new ArrayList<>();
         long idx = 1;
         for (List<RequestLog> group : grouped) {
@@ -39,8 +74,17 @@ public class ConversationService {
     }
 
     public ConversationDtos.Conversation getConversation(long conversationId, Duration gap, String requesterId) {
+        return getConversation(conversationId, gap, requesterId, false);
+    }
+
+    /**
+     * Conversation ids are positions in the grouped history, so ids only match between
+     * calls made with the same {@code includeArchived} value.
+     */
+    public ConversationDtos.Conversation getConversation(long conversationId, Duration gap, String requesterId,
+                                                         boolean includeArchived) {
         Duration splitGap = Objects.requireNonNullElse(gap, DEFAULT_GAP);
-        List<List<RequestLog>> grouped = groupByGap(splitGap, requesterId);
+        List<List<RequestLog>> grouped = groupByGap(splitGap, requesterId, includeArchived);
         if (conversationId < 1 || conversationId > grouped.size()) {
             return null;
         }
@@ -59,10 +103,76 @@ public class ConversationService {
         return new ConversationDtos.Conversation(conversationId, start, end, messages);
     }
 
-    private List<List<RequestLog>> groupByGap(Duration gap, String requesterId) {
-        List<RequestLog> all = requesterId == null || requesterId.isBlank()
+    /**
+     * Writes every conversation to {@code out} as NDJSON, one conversation per line with
+     * the same ids as {@link #listConversations}. Archived months are read file by file and
+     * live rows through a forward-only database cursor; rows are grouped by gap as they
+     * arrive and each message is written as soon as it is read, so memory use does not
+     * grow with the history or with the length of a conversation. {@code out} is flushed,
+     * not closed.
+     *
+     * @return the number of conversations written
+     */
+    public long export(OutputStream out, Duration gap, String requesterId, boolean includeArchived) throws IOException {
+        Duration splitGap = Objects.requireNonNullElse(gap, DEFAULT_GAP);
+        try (ConversationWriter writer = new ConversationWriter(objectMapper, out, splitGap)) {
+            if (includeArchived) {
+                // Archived months are strictly older than any live partition
+                for (YearMonth month : requestLogArchive.months()) {
+                    try (Stream<RequestLog> rows = requestLogArchive.stream(month, requesterId)) {
+                        writer.writeAll(rows);
+                    }
+                }
+            }
+            readOnlyTx.executeWithoutResult(status -> {
+                try (Stream<RequestLog> rows = requesterId == null || requesterId.isBlank()
+                    ? requestLogRepository.streamAllByOrderByCreatedAtAsc()
+                    : requestLogRepository.streamByRequesterIdOrderByCreatedAtAsc(requesterId)) {
+                    writer.writeAll(rows.peek(entityManager::detach));
+                }
+            });
+            writer.finish();
+            return writer.conversations;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Full-text search over live question and answer messages, newest first. Only the rows
+     * on the requested page are loaded from the database.
+     */
+    public ConversationDtos.SearchPage search(String query, String requesterId, OffsetDateTime from, OffsetDateTime to,
+                                              int page, int size) {
+        ConversationSearchIndex.Result result = searchIndex.search(query, requesterId, from, to, page, size);
+        Map<Long, RequestLog> rows = requestLogRepository.findAllById(result.ids()).stream()
+            .collect(Collectors.toMap(RequestLog::getId, Function.identity()));
+        List<String> terms = ConversationSearchIndex.tokenize(query);
+        List<ConversationDtos.SearchHit> hits = new ArrayList<>(result.ids().size());
+        for (Long id : result.ids()) {
+            RequestLog rl = rows.get(id);
+            if (rl == null) continue; // archived or deleted since the search
+            hits.add(new ConversationDtos.SearchHit(
+                rl.getId(),
+                roleFromPath(rl.getPath()),
+                rl.getRequesterId(),
+                rl.getCreatedAt(),
+                snippet(rl.getPayload(), terms, 160)
+            ));
+        }
+        return new ConversationDtos.SearchPage(query, page, size, result.total(), hits);
+    }
+
+    private List<List<RequestLog>> groupByGap(Duration gap, String requesterId, boolean includeArchived) {
+        List<RequestLog> live = requesterId == null || requesterId.isBlank()
             ? requestLogRepository.findAllByOrderByCreatedAtAsc()
             : requestLogRepository.findByRequesterIdOrderByCreatedAtAsc(requesterId);
+        List<RequestLog> all = live;
+        if (includeArchived) {
+            // Archived months are strictly older than any live partition
+            all = new ArrayList<>(requestLogArchive.read(null, null, requesterId));
+            all.addAll(live);
+        }
         List<List<RequestLog>> groups = new ArrayList<>();
         List<RequestLog> current = new ArrayList<>();
         OffsetDateTime prev = null;
@@ -84,6 +194,76 @@ public class ConversationService {
         return groups;
     }
 
+    /**
+     * Streams conversations as NDJSON, splitting on the same idle gap as {@link #groupByGap}.
+     * A conversation's object is opened at its first message and closed when the gap is
+     * exceeded, so only the current conversation's boundaries are kept.
+     */
+    private static final class ConversationWriter implements AutoCloseable {
+
+        private final JsonGenerator json;
+        private final Duration gap;
+        private long conversations;
+        private int messages;
+        private OffsetDateTime prev;
+
+        ConversationWriter(ObjectMapper objectMapper, OutputStream out, Duration gap) throws IOException {
+            this.json = objectMapper.createGenerator(out);
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // A failed export must end in an incomplete line, not in a conversation that looks whole
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            // Lines are separated explicitly below
+            this.json.setRootValueSeparator(null);
+            this.gap = gap;
+        }
+
+        void writeAll(Stream<RequestLog> rows) {
+            rows.forEach(rl -> {
+                try {
+                    write(rl);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+
+        void write(RequestLog rl) throws IOException {
+            if (prev != null && Duration.between(prev, rl.getCreatedAt()).compareTo(gap) > 0) {
+                finish();
+            }
+            if (messages == 0) {
+                json.writeStartObject();
+                json.writeNumberField("id", ++conversations);
+                json.writeObjectField("startedAt", rl.getCreatedAt());
+                json.writeArrayFieldStart("messages");
+            }
+            json.writeObject(new ConversationDtos.Message(
+                rl.getId(),
+                roleFromPath(rl.getPath()),
+                rl.getPayload(),
+                rl.getCreatedAt()
+            ));
+            messages++;
+            prev = rl.getCreatedAt();
+        }
+
+        /** Closes the open conversation, if any, ending its line. */
+        void finish() throws IOException {
+            if (messages == 0) return;
+            json.writeEndArray();
+            json.writeObjectField("endedAt", prev);
+            json.writeNumberField("messageCount", messages);
+            json.writeEndObject();
+            json.writeRaw('\n');
+            messages = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            json.close();
+        }
+    }
+
     private static String roleFromPath(String path) {
         if (path == null) return "system";
         if (path.endsWith(":response")) return "assistant";
@@ -100,6 +280,21 @@ public class ConversationService {
         return truncate(group.get(0).getPayload(), 140);
     }
 
+    /** Window of the text around the first matched term. */
+    private static String snippet(String text, List<String> terms, int max) {
+        if (text == null) return "";
+        String lower = text.toLowerCase(Locale.ROOT);
+        int at = -1;
+        for (String term : terms) {
+            int i = lower.indexOf(term);
+            if (i >= 0 && (at < 0 || i < at)) at = i;
+        }
+        if (at < 0 || text.length() <= max) return truncate(text, max);
+        int start = Math.max(0, Math.min(at - max / 3, text.length() - max));
+        String window = text.substring(start, Math.min(text.length(), start + max));
+        return (start > 0 ? "…" : "") + window + (start + max < text.length() ? "…" : "");
+    }
+
     private static String truncate(String s, int max) {
         if (s == null) return "";
         return s.length() <= max ? s : s.substring(0, max - 1) + "…";
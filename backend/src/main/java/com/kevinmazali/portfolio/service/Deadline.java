@@ -0,0 +1,55 @@
+package com.kevinmazali.portfolio.service;
+
+import java.time.Duration;
+
+/**
+ * Point in time by which a request must be answered, passed down from the controller
+ * through translation, retrieval and generation so every stage works with the time that
+ * is actually left.
+ */
+public final class Deadline {
+
+  private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+  /** {@link System#nanoTime()} at the deadline, or {@code Long.MAX_VALUE} for none. */
+  private final long atNanos;
+
+  private Deadline(long atNanos) {
+    this.atNanos = atNanos;
+  }
+
+  /** A deadline {@code timeout} from now. */
+  public static Deadline after(Duration timeout) {
+    long nanos = timeout.toNanos();
+    long now = System.nanoTime();
+    return nanos >= Long.MAX_VALUE - now ? NONE : new Deadline(now + nanos);
+  }
+
+  /** No deadline: callers wait as long as the provider takes. */
+  public static Deadline none() {
+    return NONE;
+  }
+
+  /** Nanoseconds left, 0 once expired, {@code Long.MAX_VALUE} without a deadline. */
+  public long remainingNanos() {
+    if (atNanos == Long.MAX_VALUE) return Long.MAX_VALUE;
+    return Math.max(0, atNanos - System.nanoTime());
+  }
+
+  public boolean isExpired() {
+    return remainingNanos() == 0;
+  }
+
+  /** The earlier of this deadline and {@code cap} from now; used to bound optional stages. */
+  public Deadline within(Duration cap) {
+    Deadline capped = after(cap);
+    return capped.remainingNanos() < remainingNanos() ? capped : this;
+  }
+
+  /**
+   * @throws DeadlineExceededException when the deadline has passed before {@code stage}
+   */
+  public void check(String stage) {
+    if (isExpired()) throw new DeadlineExceededException(stage);
+  }
+}
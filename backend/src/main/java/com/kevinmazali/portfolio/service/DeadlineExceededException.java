@@ -0,0 +1,11 @@
+package com.kevinmazali.portfolio.service;
+
+/**
+ * Thrown when a request's {@link Deadline} passes before a stage completes.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+  public DeadlineExceededException(String stage) {
+    super("Deadline exceeded during " + stage);
+  }
+}
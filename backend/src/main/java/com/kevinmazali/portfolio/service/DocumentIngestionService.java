@@ -0,0 +1,146 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.vectorstore.DocumentIngestionPipeline;
+import com.kevinmazali.portfolio.vectorstore.ParseQuarantine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accepts documents uploaded at runtime and ingests them asynchronously into the
+ * serving vector store, tracking each upload as a job that can be polled.
+ *
+ * <p>Uploads are moved from the servlet container's temporary file into the
+ * {@code uploads/} folder next to the vector store without being read into memory,
+ * then run through the same Tika, splitter and encryption pipeline as the initial build.
+ * Documents that fail to parse are quarantined by the pipeline and listed here.</p>
+ */
+@Slf4j
+@Service
+public class DocumentIngestionService {
+
+    /** Lifecycle of an ingestion job. */
+    public enum JobState { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    /** Pollable view of an ingestion job. */
+    public record Job(
+        String id,
+        String filename,
+        JobState state,
+        Integer chunks,
+        String error,
+        OffsetDateTime createdAt,
+        OffsetDateTime finishedAt
+    ) {}
+
+    private static final int MAX_TRACKED_JOBS = 200;
+
+    private final VectorStoreManager vectorStoreManager;
+    private final DocumentIngestionPipeline pipeline;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public DocumentIngestionService(VectorStoreManager vectorStoreManager, DocumentIngestionPipeline pipeline) {
+        this.vectorStoreManager = vectorStoreManager;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Stores the upload on disk and queues it for ingestion.
+     *
+     * @param file the uploaded document
+     * @return the queued job
+     * @throws IllegalArgumentException when the file type is not supported
+     */
+    public Job submit(MultipartFile file) throws IOException {
+        String filename = sanitize(file.getOriginalFilename());
+        if (!DocumentIngestionPipeline.isSupported(filename)) {
+            throw new IllegalArgumentException("Unsupported file type: " + filename);
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path target = pipeline.uploadsDir().resolve(id.substring(0, 8) + "-" + filename);
+        file.transferTo(target);
+
+        Job job = new Job(id, filename, JobState.QUEUED, null, null, OffsetDateTime.now(), null);
+        jobs.put(id, job);
+        evictFinishedJobs();
+
+        vectorStoreManager.append(new FileSystemResource(target), () -> update(id, JobState.RUNNING, null, null))
+            .whenComplete((chunks, ex) -> {
+                if (ex == null) {
+                    update(id, JobState.SUCCEEDED, chunks, null);
+                } else {
+                    Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                    log.error("Ingestion of '{}' failed: {}", filename, cause.getMessage(), cause);
+                    update(id, JobState.FAILED, null, cause.getMessage());
+                    try {
+                        Files.deleteIfExists(target);
+                        // The file is gone, so a quarantine entry for it would never match again
+                        pipeline.quarantine().release(target.toUri().toURL().toString());
+                    } catch (IOException e) {
+                        log.warn("Could not remove failed upload '{}': {}", target, e.getMessage());
+                    }
+                }
+            });
+        return job;
+    }
+
+    /** Returns the job with the given id, if it is still tracked. */
+    public Optional<Job> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /** Source documents that failed to parse and are skipped until they change or are released. */
+    public List<ParseQuarantine.Entry> quarantined() {
+        return pipeline.quarantine().list();
+    }
+
+    /**
+     * Releases a document from quarantine so the next rebuild parses it again.
+     *
+     * @return {@code false} when the document was not quarantined
+     */
+    public boolean release(String source) {
+        return pipeline.quarantine().release(source);
+    }
+
+    private void update(String id, JobState state, Integer chunks, String error) {
+        jobs.computeIfPresent(id, (k, j) -> new Job(
+            j.id(), j.filename(), state, chunks, error, j.createdAt(),
+            state == JobState.SUCCEEDED || state == JobState.FAILED ? OffsetDateTime.now() : null
+        ));
+    }
+
+    /** Keeps the job table bounded by dropping the oldest finished jobs. */
+    private void evictFinishedJobs() {
+        if (jobs.size() <= MAX_TRACKED_JOBS) return;
+        jobs.values().stream()
+            .filter(j -> j.finishedAt() != null)
+            .sorted(Comparator.comparing(Job::finishedAt))
+            .limit(jobs.size() - MAX_TRACKED_JOBS)
+            .forEach(j -> jobs.remove(j.id()));
+    }
+
+    /**
+     * Strips any path and keeps a conservative set of characters. A name without a file
+     * part (e.g. "/") becomes "upload", which has no supported extension and is rejected.
+     */
+    private static String sanitize(String original) {
+        String name = original == null ? "" : original.replace('\\', '/');
+        name = name.substring(name.lastIndexOf('/') + 1);
+        name = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return name.isBlank() ? "upload" : name;
+    }
+}
@@ -0,0 +1,169 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.model.Answer;
+import com.kevinmazali.portfolio.vectorstore.LanguageDetector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers from the retrieved chunks without a chat model call, for when the model is
+ * unavailable, too slow or overloaded.
+ *
+ * <p>The chunks are split into sentences and each sentence is scored with BM25 against the
+ * question, using the sentences as the collection and a light prefix stem so that
+ * "projects" matches "project" and "prosjektet" matches "prosjekter". Sentences from
+ * higher-ranked chunks get a small boost. The best few are picked, skipping near
+ * repeats of ones already picked, and returned in document order. This takes
+ * milliseconds.</p>
+ *
+ * <p>Answers are counted in {@code rag.answer.extractive}, tagged with the {@code reason}.</p>
+ */
+@Component
+public class ExtractiveAnswerer {
+
+  private static final int MAX_SENTENCES = 3;
+  private static final int MAX_CHARS = 700;
+  private static final int MIN_SENTENCE_CHARS = 20;
+  private static final int MAX_SENTENCE_CHARS = 400;
+  private static final int STEM_LENGTH = 6;
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+  private static final double REDUNDANT = 0.6;
+
+  private final MeterRegistry registry;
+
+  public ExtractiveAnswerer(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Builds an extractive answer to {@code question} from the decrypted chunks in rank order.
+   *
+   * @param reason why the chat model was not used, e.g. {@code timeout}; tags the metric
+   */
+  public Answer answer(String question, List<String> passages, String reason) {
+    Counter.builder("rag.answer.extractive")
+        .description("Answers built from retrieved sentences instead of the chat model")
+        .tag("reason", reason)
+        .register(registry)
+        .increment();
+    String text = extract(question, passages);
+    if (text.isEmpty()) {
+      text = "no".equals(LanguageDetector.detect(question))
+          ? "Jeg fant ikke noe i dokumentene som svarer på dette akkurat nå. Prøv igjen om litt."
+          : "I could not find anything in the documents that answers this right now. Please try again shortly.";
+    }
+    return new Answer(text, Answer.EXTRACTIVE);
+  }
+
+  /** The best-matching sentences joined in document order, or empty when nothing matches. */
+  String extract(String question, List<String> passages) {
+    Set<String> queryTerms = new HashSet<>(terms(question));
+    if (queryTerms.isEmpty()) return "";
+
+    List<Sentence> sentences = new ArrayList<>();
+    for (int rank = 0; rank < passages.size(); rank++) {
+      for (String text : sentences(passages.get(rank))) {
+        sentences.add(new Sentence(rank, sentences.size(), text, terms(text)));
+      }
+    }
+    if (sentences.isEmpty()) return "";
+
+    Map<String, Integer> documentFrequency = new HashMap<>();
+    long totalLength = 0;
+    for (Sentence s : sentences) {
+      totalLength += s.terms().size();
+      for (String t : new HashSet<>(s.terms())) documentFrequency.merge(t, 1, Integer::sum);
+    }
+    double avgLength = Math.max(1, (double) totalLength / sentences.size());
+    int n = sentences.size();
+
+    List<Scored> scored = new ArrayList<>();
+    for (Sentence s : sentences) {
+      Map<String, Integer> tf = new HashMap<>();
+      for (String t : s.terms()) {
+        if (queryTerms.contains(t)) tf.merge(t, 1, Integer::sum);
+      }
+      double score = 0;
+      for (Map.Entry<String, Integer> e : tf.entrySet()) {
+        int df = documentFrequency.get(e.getKey());
+        double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+        double norm = K1 * (1 - B + B * s.terms().size() / avgLength);
+        score += idf * e.getValue() * (K1 + 1) / (e.getValue() + norm);
+      }
+      if (score > 0) scored.add(new Scored(s, score * (1 + 1.0 / (s.rank() + 2))));
+    }
+    scored.sort(Comparator.comparingDouble(Scored::score).reversed());
+
+    List<Sentence> picked = new ArrayList<>();
+    int chars = 0;
+    for (Scored candidate : scored) {
+      if (picked.size() == MAX_SENTENCES) break;
+      Sentence s = candidate.sentence();
+      if (!picked.isEmpty() && chars + s.text().length() > MAX_CHARS) continue;
+      if (picked.stream().anyMatch(p -> overlap(p.terms(), s.terms()) >= REDUNDANT)) continue;
+      picked.add(s);
+      chars += s.text().length();
+    }
+    picked.sort(Comparator.comparingInt(Sentence::position));
+    return String.join(" ", picked.stream().map(Sentence::text).toList());
+  }
+
+  /** Sentences of a chunk; line breaks also end a sentence, since PDF text is often one item per line. */
+  private static List<String> sentences(String passage) {
+    List<String> result = new ArrayList<>();
+    if (passage == null) return result;
+    BreakIterator it = BreakIterator.getSentenceInstance(Locale.ROOT);
+    for (String line : passage.split("\\R+")) {
+      it.setText(line);
+      int start = it.first();
+      for (int end = it.next(); end != BreakIterator.DONE; start = end, end = it.next()) {
+        String sentence = line.substring(start, end).strip();
+        if (sentence.length() >= MIN_SENTENCE_CHARS && sentence.length() <= MAX_SENTENCE_CHARS) {
+          result.add(sentence);
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Lower-cased letter/digit tokens of two or more characters, cut to a short prefix stem. */
+  private static List<String> terms(String text) {
+    List<String> terms = new ArrayList<>();
+    if (text == null) return terms;
+    for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+      if (token.length() < 2) continue;
+      terms.add(token.length() > STEM_LENGTH ? token.substring(0, STEM_LENGTH) : token);
+    }
+    return terms;
+  }
+
+  /** Share of the smaller term set contained in the other. */
+  private static double overlap(List<String> a, List<String> b) {
+    Set<String> sa = new HashSet<>(a);
+    Set<String> sb = new HashSet<>(b);
+    if (sa.isEmpty() || sb.isEmpty()) return 0;
+    Set<String> smaller = sa.size() <= sb.size() ? sa : sb;
+    Set<String> larger = smaller == sa ? sb : sa;
+    int shared = 0;
+    for (String t : smaller) {
+      if (larger.contains(t)) shared++;
+    }
+    return (double) shared / smaller.size();
+  }
+
+  private record Sentence(int rank, int position, String text, List<String> terms) {}
+
+  private record Scored(Sentence sentence, double score) {}
+}
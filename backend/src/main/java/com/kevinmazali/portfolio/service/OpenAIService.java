@@ -4,17 +4,71 @@ package com.kevinmazali.portfolio.service;
 import com.kevinmazali.portfolio.model.Answer;
 import com.kevinmazali.portfolio.model.Question;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Service abstraction for generating answers to user questions.
  */
 public interface OpenAIService {
 
     /**
-     * Generates an answer for the provided question.
+     * Generates an answer for the provided question without conversation context.
      *
      * @param question the user question
      * @return the generated answer
      */
-    Answer getAnswer(Question question);
+    default Answer getAnswer(Question question) {
+        return getAnswer(question, null);
+    }
+
+    /**
+     * Generates an answer for the provided question in the context of a chat.
+     *
+     * @param question the user question
+     * @param chatId the chat the question belongs to, or {@code null} for a stateless answer
+     * @return the generated answer
+     */
+    default Answer getAnswer(Question question, String chatId) {
+        return getAnswer(question, Requester.chat(chatId), Deadline.none());
+    }
+
+    /**
+     * Generates an answer for the provided question in the context of the requester's chat,
+     * within a deadline shared by all stages. Chat model tokens are charged to the requester.
+     *
+     * @param question the user question
+     * @param requester the chat ({@code null} for a stateless answer) and client the answer is for
+     * @param deadline time by which the answer must be ready
+     * @return the generated answer
+     * @throws DeadlineExceededException when the deadline passes first
+     * @throws CircuitBreaker.OpenException while the chat model provider is degraded
+     * @throws QuotaExceededException when the requester's daily token quota is used up
+     */
+    Answer getAnswer(Question question, Requester requester, Deadline deadline);
+
+    /**
+     * Answers several questions at once, each without conversation context, sharing
+     * translation, embedding and model calls where possible. Chat model tokens are charged
+     * to the requester.
+     *
+     * @param questions the questions
+     * @param requester the client the tokens are charged to
+     * @param deadline time by which all answers must be ready
+     * @return one future per question, in order; a future fails with the exceptions listed
+     *         for {@link #getAnswer(Question, Requester, Deadline)}
+     */
+    List<CompletableFuture<Answer>> getAnswers(List<Question> questions, Requester requester, Deadline deadline);
+
+    /**
+     * Runs the answer path for {@code question} outside any chat to warm caches and hot code
+     * before traffic arrives; see {@link WarmUpService}.
+     *
+     * @param question the question to run
+     * @param generate whether to call the chat model for the answer; otherwise the answer is extractive
+     * @param deadline time the run may take
+     * @return the generated or extractive answer
+     */
+    Answer warmUp(Question question, boolean generate, Deadline deadline);
 
 }
@@ -1,132 +1,481 @@
 package com.kevinmazali.portfolio.service;
 
+import com.kevinmazali.portfolio.config.LlmProperties;
+import com.kevinmazali.portfolio.config.RetrievalProperties;
 import com.kevinmazali.portfolio.crypto.CryptoService;
 import com.kevinmazali.portfolio.model.Answer;
 import com.kevinmazali.portfolio.model.Question;
-import lombok.RequiredArgsConstructor;
-import org.springframework.ai.chat.model.ChatModel;
+import com.kevinmazali.portfolio.vectorstore.ChunkText;
+import com.kevinmazali.portfolio.vectorstore.HybridSearchStore;
+import com.kevinmazali.portfolio.vectorstore.LanguageDetector;
+import com.kevinmazali.portfolio.vectorstore.RankFusion;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Default implementation of {@link OpenAIService} that performs RAG:
  * - expands the query to multiple languages,
- * - retrieves similar documents from the vector store,
+ * - retrieves documents by vector similarity and BM25 within each variant's language partition,
+ *   optionally scoped by a metadata filter,
+ * - fuses both rankings with reciprocal rank fusion,
  * - optionally decrypts content,
  * - builds a prompt and invokes the chat model.
+ *
+ * <p>Concurrent identical questions (same normalized text and filter) share one
+ * in-flight computation, so a burst of visitors clicking the same suggested question
+ * costs one translation, one retrieval and one completion.</p>
+ *
+ * <p>Within a chat, earlier turns from {@link ConversationMemory} are used to turn
+ * follow-up questions into standalone retrieval queries and are included in the prompt.
+ * Questions that have chat history are only coalesced with the same chat at the same
+ * memory version.</p>
+ *
+ * <p>All stages share the request's {@link Deadline}. Translation is bounded separately and
+ * skipped when it runs out; the chat model calls go through {@link ChatModelGateway}, which
+ * hedges slow calls and fails fast while the provider is degraded.</p>
+ *
+ * <p>Translations of questions asked without chat history are cached (LRU, shared size
+ * with the query embedding cache, {@code sfg.aiapp.retrieval.query-cache-size}), so the
+ * frequent questions pay for one translation call per process rather than one per ask.</p>
+ *
+ * <p>When the answer call cannot be made or does not succeed in time (deadline spent,
+ * circuit open, too many calls in flight, provider error), the answer is built from the
+ * retrieved chunks by {@link ExtractiveAnswerer} instead, and marked
+ * {@link Answer#EXTRACTIVE}. {@code sfg.aiapp.llm.extractive-fallback=false} turns this
+ * off and lets the error reach the caller.</p>
+ *
+ * <p>Tokens of both chat model calls are charged to the {@link Requester} through
+ * {@link TokenAccounting}. Once a requester is over its daily quota, translation is skipped
+ * (cached translations are still used) and the answer is extractive, or refused with
+ * {@link QuotaExceededException} when extractive answers are off.</p>
+ *
+ * <p>{@link #getAnswers} answers a batch of stateless questions: translations run
+ * concurrently, every query variant of the batch is embedded in one call, and retrieval
+ * and answer calls run in parallel with at most {@code sfg.aiapp.llm.batch-concurrency}
+ * chat model calls of the batch in flight.</p>
  */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class OpenAIServiceImpl implements OpenAIService {
 
-  private final ChatModel chatModel;
-  private final SimpleVectorStore vectorStore;
+  private final ChatModelGateway chatModelGateway;
+  private final LlmProperties llmProperties;
+  private final VectorStoreManager vectorStoreManager;
+  private final RetrievalProperties retrievalProperties;
+  private final ConversationMemory conversationMemory;
+  private final RetrievalCache retrievalCache;
+  private final ExtractiveAnswerer extractiveAnswerer;
+  private final TokenAccounting tokenAccounting;
+  private final SingleFlight<String, Result> inFlightAnswers = new SingleFlight<>();
+  private final ExecutorService batchExecutor = Executors.newVirtualThreadPerTaskExecutor();
+  /** Query variants of questions asked without chat history, by coalescing key. */
+  private final Map<String, List<String>> translations;
+
+  public OpenAIServiceImpl(ChatModelGateway chatModelGateway, LlmProperties llmProperties,
+                           VectorStoreManager vectorStoreManager, RetrievalProperties retrievalProperties,
+                           ConversationMemory conversationMemory, RetrievalCache retrievalCache,
+                           ExtractiveAnswerer extractiveAnswerer, TokenAccounting tokenAccounting) {
+    this.chatModelGateway = chatModelGateway;
+    this.llmProperties = llmProperties;
+    this.vectorStoreManager = vectorStoreManager;
+    this.retrievalProperties = retrievalProperties;
+    this.conversationMemory = conversationMemory;
+    this.retrievalCache = retrievalCache;
+    this.extractiveAnswerer = extractiveAnswerer;
+    this.tokenAccounting = tokenAccounting;
+    int maxTranslations = Math.max(0, retrievalProperties.getQueryCacheSize());
+    this.translations = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+        return size() > maxTranslations;
+      }
+    };
+  }
 
   /**
    * Executes a Retrieval-Augmented Generation flow:
    * 1) expand the query to English and Norwegian,
-   * 2) retrieve and de-duplicate the most similar documents,
+   * 2) retrieve documents by vector similarity and BM25 and fuse the rankings,
    * 3) decrypt chunks when encryption metadata is present,
-   * 4) compose the prompt and call the chat model.
+   * 4) compose the prompt and call the chat model, or answer extractively when it is unavailable.
+   *
+   * <p>For follow-up turns the chunks retrieved for the chat's previous turns are reused or
+   * topped up when the new question is close to them (see {@link RetrievalCache}).</p>
    *
    * @param question the user question
-   * @return the generated {@link Answer}
+   * @param requester the chat (or none) and client the tokens are charged to
+   * @param deadline time by which the answer must be ready
+   * @return the generated or extractive {@link Answer}
+   */
+  @Override
+  public Answer getAnswer(Question question, Requester requester, Deadline deadline) {
+    String chatId = requester.chatId();
+    ConversationMemory.History history = conversationMemory.history(chatId);
+    // Over-quota requesters get an extractive answer, so they must not join a generated one
+    String key = coalescingKey(question, chatId, history)
+        + (tokenAccounting.allows(requester) ? "" : "\u0000quota");
+    Result result = inFlightAnswers.execute(key,
+        () -> answer(question, history, requester, deadline, true));
+    conversationMemory.append(chatId, question.question(), result.answer().answer());
+    retrievalCache.record(chatId, result.store(), question.filter(), result.queryEmbedding(),
+        result.documents(), result.outcome());
+    return result.answer();
+  }
+
+  /**
+   * Runs {@code question} like a stateless /ask without touching chat memory, to fill the
+   * translation and query embedding caches and exercise the retrieval code before traffic
+   * arrives. Without {@code generate} the chat model is only used for translation and the
+   * answer is extractive.
    */
   @Override
-  public Answer getAnswer(Question question) {
-    // 1) Expand the query: original + translated to EN and NO
-    List<String> queries = expandQueryToLanguages(question.question());
-
-    // 2) Fetch top documents for each variant and merge
-    List<Document> documents = queries.stream()
-        .flatMap(q -> vectorStore.similaritySearch(
-            SearchRequest.builder()
-                .query(q)
-                .topK(40)
-                .build()
-        ).stream())
-        // Deduplicate on text content to avoid duplicates across query variants
-        .distinct()
-        .limit(40)
+  public Answer warmUp(Question question, boolean generate, Deadline deadline) {
+    return answer(question, ConversationMemory.History.EMPTY, Requester.SYSTEM, deadline, generate).answer();
+  }
+
+  /**
+   * Answers {@code questions} like stateless /ask calls, sharing the work that can be shared:
+   * <ol>
+   *   <li>the query variants of all questions are translated concurrently,</li>
+   *   <li>all variants are embedded in one embedding call (cached ones are skipped),</li>
+   *   <li>each question is then retrieved and answered on its own virtual thread.</li>
+   * </ol>
+   * Identical questions (same coalescing key) are answered once. Chat model calls of the
+   * batch wait for one of {@code sfg.aiapp.llm.batch-concurrency} permits, so a batch stays
+   * well inside the gateway's {@code max-concurrent-calls}.
+   *
+   * @return one future per question, in order, each completing as soon as its answer is ready
+   */
+  @Override
+  public List<CompletableFuture<Answer>> getAnswers(List<Question> questions, Requester requester,
+                                                    Deadline deadline) {
+    HybridSearchStore vectorStore = vectorStoreManager.current();
+    ConversationMemory.History none = ConversationMemory.History.EMPTY;
+    Semaphore permits = new Semaphore(Math.max(1, llmProperties.getBatchConcurrency()));
+
+    Map<String, Question> distinct = new LinkedHashMap<>();
+    questions.forEach(q -> distinct.putIfAbsent(coalescingKey(q, null, none), q));
+    List<Question> unique = new ArrayList<>(distinct.values());
+
+    // 1) Query variants of every question, translated concurrently
+    List<CompletableFuture<List<String>>> variants = unique.stream()
+        .map(q -> CompletableFuture.supplyAsync(() -> withPermit(permits, deadline,
+            () -> expandQueryToLanguages(q.question(), none, requester,
+                deadline.within(llmProperties.getTranslationTimeout()))), batchExecutor))
         .toList();
 
-    // 2) Decrypt content when needed
+    // 2) All variants of the batch in one embedding call
+    CompletableFuture<Map<String, float[]>> embeddings = CompletableFuture
+        .allOf(variants.toArray(CompletableFuture[]::new))
+        .thenApplyAsync(v -> {
+          List<String> queries = variants.stream().flatMap(f -> f.join().stream()).distinct().toList();
+          List<float[]> vectors = vectorStore.embedQueries(queries);
+          Map<String, float[]> byQuery = new HashMap<>();
+          for (int i = 0; i < queries.size(); i++) byQuery.put(queries.get(i), vectors.get(i));
+          return byQuery;
+        }, batchExecutor);
+
+    // 3) + 4) Retrieval and the answer call per question, in parallel
+    Map<String, CompletableFuture<Answer>> answers = new HashMap<>();
+    for (int i = 0; i < unique.size(); i++) {
+      Question question = unique.get(i);
+      CompletableFuture<List<String>> queries = variants.get(i);
+      answers.put(coalescingKey(question, null, none), embeddings.thenApplyAsync(byQuery -> {
+        List<Document> documents = search(question, queries.join(), vectorStore, parseFilter(question.filter()),
+            byQuery::get);
+        return withPermit(permits, deadline, () -> compose(question, none, requester, deadline, true, vectorStore,
+            byQuery.get(question.question()), documents, RetrievalCache.Outcome.MISS)).answer();
+      }, batchExecutor));
+    }
+    return questions.stream().map(q -> answers.get(coalescingKey(q, null, none))).toList();
+  }
+
+  private Result answer(Question question, ConversationMemory.History history, Requester requester,
+                        Deadline deadline, boolean generate) {
+    // Pin the serving store for the whole request
+    HybridSearchStore vectorStore = vectorStoreManager.current();
+
+    // Optional metadata scope, resolved by the store's metadata index before scoring
+    Filter.Expression filter = parseFilter(question.filter());
+
+    // The original question is embedded once: for the cache check and as a search variant
+    float[] queryEmbedding = vectorStore.embedQuery(question.question());
+
+    // Only follow-ups consult the cache; their coalescing key is already chat-specific
+    RetrievalCache.Lookup cached = history.isEmpty()
+        ? RetrievalCache.Lookup.MISS
+        : retrievalCache.lookup(requester.chatId(), vectorStore, question.filter(), queryEmbedding);
+
+    List<Document> documents = switch (cached.outcome()) {
+      case HIT -> cached.documents();
+      // Same topic, new angle: keep the cached chunks and add what the new question finds
+      case TOP_UP -> RankFusion.reciprocalRank(List.of(
+          cached.documents(),
+          vectorStore.similaritySearch(queryEmbedding, retrievalProperties.getVectorTopK(), 0.0, filter),
+          vectorStore.lexicalSearch(question.question(), retrievalProperties.getLexicalTopK(), filter)
+      ), retrievalProperties.getContextChunks());
+      case MISS -> retrieve(question, history, requester, vectorStore, filter, queryEmbedding, deadline);
+    };
+    return compose(question, history, requester, deadline, generate, vectorStore, queryEmbedding, documents,
+        cached.outcome());
+  }
+
+  /**
+   * Decrypts the retrieved chunks and answers from them: with the chat model, or extractively
+   * without {@code generate}, once the deadline has passed, over quota or when the call fails.
+   */
+  private Result compose(Question question, ConversationMemory.History history, Requester requester,
+                         Deadline deadline, boolean generate, HybridSearchStore vectorStore, float[] queryEmbedding,
+                         List<Document> documents, RetrievalCache.Outcome outcome) {
+    // 3) Decrypt content when needed
     CryptoService crypto = cryptoFromEnv();
     List<String> contentList = documents.stream()
         .map(d -> {
-          Object enc = d.getMetadata().get("enc");
-          if ("aesgcm".equals(enc) && crypto != null) {
-            String iv = String.valueOf(d.getMetadata().get("enc_iv"));
-            String ct = d.getText();
-            try {
-              return crypto.decrypt(iv, ct);
-            } catch (RuntimeException ex) {
-              Object src = d.getMetadata().getOrDefault("source", "(unknown source)");
-              return "[Could not decrypt chunk – source: " + src + "]";
-            }
-          } else {
-            return d.getText();
+          try {
+            return ChunkText.plaintext(d.getText(), d.getMetadata(), crypto);
+          } catch (RuntimeException ex) {
+            Object src = d.getMetadata().getOrDefault("source", "(unknown source)");
+            return "[Could not decrypt chunk – source: " + src + "]";
           }
         })
         .toList();
 
-    // 3) Read prompt template from classpath (also works when packaged as a JAR)
+    if (!generate) {
+      Answer extract = new Answer(extractiveAnswerer.extract(question.question(), contentList), Answer.EXTRACTIVE);
+      return new Result(extract, vectorStore, queryEmbedding, documents, outcome);
+    }
+
+    // Retrieval used up the budget: the chunks are all there is time for
+    if (deadline.isExpired()) {
+      if (!llmProperties.isExtractiveFallback()) throw new DeadlineExceededException("retrieval");
+      return extractive(question, contentList, "deadline", vectorStore, queryEmbedding, documents, outcome);
+    }
+
+    // Checked again here: the translation may have used up the rest of the quota
+    if (!tokenAccounting.allows(requester)) {
+      if (!llmProperties.isExtractiveFallback()) throw new QuotaExceededException(tokenAccounting.untilReset());
+      return extractive(question, contentList, "quota", vectorStore, queryEmbedding, documents, outcome);
+    }
+
+    // Read prompt template from classpath (also works when packaged as a JAR)
     String ragPromptTemplate = loadPromptTemplateFromClasspath("templates/rag-prompt-template.st");
 
     PromptTemplate promptTemplate = new PromptTemplate(ragPromptTemplate);
     Prompt prompt = promptTemplate.create(Map.of(
         "input", question.question(),
+        "history", history.isEmpty() ? "(none)" : history.text(),
         "documents", String.join("\n", contentList)
     ));
 
     // 4) Call the model. Max token limit is set via application.yaml
-    ChatResponse response = chatModel.call(prompt);
-    return new Answer(response.getResult().getOutput().getText());
+    ChatResponse response;
+    try {
+      response = chatModelGateway.call("answer", prompt, deadline);
+    } catch (RuntimeException e) {
+      if (!llmProperties.isExtractiveFallback()) throw e;
+      String reason = switch (e) {
+        case DeadlineExceededException d -> "timeout";
+        case CircuitBreaker.OpenException o -> "circuit_open";
+        case ChatModelGateway.SaturatedException s -> "overload";
+        default -> "error";
+      };
+      log.warn("Chat model unavailable ({}), answering extractively: {}", reason, e.toString());
+      return extractive(question, contentList, reason, vectorStore, queryEmbedding, documents, outcome);
+    }
+    tokenAccounting.record(requester, "answer", response);
+    return new Result(new Answer(response.getResult().getOutput().getText()), vectorStore, queryEmbedding,
+        documents, outcome);
+  }
+
+  /**
+   * Runs {@code work} holding one of the batch's chat model permits. When none frees up
+   * before the deadline it runs anyway; it then sees the expired deadline and skips the call.
+   */
+  private static <T> T withPermit(Semaphore permits, Deadline deadline, Supplier<T> work) {
+    boolean acquired = false;
+    try {
+      acquired = permits.tryAcquire(deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    try {
+      return work.get();
+    } finally {
+      if (acquired) permits.release();
+    }
+  }
+
+  private Result extractive(Question question, List<String> contentList, String reason,
+                            HybridSearchStore vectorStore, float[] queryEmbedding, List<Document> documents,
+                            RetrievalCache.Outcome outcome) {
+    Answer answer = extractiveAnswerer.answer(question.question(), contentList, reason);
+    return new Result(answer, vectorStore, queryEmbedding, documents, outcome);
   }
 
   /**
-   * Creates query variants in the original language, English, and Norwegian.
-   * Falls back to the original only upon errors.
+   * Full retrieval: query variants in several languages, each searched by vector similarity
+   * and BM25 within the chunks of its own language, fused with reciprocal rank fusion.
+   * The original question is searched in the language it is detected to be in, or in all
+   * of them when translation gave no variant for every language.
    */
-  private List<String> expandQueryToLanguages(String original) {
+  private List<Document> retrieve(Question question, ConversationMemory.History history, Requester requester,
+                                  HybridSearchStore vectorStore, Filter.Expression filter, float[] queryEmbedding,
+                                  Deadline deadline) {
+    // 1) Expand the query: original + translated to EN and NO (standalone when there is history)
+    List<String> queries = expandQueryToLanguages(question.question(), history, requester,
+        deadline.within(llmProperties.getTranslationTimeout()));
+    return search(question, queries, vectorStore, filter,
+        q -> q.equals(question.question()) ? queryEmbedding : vectorStore.embedQuery(q));
+  }
+
+  /**
+   * Searches each query variant by vector similarity and BM25 within the chunks of its own
+   * language and fuses the rankings. {@code embeddings} returns the embedding of a variant.
+   */
+  private List<Document> search(Question question, List<String> queries, HybridSearchStore vectorStore,
+                                Filter.Expression filter, Function<String, float[]> embeddings) {
+    // 2) Vector and lexical shortlist per variant, each within its own language partition;
+    //    exact hits on course codes, technology names and project titles come from BM25.
+    //    Without a distinct variant per language (translation failed, timed out, was over
+    //    quota or came back partial) the original is searched in every partition instead
+    boolean everyLanguage = queries.size() == 3 && new HashSet<>(queries).size() == 3;
+    Map<String, String> languages = new LinkedHashMap<>();
+    languages.put(question.question(),
+        everyLanguage ? LanguageDetector.detect(question.question()) : LanguageDetector.UNDETERMINED);
+    if (queries.size() == 3) {
+      languages.putIfAbsent(queries.get(1), "en");
+      languages.putIfAbsent(queries.get(2), "no");
+    }
+    List<List<Document>> rankings = new ArrayList<>();
+    languages.forEach((q, lang) -> {
+      Filter.Expression scope = inLanguage(filter, lang);
+      rankings.add(vectorStore.similaritySearch(embeddings.apply(q), retrievalProperties.getVectorTopK(), 0.0, scope));
+      rankings.add(vectorStore.lexicalSearch(q, retrievalProperties.getLexicalTopK(), scope));
+    });
+    // Fuse and de-duplicate across retrievers and query variants
+    return RankFusion.reciprocalRank(rankings, retrievalProperties.getContextChunks());
+  }
+
+  /**
+   * Creates query variants in the original language, English, and Norwegian. With chat
+   * history the variants are rewritten as standalone questions, so follow-ups such as
+   * "tell me more about that project" retrieve the right chunks.
+   * Falls back to the original only upon errors, including a missed {@code deadline}, and
+   * when the requester is over its token quota.
+   */
+  private List<String> expandQueryToLanguages(String original, ConversationMemory.History history,
+                                              Requester requester, Deadline deadline) {
+    // Without history the variants only depend on the question, so repeats skip the call
+    String cacheKey = history.isEmpty() ? coalescingKey(new Question(original), null, history) : null;
+    if (cacheKey != null) {
+      List<String> cached;
+      synchronized (translations) {
+        cached = translations.get(cacheKey);
+      }
+      if (cached != null) return List.of(original, cached.get(0), cached.get(1));
+    }
+    if (!tokenAccounting.allows(requester)) return List.of(original);
     try {
       // Simple prompt for quick translation without explanations
-      String sys = """
+      String sys = history.isEmpty() ? """
       Translate the user query into both English and Norwegian.
       Return ONLY this exact JSON object with double quotes and no extra text:
       {"en": "<english>", "no": "<norwegian>"}
-      """.strip();
+      """.strip() : """
+      Rewrite the user query as a standalone question, resolving references to the
+      conversation below, and give it in both English and Norwegian.
+      Return ONLY this exact JSON object with double quotes and no extra text:
+      {"en": "<english>", "no": "<norwegian>"}
+
+      Conversation:
+      """.strip() + "\n" + history.text();
 
       Prompt p = new PromptTemplate("{sys}\nUser: {q}")
           .create(Map.of("sys", sys, "q", original));
 
-      ChatResponse r = chatModel.call(p);
+      ChatResponse r = chatModelGateway.call("translate", p, deadline);
+      tokenAccounting.record(requester, "translate", r);
       String json = r.getResult().getOutput().getText();
 
       // Very simple parsing to avoid extra dependencies
       String en = extractJsonValue(json, "en");
       String no = extractJsonValue(json, "no");
 
-      return List.of(original,
-          en == null || en.isBlank() ? original : en,
-          no == null || no.isBlank() ? original : no);
+      if (en == null || en.isBlank() || no == null || no.isBlank()) {
+        // Partial answer: usable for this request, not worth caching
+        return List.of(original,
+            en == null || en.isBlank() ? original : en,
+            no == null || no.isBlank() ? original : no);
+      }
+      if (cacheKey != null) {
+        synchronized (translations) {
+          translations.put(cacheKey, List.of(en, no));
+        }
+      }
+      return List.of(original, en, no);
     } catch (Exception e) {
       return List.of(original);
     }
   }
 
+  /**
+   * Key under which identical questions are coalesced: case-folded, whitespace-collapsed
+   * question text without trailing punctuation, plus the filter. When the chat has history
+   * the answer depends on it, so the chat id and memory version are part of the key.
+   */
+  private static String coalescingKey(Question question, String chatId, ConversationMemory.History history) {
+    String q = question.question() == null ? "" : question.question();
+    String normalized = q.strip().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").replaceAll("[?!.\\s]+$", "");
+    String key = normalized + "\u0000" + (question.filter() == null ? "" : question.filter().strip());
+    return history.isEmpty() ? key : key + "\u0000" + chatId + "#" + history.version();
+  }
+
+  /**
+   * Narrows {@code filter} to one language partition: chunks in any other detected
+   * language are excluded, while undetermined chunks stay in every partition. An
+   * undetermined query searches all chunks.
+   */
+  private static Filter.Expression inLanguage(Filter.Expression filter, String lang) {
+    if (!LanguageDetector.LANGUAGES.contains(lang)) return filter;
+    List<String> others = LanguageDetector.LANGUAGES.stream().filter(l -> !l.equals(lang)).toList();
+    Filter.Expression partition = new Filter.Expression(Filter.ExpressionType.NIN,
+        new Filter.Key(LanguageDetector.METADATA_KEY), new Filter.Value(others));
+    return filter == null ? partition : new Filter.Expression(Filter.ExpressionType.AND, filter, partition);
+  }
+
+  /**
+   * Parses the optional metadata filter from the request, or returns {@code null} when absent.
+   */
+  private Filter.Expression parseFilter(String filter) {
+    if (filter == null || filter.isBlank()) return null;
+    return new FilterExpressionTextParser().parse(filter);
+  }
+
   /**
    * Extracts a simple string value from a flat JSON object without using a parser.
    */
@@ -176,4 +525,8 @@ public class OpenAIServiceImpl implements OpenAIService {
       throw new RuntimeException("Could not read " + resourceName + " from classpath", e);
     }
   }
+
+  /** Outcome of one coalesced computation; the retrieval parts feed the per-chat cache. */
+  private record Result(Answer answer, HybridSearchStore store, float[] queryEmbedding, List<Document> documents,
+                        RetrievalCache.Outcome outcome) {}
 }
@@ -0,0 +1,22 @@
+package com.kevinmazali.portfolio.service;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a requester has used up its daily token quota and extractive answers are
+ * disabled.
+ */
+public class QuotaExceededException extends RuntimeException {
+
+  private final Duration retryAfter;
+
+  public QuotaExceededException(Duration retryAfter) {
+    super("Daily token quota used up");
+    this.retryAfter = retryAfter;
+  }
+
+  /** Time until the quota resets at midnight UTC. */
+  public Duration retryAfter() {
+    return retryAfter;
+  }
+}
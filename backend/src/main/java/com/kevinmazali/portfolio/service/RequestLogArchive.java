@@ -0,0 +1,191 @@
+package com.kevinmazali.portfolio.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kevinmazali.portfolio.config.RequestLogProperties;
+import com.kevinmazali.portfolio.model.RequestLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressed, write-once archive of request_log rows on local disk.
+ *
+ * <p>Each archived month is one gzip-compressed NDJSON file,
+ * {@code request_log-YYYY-MM.ndjson.gz}, with one JSON object per row. Files are
+ * written to a temporary name, fsynced and atomically renamed, and never modified
+ * afterwards, so a crash mid-archive leaves either a complete file or none.</p>
+ */
+@Slf4j
+@Component
+public class RequestLogArchive {
+
+  private static final String PREFIX = "request_log-";
+  private static final String SUFFIX = ".ndjson.gz";
+
+  private final ObjectMapper objectMapper;
+  private final Path directory;
+
+  public RequestLogArchive(ObjectMapper objectMapper, RequestLogProperties props) {
+    this.objectMapper = objectMapper;
+    this.directory = Paths.get(props.getArchiveDir()).toAbsolutePath().normalize();
+  }
+
+  /** Whether the month already has a complete archive file. */
+  public boolean isArchived(YearMonth month) {
+    return Files.isRegularFile(fileFor(month));
+  }
+
+  /**
+   * Writes the rows of one month to its archive file.
+   *
+   * @return number of rows written
+   * @throws IllegalStateException when the month is already archived
+   */
+  public long write(YearMonth month, Stream<RequestLog> rows) throws IOException {
+    Path target = fileFor(month);
+    if (Files.exists(target)) {
+      throw new IllegalStateException("Archive already exists: " + target);
+    }
+    Files.createDirectories(directory);
+    Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+    long count = 0;
+    try (Writer out = new BufferedWriter(new OutputStreamWriter(
+        new GZIPOutputStream(Files.newOutputStream(tmp, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)), StandardCharsets.UTF_8))) {
+      for (RequestLog rl : (Iterable<RequestLog>) rows::iterator) {
+        out.write(objectMapper.writeValueAsString(new ArchivedRow(
+            rl.getId(), rl.getPath(), rl.getMethod(), rl.getPayload(), rl.getRequesterId(), rl.getCreatedAt())));
+        out.write('\n');
+        count++;
+      }
+    }
+    try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+    log.info("Archived {} request_log row(s) for {} to {}", count, month, target);
+    return count;
+  }
+
+  /**
+   * Reads archived rows whose month lies in [from, to] (either bound may be {@code null}
+   * for open-ended), optionally restricted to one requester, ordered by creation time.
+   */
+  public List<RequestLog> read(@Nullable YearMonth from, @Nullable YearMonth to, @Nullable String requesterId) {
+    List<RequestLog> rows = new ArrayList<>();
+    for (YearMonth month : months()) {
+      if (from != null && month.isBefore(from)) continue;
+      if (to != null && month.isAfter(to)) continue;
+      readMonth(month, requesterId, rows);
+    }
+    rows.sort(Comparator.comparing(RequestLog::getCreatedAt));
+    return rows;
+  }
+
+  /**
+   * Lazily reads the archived rows of one month in creation order, optionally restricted to
+   * one requester. Holds the file open until the stream is closed.
+   */
+  public Stream<RequestLog> stream(YearMonth month, @Nullable String requesterId) {
+    Path file = fileFor(month);
+    BufferedReader in;
+    try {
+      in = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)),
+          StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read request_log archive " + file, e);
+    }
+    return in.lines()
+        .filter(line -> !line.isBlank())
+        .map(line -> {
+          try {
+            return objectMapper.readValue(line, ArchivedRow.class);
+          } catch (IOException e) {
+            throw new UncheckedIOException("Could not read request_log archive " + file, e);
+          }
+        })
+        .filter(row -> requesterId == null || requesterId.isBlank() || requesterId.equals(row.requesterId()))
+        .map(ArchivedRow::toEntity)
+        .onClose(() -> {
+          try {
+            in.close();
+          } catch (IOException e) {
+            log.debug("Could not close request_log archive {}: {}", file, e.getMessage());
+          }
+        });
+  }
+
+  /** Archived months, oldest first. */
+  public List<YearMonth> months() {
+    if (!Files.isDirectory(directory)) return List.of();
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.map(p -> p.getFileName().toString())
+          .filter(n -> n.startsWith(PREFIX) && n.endsWith(SUFFIX))
+          .map(n -> parseMonth(n.substring(PREFIX.length(), n.length() - SUFFIX.length())))
+          .filter(Objects::nonNull)
+          .sorted()
+          .toList();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not list request_log archive at " + directory, e);
+    }
+  }
+
+  private void readMonth(YearMonth month, @Nullable String requesterId, List<RequestLog> into) {
+    try (Stream<RequestLog> rows = stream(month, requesterId)) {
+      rows.forEach(into::add);
+    }
+  }
+
+  private Path fileFor(YearMonth month) {
+    return directory.resolve(PREFIX + month + SUFFIX);
+  }
+
+  @Nullable
+  private static YearMonth parseMonth(String s) {
+    try {
+      return YearMonth.parse(s);
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  /** On-disk shape of one archived row. */
+  record ArchivedRow(Long id, String path, String method, String payload, String requesterId,
+                     OffsetDateTime createdAt) {
+    RequestLog toEntity() {
+      RequestLog rl = new RequestLog();
+      rl.setId(id);
+      rl.setPath(path);
+      rl.setMethod(method);
+      rl.setPayload(payload);
+      rl.setRequesterId(requesterId);
+      rl.setCreatedAt(createdAt);
+      return rl;
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.config.RequestLogProperties;
+import com.kevinmazali.portfolio.model.RequestLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Keeps request_log partitioned by month and moves old months to the archive.
+ *
+ * <p>On MySQL the table is converted once to {@code PARTITION BY RANGE COLUMNS(created_at)}
+ * with one partition per month ({@code pYYYYMM}) plus a {@code pmax} catch-all; the primary
+ * key becomes {@code (id, created_at)} because MySQL requires the partitioning column in
+ * every unique key. A daily job pre-creates upcoming partitions and, for every month older
+ * than the retention window, writes it to {@link RequestLogArchive} and drops the partition,
+ * which is a metadata operation instead of a large DELETE.</p>
+ *
+ * <p>It also migrates the payload column from LONGTEXT to LONGBLOB once, because payloads
+ * are now stored compressed. MySQL keeps the existing UTF-8 bytes in the conversion, and
+ * those legacy rows stay readable.</p>
+ *
+ * <p>Other databases (e.g. in tests) are left untouched.</p>
+ */
+@Slf4j
+@Service
+public class RequestLogRetentionService {
+
+  private static final String TABLE = "request_log";
+  private static final String MAX_PARTITION = "pmax";
+  private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+  private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate readOnlyTx;
+  private final EntityManager entityManager;
+  private final RequestLogArchive archive;
+  private final ConversationSearchIndex searchIndex;
+  private final RequestLogProperties props;
+
+  public RequestLogRetentionService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                    EntityManager entityManager, RequestLogArchive archive,
+                                    ConversationSearchIndex searchIndex,
+                                    RequestLogProperties props) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.readOnlyTx = new TransactionTemplate(transactionManager);
+    this.readOnlyTx.setReadOnly(true);
+    this.entityManager = entityManager;
+    this.archive = archive;
+    this.searchIndex = searchIndex;
+    this.props = props;
+  }
+
+  /**
+   * Runs before the web server starts, so no compressed payload is written to a text column.
+   */
+  @PostConstruct
+  public void migratePayloadColumn() {
+    try {
+      if (!isMySql()) return;
+      List<String> types = jdbcTemplate.queryForList(
+          "SELECT DATA_TYPE FROM information_schema.COLUMNS "
+              + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'payload'", String.class, TABLE);
+      if (types.isEmpty() || "longblob".equalsIgnoreCase(types.getFirst())) return;
+      log.info("Converting {}.payload from {} to LONGBLOB for compressed storage", TABLE, types.getFirst());
+      jdbcTemplate.execute("ALTER TABLE " + TABLE + " MODIFY payload LONGBLOB NOT NULL");
+    } catch (RuntimeException e) {
+      log.error("Could not migrate {}.payload to LONGBLOB; new log rows will fail until it is", TABLE, e);
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onStartup() {
+    try {
+      maintain();
+    } catch (RuntimeException e) {
+      // Never block startup on housekeeping; the scheduled run retries
+      log.error("request_log maintenance failed at startup", e);
+    }
+  }
+
+  @Scheduled(cron = "${sfg.aiapp.request-log.maintenance-cron:0 15 3 * * *}")
+  public void scheduledMaintenance() {
+    try {
+      maintain();
+    } catch (RuntimeException e) {
+      log.error("Scheduled request_log maintenance failed", e);
+    }
+  }
+
+  /** Partitions the table if needed, adds upcoming partitions and applies retention. */
+  public synchronized void maintain() {
+    if (!props.isPartitioningEnabled() || !isMySql()) return;
+    YearMonth now = YearMonth.now();
+    List<String> partitions = partitions();
+    if (partitions.isEmpty()) {
+      partitionTable(now);
+      partitions = partitions();
+    }
+    addUpcomingPartitions(partitions, now);
+    if (props.getRetentionMonths() > 0) {
+      archiveExpired(partitions(), now.minusMonths(props.getRetentionMonths()));
+    }
+  }
+
+  private void partitionTable(YearMonth now) {
+    LocalDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM " + TABLE, LocalDateTime.class);
+    YearMonth first = oldest == null ? now : YearMonth.from(oldest);
+    List<String> defs = new ArrayList<>();
+    for (YearMonth m = first; !m.isAfter(now.plusMonths(props.getFuturePartitions())); m = m.plusMonths(1)) {
+      defs.add(partitionDefinition(m));
+    }
+    defs.add("PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE)");
+    log.info("Partitioning {} by month from {} ({} partitions); this rewrites the table once", TABLE, first, defs.size());
+    jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at)");
+    jdbcTemplate.execute("ALTER TABLE " + TABLE + " PARTITION BY RANGE COLUMNS(created_at) ("
+        + String.join(", ", defs) + ")");
+  }
+
+  private void addUpcomingPartitions(List<String> existing, YearMonth now) {
+    for (YearMonth m = now; !m.isAfter(now.plusMonths(props.getFuturePartitions())); m = m.plusMonths(1)) {
+      String name = m.format(PARTITION_NAME);
+      if (existing.contains(name)) continue;
+      // pmax only holds rows past the last monthly bound, so splitting it is cheap
+      jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION " + MAX_PARTITION + " INTO ("
+          + partitionDefinition(m) + ", PARTITION " + MAX_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+      log.info("Added {} partition {}", TABLE, name);
+    }
+  }
+
+  private void archiveExpired(List<String> partitions, YearMonth oldestKept) {
+    for (String name : partitions) {
+      if (MAX_PARTITION.equals(name)) continue;
+      YearMonth month;
+      try {
+        month = YearMonth.parse(name, PARTITION_NAME);
+      } catch (RuntimeException e) {
+        continue;
+      }
+      if (!month.isBefore(oldestKept)) continue;
+      long archived = archive.isArchived(month)
+          ? countArchived(month)
+          : readOnlyTx.execute(status -> writeArchive(name, month));
+      // Only drop once the archive file is durable and holds every row of the partition
+      long rows = countPartition(name);
+      if (archived != rows) {
+        log.error("Not dropping {} partition {}: the archive for {} has {} row(s) but the partition has {}",
+            TABLE, name, month, archived, rows);
+        continue;
+      }
+      jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + name);
+      log.info("Dropped {} partition {} after archiving", TABLE, name);
+      searchIndex.removeBefore(month.plusMonths(1).atDay(1).atStartOfDay(ZoneId.systemDefault()).toOffsetDateTime());
+    }
+  }
+
+  /**
+   * Archives exactly the rows stored in the partition, so the archive matches what the drop
+   * removes regardless of the time zone the rows were written in.
+   */
+  @SuppressWarnings("unchecked")
+  private long writeArchive(String partition, YearMonth month) {
+    try (Stream<RequestLog> rows = entityManager
+        .createNativeQuery("SELECT * FROM " + TABLE + " PARTITION (" + partition + ") ORDER BY created_at",
+            RequestLog.class)
+        .setHint(HibernateHints.HINT_FETCH_SIZE, Integer.MIN_VALUE)
+        .getResultStream()) {
+      return archive.write(month, rows.peek(entityManager::detach));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not archive request_log for " + month, e);
+    }
+  }
+
+  private long countArchived(YearMonth month) {
+    try (Stream<RequestLog> rows = archive.stream(month, null)) {
+      return rows.count();
+    }
+  }
+
+  private long countPartition(String partition) {
+    Long count = jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM " + TABLE + " PARTITION (" + partition + ")", Long.class);
+    return count == null ? 0 : count;
+  }
+
+  private List<String> partitions() {
+    return jdbcTemplate.queryForList(
+        "SELECT PARTITION_NAME FROM information_schema.PARTITIONS "
+            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL "
+            + "ORDER BY PARTITION_ORDINAL_POSITION", String.class, TABLE);
+  }
+
+  private boolean isMySql() {
+    Boolean mysql = jdbcTemplate.execute((ConnectionCallback<Boolean>) c ->
+        c.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("mysql"));
+    return Boolean.TRUE.equals(mysql);
+  }
+
+  private static String partitionDefinition(YearMonth month) {
+    return "PARTITION " + month.format(PARTITION_NAME) + " VALUES LESS THAN ('"
+        + month.plusMonths(1).atDay(1).atStartOfDay().format(BOUND) + "')";
+  }
+}
@@ -1,9 +1,22 @@
 package com.kevinmazali.portfolio.service;
 
+import com.kevinmazali.portfolio.model.CompressedTextConverter;
 import com.kevinmazali.portfolio.model.RequestLog;
 import com.kevinmazali.portfolio.repository.RequestLogRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Persists minimal request/response audit information for the public API.
@@ -11,10 +24,17 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 public class RequestLogService {
 
+    private static final CompressedTextConverter PAYLOAD = new CompressedTextConverter();
+
     private final RequestLogRepository requestLogRepository;
+    private final ConversationSearchIndex searchIndex;
+    private final JdbcTemplate jdbcTemplate;
 
-    public RequestLogService(RequestLogRepository requestLogRepository) {
+    public RequestLogService(RequestLogRepository requestLogRepository, ConversationSearchIndex searchIndex,
+                             JdbcTemplate jdbcTemplate) {
         this.requestLogRepository = requestLogRepository;
+        this.searchIndex = searchIndex;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     /**
@@ -32,8 +52,51 @@ public class RequestLogService {
         log.setMethod(method);
         log.setPayload(payload);
         log.setRequesterId(requesterId);
-        requestLogRepository.save(log);
+        RequestLog saved = requestLogRepository.save(log);
+        // Index only once the row is committed, so a rollback leaves no phantom hit
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                searchIndex.add(saved);
+            }
+        });
     }
-}
-
 
+    /**
+     * Stores several audit log entries with one multi-row INSERT. The ids generated by the
+     * database are set on the entries, which are indexed for search once committed.
+     *
+     * @param logs entries with path, method, payload, requester and creation time set
+     */
+    @Transactional
+    public void saveAll(List<RequestLog> logs) {
+        if (logs.isEmpty()) return;
+        String sql = "INSERT INTO request_log (path, method, payload, requester_id, created_at) VALUES "
+            + String.join(", ", Collections.nCopies(logs.size(), "(?, ?, ?, ?, ?)"));
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            int i = 1;
+            for (RequestLog log : logs) {
+                ps.setString(i++, log.getPath());
+                ps.setString(i++, log.getMethod());
+                ps.setBytes(i++, PAYLOAD.convertToDatabaseColumn(log.getPayload()));
+                ps.setString(i++, log.getRequesterId());
+                // Same mapping as Hibernate: the instant in the JVM time zone
+                ps.setTimestamp(i++, Timestamp.from(log.getCreatedAt().toInstant()));
+            }
+            return ps;
+        }, keys);
+        List<Map<String, Object>> ids = keys.getKeyList();
+        for (int i = 0; i < logs.size() && i < ids.size(); i++) {
+            Object id = ids.get(i).values().iterator().next();
+            logs.get(i).setId(((Number) id).longValue());
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                logs.forEach(searchIndex::add);
+            }
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package com.kevinmazali.portfolio.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Who a question is answered for: the chat it belongs to (conversation memory, token
+ * accounting) and the client address (token accounting).
+ *
+ * @param chatId the chat, or {@code null} for a stateless answer
+ * @param ip the client address, or {@code null} when not known
+ */
+public record Requester(String chatId, String ip) {
+
+  /** Work the application does on its own, e.g. the startup warm-up; never limited. */
+  public static final Requester SYSTEM = new Requester(null, null);
+
+  private static final int MAX_ACCOUNT_CHARS = 128;
+
+  public static Requester chat(String chatId) {
+    return new Requester(chatId, null);
+  }
+
+  /** Token accounts charged for this requester's chat model calls. */
+  public List<String> accounts() {
+    List<String> accounts = new ArrayList<>(2);
+    if (chatId != null && !chatId.isBlank()) accounts.add(account("chat:", chatId));
+    if (ip != null && !ip.isBlank()) accounts.add(account("ip:", ip));
+    if (accounts.isEmpty()) accounts.add("system");
+    return accounts;
+  }
+
+  private static String account(String prefix, String id) {
+    String account = prefix + id.strip();
+    return account.length() <= MAX_ACCOUNT_CHARS ? account : account.substring(0, MAX_ACCOUNT_CHARS);
+  }
+}
@@ -0,0 +1,171 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.config.RetrievalProperties;
+import com.kevinmazali.portfolio.vectorstore.HybridSearchStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.ref.WeakReference;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Per-chat cache of the chunks retrieved for the previous turn.
+ *
+ * <p>Each entry keeps the fused chunk list and the normalized mean (centroid) of the query
+ * embeddings that produced it. A follow-up question is compared against the centroid: close
+ * enough and the chunks are reused as is, moderately close and the caller tops them up with a
+ * single vector and BM25 search, otherwise it runs the full retrieval. Entries are bound to
+ * the store instance and content version they were retrieved from, and to the filter.</p>
+ *
+ * <p>Outcomes are counted in {@code rag.retrieval.cache} (tag {@code outcome}) and the
+ * observed similarities in {@code rag.retrieval.cache.similarity}, so the thresholds can
+ * be tuned from real traffic.</p>
+ */
+@Component
+public class RetrievalCache {
+
+  public enum Outcome { HIT, TOP_UP, MISS }
+
+  /** Result of a lookup; {@code documents} is empty on a miss. */
+  public record Lookup(Outcome outcome, List<Document> documents) {
+    static final Lookup MISS = new Lookup(Outcome.MISS, List.of());
+  }
+
+  private final RetrievalProperties props;
+  private final Clock clock;
+  private final Map<String, Entry> entries;
+  private final Counter hits;
+  private final Counter topUps;
+  private final Counter misses;
+  private final DistributionSummary similarity;
+
+  @Autowired
+  public RetrievalCache(RetrievalProperties props, MeterRegistry meterRegistry) {
+    this(props, meterRegistry, Clock.systemUTC());
+  }
+
+  RetrievalCache(RetrievalProperties props, MeterRegistry meterRegistry, Clock clock) {
+    this.props = props;
+    this.clock = clock;
+    int maxChats = Math.max(1, props.getCacheMaxChats());
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > maxChats;
+      }
+    };
+    this.hits = outcomeCounter(meterRegistry, "hit");
+    this.topUps = outcomeCounter(meterRegistry, "top_up");
+    this.misses = outcomeCounter(meterRegistry, "miss");
+    this.similarity = DistributionSummary.builder("rag.retrieval.cache.similarity")
+        .description("Cosine similarity of follow-up questions to the cached query centroid")
+        .publishPercentiles(0.5, 0.9)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Classifies a new turn of {@code chatId} against its cached retrieval.
+   */
+  public Lookup lookup(String chatId, HybridSearchStore store, String filter, float[] queryEmbedding) {
+    Entry e;
+    synchronized (entries) {
+      e = chatId == null ? null : entries.get(chatId);
+    }
+    if (e == null || !e.matches(store, filter) || clock.instant().isAfter(e.expiresAt)) {
+      misses.increment();
+      return Lookup.MISS;
+    }
+    double sim = dot(e.centroid(), normalized(queryEmbedding));
+    similarity.record(sim);
+    if (sim >= props.getCacheReuseThreshold()) {
+      hits.increment();
+      return new Lookup(Outcome.HIT, e.documents);
+    }
+    if (sim >= props.getCacheTopUpThreshold()) {
+      topUps.increment();
+      return new Lookup(Outcome.TOP_UP, e.documents);
+    }
+    misses.increment();
+    return Lookup.MISS;
+  }
+
+  /**
+   * Stores the chunks used for a turn. After a miss the entry starts over from this query;
+   * after a hit or top-up the query is folded into the existing centroid.
+   */
+  public void record(String chatId, HybridSearchStore store, String filter, float[] queryEmbedding,
+                     List<Document> documents, Outcome outcome) {
+    if (chatId == null || queryEmbedding == null) return;
+    Instant expiresAt = clock.instant().plus(props.getCacheTtl());
+    synchronized (entries) {
+      Entry previous = entries.get(chatId);
+      float[] sum = normalized(queryEmbedding);
+      int count = 1;
+      if (outcome != Outcome.MISS && previous != null && previous.matches(store, filter)
+          && previous.sum.length == sum.length) {
+        for (int i = 0; i < sum.length; i++) sum[i] += previous.sum[i];
+        count += previous.count;
+      }
+      entries.put(chatId, new Entry(new WeakReference<>(store), store.version(), normalizeFilter(filter),
+          sum, count, List.copyOf(documents), expiresAt));
+    }
+  }
+
+  public void evict(String chatId) {
+    synchronized (entries) {
+      entries.remove(chatId);
+    }
+  }
+
+  private static Counter outcomeCounter(MeterRegistry registry, String outcome) {
+    return Counter.builder("rag.retrieval.cache")
+        .description("Per-chat retrieval cache lookups by outcome")
+        .tag("outcome", outcome)
+        .register(registry);
+  }
+
+  private static String normalizeFilter(String filter) {
+    return filter == null ? "" : filter.strip();
+  }
+
+  private static float[] normalized(float[] v) {
+    double sum = 0;
+    for (float x : v) sum += x * x;
+    float inv = sum == 0 ? 0f : (float) (1.0 / Math.sqrt(sum));
+    float[] out = new float[v.length];
+    for (int i = 0; i < v.length; i++) out[i] = v[i] * inv;
+    return out;
+  }
+
+  private static double dot(float[] a, float[] b) {
+    if (a.length != b.length) return -1;
+    double sum = 0;
+    for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+    return sum;
+  }
+
+  /**
+   * @param sum sum of the normalized query embeddings folded into this entry
+   */
+  private record Entry(WeakReference<HybridSearchStore> store, long version, String filter, float[] sum, int count,
+                       List<Document> documents, Instant expiresAt) {
+
+    boolean matches(HybridSearchStore current, String requestFilter) {
+      return store.get() == current && version == current.version()
+          && Objects.equals(filter, normalizeFilter(requestFilter));
+    }
+
+    float[] centroid() {
+      return normalized(sum);
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.config.QuotaProperties;
+import com.kevinmazali.portfolio.model.TokenUsage;
+import com.kevinmazali.portfolio.model.dto.TokenUsageDtos;
+import com.kevinmazali.portfolio.repository.TokenUsageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chat model token usage per requester, with daily quotas.
+ *
+ * <p>Prompt and completion tokens from every {@link ChatResponse} (translation and answer)
+ * are added to {@link LongAdder}s per UTC day and account, so recording never blocks the
+ * request threads. Every account of the {@link Requester} is charged: its chat and its
+ * client address. Changed counters are written to {@code usage_tokens} periodically as
+ * absolute day totals, and today's totals are reloaded on start, so quotas survive a
+ * restart.</p>
+ *
+ * <p>{@link #allows} is checked before each chat model call. Quotas are soft: the call that
+ * crosses the limit completes, later calls are refused. Concurrent identical questions share
+ * one computation (see {@link OpenAIServiceImpl}); its tokens are charged to the requester
+ * that started it. Tokens of a losing hedged call are not attributed.</p>
+ *
+ * <p>Also counted in {@code rag.llm.tokens}, tagged with {@code operation} and {@code type}.</p>
+ */
+@Slf4j
+@Service
+public class TokenAccounting {
+
+  private final TokenUsageRepository repository;
+  private final QuotaProperties props;
+  private final MeterRegistry registry;
+  private final TransactionTemplate tx;
+  private final Clock clock;
+  private final Map<Key, Counters> counters = new ConcurrentHashMap<>();
+
+  @Autowired
+  public TokenAccounting(TokenUsageRepository repository, QuotaProperties props, MeterRegistry registry,
+                         PlatformTransactionManager transactionManager) {
+    this(repository, props, registry, new TransactionTemplate(transactionManager), Clock.systemUTC());
+  }
+
+  TokenAccounting(TokenUsageRepository repository, QuotaProperties props, MeterRegistry registry,
+                  TransactionTemplate tx, Clock clock) {
+    this.repository = repository;
+    this.props = props;
+    this.registry = registry;
+    this.tx = tx;
+    this.clock = clock;
+  }
+
+  /** Reloads today's totals, so quotas carry over a restart. */
+  @EventListener(ApplicationStartedEvent.class)
+  public synchronized void restore() {
+    try {
+      LocalDate today = today();
+      List<TokenUsage> rows = repository.findByDay(today);
+      for (TokenUsage row : rows) {
+        Counters c = counters(new Key(today, row.getAccount()));
+        c.prompt.add(row.getPromptTokens());
+        c.completion.add(row.getCompletionTokens());
+        c.calls.add(row.getCalls());
+        // Requests may already have been recorded; those are still unflushed
+        c.flushedCalls += row.getCalls();
+      }
+      log.info("Token usage restored for {} account(s)", rows.size());
+    } catch (RuntimeException e) {
+      log.error("Could not restore token usage; quotas start from zero today", e);
+    }
+  }
+
+  /** Adds the usage reported in {@code response} to every account of {@code requester}. */
+  public void record(Requester requester, String operation, ChatResponse response) {
+    Usage usage = response == null || response.getMetadata() == null ? null : response.getMetadata().getUsage();
+    long prompt = usage == null || usage.getPromptTokens() == null ? 0 : usage.getPromptTokens();
+    long completion = usage == null || usage.getCompletionTokens() == null ? 0 : usage.getCompletionTokens();
+    record(requester, operation, prompt, completion);
+  }
+
+  void record(Requester requester, String operation, long prompt, long completion) {
+    LocalDate today = today();
+    for (String account : requester.accounts()) {
+      Counters c = counters(new Key(today, account));
+      c.prompt.add(prompt);
+      c.completion.add(completion);
+      c.calls.increment();
+    }
+    tokens(operation, "prompt").increment(prompt);
+    tokens(operation, "completion").increment(completion);
+  }
+
+  /** Whether every account of {@code requester} is still under its daily quota. */
+  public boolean allows(Requester requester) {
+    if (!props.isEnabled()) return true;
+    LocalDate today = today();
+    for (String account : requester.accounts()) {
+      long limit = limit(account);
+      if (limit <= 0) continue;
+      Counters c = counters.get(new Key(today, account));
+      if (c != null && c.total() >= limit) return false;
+    }
+    return true;
+  }
+
+  /** Time until the quotas reset at midnight UTC. */
+  public Duration untilReset() {
+    return Duration.between(clock.instant(), today().plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+  }
+
+  /**
+   * Accounts with the most tokens over the last {@code days} days (1 is today), flushing
+   * pending counts first.
+   */
+  public TokenUsageDtos.TopConsumers topConsumers(int days, int top) {
+    flush();
+    LocalDate to = today();
+    LocalDate from = to.minusDays(Math.max(1, days) - 1L);
+    List<TokenUsageDtos.Consumer> consumers = repository.topConsumers(from, PageRequest.of(0, Math.max(1, top)))
+        .stream()
+        .map(t -> new TokenUsageDtos.Consumer(t.getAccount(), t.getPromptTokens(), t.getCompletionTokens(),
+            t.getPromptTokens() + t.getCompletionTokens(), t.getCalls()))
+        .toList();
+    return new TokenUsageDtos.TopConsumers(from, to,
+        new TokenUsageDtos.Quota(props.isEnabled(), props.getChatDailyTokens(), props.getIpDailyTokens()), consumers);
+  }
+
+  /** Writes the totals of changed accounts and drops finished days from memory. */
+  @Scheduled(fixedDelayString = "${sfg.aiapp.quota.flush-interval-ms:30000}")
+  public synchronized void flush() {
+    LocalDate today = today();
+    List<TokenUsage> rows = new ArrayList<>();
+    Map<Key, Long> flushed = new HashMap<>();
+    counters.forEach((key, c) -> {
+      long calls = c.calls.sum();
+      if (calls == c.flushedCalls) return;
+      TokenUsage row = new TokenUsage();
+      row.setId(TokenUsage.id(key.day(), key.account()));
+      row.setDay(key.day());
+      row.setAccount(key.account());
+      row.setPromptTokens(c.prompt.sum());
+      row.setCompletionTokens(c.completion.sum());
+      row.setCalls(calls);
+      rows.add(row);
+      flushed.put(key, calls);
+    });
+    if (!rows.isEmpty()) {
+      try {
+        tx.executeWithoutResult(status -> repository.saveAll(rows));
+        flushed.forEach((key, calls) -> counters.get(key).flushedCalls = calls);
+      } catch (RuntimeException e) {
+        log.warn("Could not flush token usage; will retry", e);
+        return;
+      }
+    }
+    counters.entrySet().removeIf(e -> e.getKey().day().isBefore(today)
+        && e.getValue().calls.sum() == e.getValue().flushedCalls);
+  }
+
+  @PreDestroy
+  void flushOnShutdown() {
+    flush();
+  }
+
+  private long limit(String account) {
+    if (account.startsWith("chat:")) return props.getChatDailyTokens();
+    if (account.startsWith("ip:")) return props.getIpDailyTokens();
+    return 0; // system
+  }
+
+  private Counters counters(Key key) {
+    return counters.computeIfAbsent(key, k -> new Counters());
+  }
+
+  private Counter tokens(String operation, String type) {
+    return Counter.builder("rag.llm.tokens")
+        .description("Chat model tokens used")
+        .tag("operation", operation)
+        .tag("type", type)
+        .register(registry);
+  }
+
+  private LocalDate today() {
+    return LocalDate.now(clock.withZone(ZoneOffset.UTC));
+  }
+
+  private record Key(LocalDate day, String account) {}
+
+  private static final class Counters {
+    final LongAdder prompt = new LongAdder();
+    final LongAdder completion = new LongAdder();
+    final LongAdder calls = new LongAdder();
+    /** Calls included in the last written row; only touched by restore and flush. */
+    volatile long flushedCalls;
+
+    long total() {
+      return prompt.sum() + completion.sum();
+    }
+  }
+}
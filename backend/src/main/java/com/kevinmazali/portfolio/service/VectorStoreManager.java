@@ -0,0 +1,751 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.config.MutationLogProperties;
+import com.kevinmazali.portfolio.vectorstore.DocumentIngestionPipeline;
+import com.kevinmazali.portfolio.vectorstore.HybridSearchStore;
+import com.kevinmazali.portfolio.vectorstore.MutationLog;
+import com.kevinmazali.portfolio.vectorstore.NearDuplicateFilter;
+import com.kevinmazali.portfolio.vectorstore.ShardedVectorStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Owns the serving vector store and its lifecycle.
+ *
+ * <p>Initialization runs on a background thread once the application context has
+ * started: an existing store is loaded from disk, otherwise one is built from the
+ * source documents and persisted. Until that finishes the application serves
+ * traffic but {@link #isReady()} is {@code false}; readiness is reported through
+ * the {@code vectorStore} health contributor and /ask answers 503.</p>
+ *
+ * <p>Content refreshes build a new store <em>generation</em> in the background while
+ * the current one keeps serving, then swap it in atomically. Callers pin a generation
+ * once per request via {@link #current()}, so in-flight requests finish on the store
+ * they started with. Every generation is persisted as a versioned snapshot under
+ * {@code generations/} next to the store file, and the previous generation can be
+ * restored with {@link #rollback()}.</p>
+ *
+ * <p>With more than one shard configured, each shard of a snapshot is its own file
+ * ({@code vectorstore-<n>.shard-<i>.json}) and the snapshot and store files are small
+ * manifests pointing to them (see {@link ShardedVectorStore}).</p>
+ *
+ * <p>Single documents can be appended to the serving generation with {@link #append}.
+ * Rebuilds and appends run on the same background thread, so an upload is never lost
+ * to a concurrent rebuild.</p>
+ *
+ * <p>An append does not rewrite the snapshot. Its chunks, embeddings included, go to the
+ * generation's {@link MutationLog} ({@code generations/vectorstore-<n>.wal/}) as they are
+ * embedded, and one fsync commits the upload, so it costs I/O in proportion to the
+ * document. Loading a snapshot replays its log. The log is folded into a new snapshot
+ * once it reaches {@code sfg.aiapp.mutation-log.compact-bytes}, and otherwise every
+ * compaction interval while it is not empty.</p>
+ */
+@Slf4j
+@Service
+public class VectorStoreManager {
+
+  /** Lifecycle phase of the serving store. */
+  public enum State { STARTING, LOADING, BUILDING, READY, FAILED }
+
+  /** Snapshot of initialization/rebuild progress, exposed through health details and the admin API. */
+  public record Status(
+      State state,
+      long generation,
+      boolean rebuilding,
+      int processedDocuments,
+      int totalDocuments,
+      int chunks,
+      long elapsedMillis,
+      String error,
+      Deduplication deduplication
+  ) {}
+
+  /**
+   * What near-duplicate elimination saved for the serving generation (build plus appends).
+   * Tokens are estimated at four characters each; index bytes from the average persisted
+   * size of a chunk.
+   */
+  public record Deduplication(
+      int checkedChunks,
+      int duplicateChunks,
+      int embeddingRequestsSaved,
+      long embeddingTokensSaved,
+      long indexBytesSaved
+  ) {
+    static final Deduplication NONE = new Deduplication(0, 0, 0, 0, 0);
+  }
+
+  /**
+   * A built store together with its version number and the duplicate filter its chunks
+   * went through ({@code null} until needed for a loaded store, or when disabled).
+   * Live uploads are appended to the serving generation.
+   */
+  private record Generation(long number, HybridSearchStore store, NearDuplicateFilter deduplicator) {}
+
+  private static final Pattern SNAPSHOT_NAME = Pattern.compile("vectorstore-(\\d+)\\.json");
+  private static final int RETAINED_SNAPSHOTS = 3;
+
+  private final DocumentIngestionPipeline pipeline;
+  private final MutationLogProperties mutationLogProperties;
+
+  private final AtomicReference<Generation> current = new AtomicReference<>();
+  private volatile Generation previous;
+  private final AtomicBoolean rebuilding = new AtomicBoolean();
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+    Thread t = new Thread(r, "vectorstore-init");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private final CompletableFuture<Void> ready = new CompletableFuture<>();
+  private volatile State state = State.STARTING;
+  private volatile int totalDocuments;
+  private final AtomicInteger processedDocuments = new AtomicInteger();
+  private final AtomicInteger chunks = new AtomicInteger();
+  private volatile Instant startedAt = Instant.now();
+  private volatile Instant finishedAt;
+  private volatile String error;
+  private volatile Deduplication deduplication = Deduplication.NONE;
+  private int requestsSaved;
+
+  /** Log of the uploads to {@code loggedStore}; only used on the background thread. */
+  private MutationLog mutationLog;
+  private HybridSearchStore loggedStore;
+  /** A log write failed, so the log may end in a torn record until it is compacted. */
+  private boolean mutationLogFailed;
+
+  public VectorStoreManager(DocumentIngestionPipeline pipeline, MutationLogProperties mutationLogProperties) {
+    this.pipeline = pipeline;
+    this.mutationLogProperties = mutationLogProperties;
+  }
+
+  /** Starts loading or building the store without holding up context startup. */
+  @EventListener(ApplicationStartedEvent.class)
+  public void initializeInBackground() {
+    startedAt = Instant.now();
+    executor.submit(this::initialize);
+  }
+
+  /** Whether a store is loaded and can serve searches. */
+  public boolean isReady() {
+    return state == State.READY;
+  }
+
+  /** Completes when the first generation is serving, or exceptionally when initialization fails. */
+  public CompletableFuture<Void> whenReady() {
+    return ready.copy();
+  }
+
+  /**
+   * Returns the serving store. Callers should fetch it once per request and keep
+   * the reference, so a concurrent swap does not change the store mid-request.
+   *
+   * @throws IllegalStateException when initialization has not completed
+   */
+  public HybridSearchStore current() {
+    Generation generation = current.get();
+    if (generation == null) {
+      throw new IllegalStateException("Vector store is not ready (state=" + state + ")");
+    }
+    return generation.store();
+  }
+
+  /** Current initialization/rebuild progress. */
+  public Status status() {
+    Instant end = finishedAt != null ? finishedAt : Instant.now();
+    Generation generation = current.get();
+    return new Status(
+        state,
+        generation != null ? generation.number() : 0,
+        rebuilding.get(),
+        processedDocuments.get(),
+        totalDocuments,
+        generation != null && !rebuilding.get() ? generation.store().size() : chunks.get(),
+        Duration.between(startedAt, end).toMillis(),
+        error,
+        deduplication
+    );
+  }
+
+  /**
+   * Builds a new generation from the source documents in the background and swaps it
+   * in when complete. The current generation keeps serving meanwhile.
+   *
+   * @return {@code false} when the store is not ready yet or a rebuild is already running
+   */
+  public boolean rebuild() {
+    if (!isReady() || !rebuilding.compareAndSet(false, true)) {
+      return false;
+    }
+    executor.submit(() -> {
+      try {
+        resetProgress();
+        ShardedVectorStore store = pipeline.newStore();
+        NearDuplicateFilter deduplicator = pipeline.newDeduplicator(null);
+        build(store, deduplicator);
+        long number = current.get().number() + 1;
+        compact(store, number);
+        swap(new Generation(number, store, deduplicator));
+        reportDeduplication(deduplicator, store, number);
+        log.info("Vector store generation {} is now serving: {} chunks in {} ms",
+            number, store.size(), Duration.between(startedAt, finishedAt).toMillis());
+      } catch (Exception e) {
+        finishedAt = Instant.now();
+        error = e.getMessage();
+        log.error("Vector store rebuild failed, keeping generation {}: {}", current.get().number(), e.getMessage(), e);
+      } finally {
+        rebuilding.set(false);
+      }
+    });
+    return true;
+  }
+
+  /**
+   * Parses, chunks and embeds one document and appends it to the serving generation and
+   * its mutation log (or, with the log disabled, re-saves its snapshot). Runs on the
+   * background thread after any pending initialization or rebuild.
+   *
+   * @param resource the document to ingest
+   * @param onStart invoked when processing begins
+   * @return future completing with the number of chunks added
+   */
+  public CompletableFuture<Integer> append(Resource resource, Runnable onStart) {
+    return CompletableFuture.supplyAsync(() -> {
+      onStart.run();
+      Generation serving = current.get();
+      if (serving == null) {
+        throw new IllegalStateException("Vector store is not ready (state=" + state + ")");
+      }
+      if (serving.deduplicator() == null) {
+        NearDuplicateFilter seeded = pipeline.newDeduplicator(serving.store());
+        if (seeded != null && current.compareAndSet(serving, new Generation(serving.number(), serving.store(), seeded))) {
+          serving = current.get();
+          requestsSaved = 0;
+        }
+      }
+      NearDuplicateFilter deduplicator = serving.deduplicator();
+      int duplicatesBefore = deduplicator != null ? deduplicator.duplicates() : 0;
+      MutationLog uploadLog = mutationLog(serving);
+      int added;
+      try {
+        added = ingest(serving.store(), resource, deduplicator, uploadLog);
+      } catch (RuntimeException e) {
+        // The filter has seen the removed chunks; drop it so the next append re-seeds it from the store
+        current.compareAndSet(serving, new Generation(serving.number(), serving.store(), null));
+        if (uploadLog != null) {
+          try {
+            endTransaction(serving, false);
+          } catch (IOException | RuntimeException suppressed) {
+            e.addSuppressed(suppressed);
+          }
+        }
+        throw e;
+      }
+      if (added == 0) {
+        if (deduplicator != null && deduplicator.duplicates() > duplicatesBefore) requestsSaved++;
+        reportDeduplication(deduplicator, serving.store(), serving.number());
+        return 0;
+      }
+      try {
+        if (uploadLog != null) {
+          endTransaction(serving, true);
+        } else {
+          Path snapshot = snapshotFile(serving.number());
+          serving.store().save(snapshot.toFile());
+          publishAsCurrent(snapshot);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      reportDeduplication(deduplicator, serving.store(), serving.number());
+      log.info("Appended {} chunks from '{}' to generation {}", added, resource.getFilename(), serving.number());
+      return added;
+    }, executor);
+  }
+
+  /**
+   * Restores the previous generation, from memory when available or from its snapshot.
+   * Runs on the background thread after any pending upload.
+   *
+   * @return the generation number now serving, or empty when there is nothing to roll back to
+   */
+  public Optional<Long> rollback() throws IOException {
+    if (!isReady() || rebuilding.get()) {
+      return Optional.empty();
+    }
+    try {
+      return executor.submit(this::restorePrevious).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while rolling back the vector store", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException io) throw io;
+      if (e.getCause() instanceof RuntimeException re) throw re;
+      throw new IllegalStateException("Vector store rollback failed", e.getCause());
+    }
+  }
+
+  /**
+   * A restart loads the store file under the newest snapshot number, so the target's logged
+   * uploads are saved into its snapshot, and the snapshots, shard files and logs of every
+   * newer generation, the rolled back one included, are removed once the target is published.
+   */
+  private synchronized Optional<Long> restorePrevious() throws IOException {
+    Generation serving = current.get();
+    Generation target = previous;
+    if (target == null) {
+      Optional<Path> snapshot = snapshots().stream()
+          .filter(p -> snapshotNumber(p) < serving.number())
+          .max(Comparator.comparingLong(VectorStoreManager::snapshotNumber));
+      if (snapshot.isEmpty()) {
+        return Optional.empty();
+      }
+      ShardedVectorStore store = pipeline.newStore();
+      store.load(snapshot.get().toFile());
+      replayLog(store, snapshotNumber(snapshot.get()));
+      target = new Generation(snapshotNumber(snapshot.get()), store, null);
+    }
+    if (MutationLog.size(logDir(target.number())) > 0) {
+      compact(target.store(), target.number());
+    } else {
+      publishAsCurrent(snapshotFile(target.number()));
+    }
+    if (loggedStore == serving.store()) closeMutationLog();
+    for (Path newer : snapshots()) {
+      long number = snapshotNumber(newer);
+      if (number <= target.number()) continue;
+      // The log first: a crash midway must not replay it onto the restored snapshot
+      MutationLog.delete(logDir(number));
+      for (Path file : snapshotFiles(newer)) {
+        Files.deleteIfExists(file);
+      }
+    }
+    MutationLog.delete(logDir(serving.number()));
+    current.set(target);
+    previous = null;
+    reportDeduplication(target.deduplicator(), target.store(), target.number());
+    log.info("Rolled back vector store from generation {} to {}", serving.number(), target.number());
+    return Optional.of(target.number());
+  }
+
+  private void initialize() {
+    try {
+      pipeline.logEmbeddingModel();
+      File vectorStoreFile = pipeline.vectorStoreFile();
+      ShardedVectorStore store = pipeline.newStore();
+      NearDuplicateFilter deduplicator = null;
+      long number;
+      boolean replayed = false;
+
+      if (vectorStoreFile.exists()) {
+        state = State.LOADING;
+        log.info("Laster eksisterende vector store fra: {}", vectorStoreFile.getPath());
+        store.load(vectorStoreFile);
+        number = snapshots().stream().mapToLong(VectorStoreManager::snapshotNumber).max().orElse(0);
+        if (number == 0) {
+          // Store predates generations: record it as the first snapshot so it can be rolled back to
+          number = 1;
+          Path first = snapshotFile(number);
+          Files.createDirectories(first.getParent());
+          Files.copy(vectorStoreFile.toPath(), first, StandardCopyOption.REPLACE_EXISTING);
+        }
+        replayed = replayLog(store, number).transactions() > 0;
+        if (!store.matchesLayout(vectorStoreFile)) {
+          // Shard count changed: the chunks were re-routed in memory, save them in the new layout
+          compact(store, number);
+          replayed = false;
+        }
+      } else {
+        state = State.BUILDING;
+        log.info("Ingen eksisterende vector store. Leser og indekserer dokumenter ...");
+        deduplicator = pipeline.newDeduplicator(null);
+        build(store, deduplicator);
+        number = 1;
+        compact(store, number);
+        log.info("Vector store lagret til: {}", vectorStoreFile.getPath());
+      }
+
+      Generation generation = new Generation(number, store, deduplicator);
+      current.set(generation);
+      if (replayed) {
+        // Open the log now so the next compaction folds the replayed uploads into the snapshot
+        mutationLog(generation);
+      }
+      reportDeduplication(deduplicator, store, number);
+      finishedAt = Instant.now();
+      state = State.READY;
+      log.info("Vector store ready (generation {}): {} chunks in {} ms",
+          number, store.size(), Duration.between(startedAt, finishedAt).toMillis());
+      ready.complete(null);
+    } catch (Exception e) {
+      finishedAt = Instant.now();
+      error = e.getMessage();
+      state = State.FAILED;
+      log.error("Vector store initialization failed: {}", e.getMessage(), e);
+      ready.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * Parses, chunks and embeds every source document into {@code store}, tracking progress.
+   * Chunks that nearly duplicate an earlier one are dropped before embedding. The store is
+   * indexed once at the end; nothing searches it before it is swapped in.
+   */
+  private void build(HybridSearchStore store, NearDuplicateFilter deduplicator) throws Exception {
+    List<Resource> resources = pipeline.resolveResources();
+    totalDocuments = resources.size();
+    requestsSaved = 0;
+    try (HybridSearchStore.Indexing indexing = store.deferIndexing()) {
+      buildFrom(resources, store, deduplicator);
+    }
+    finishedAt = Instant.now();
+  }
+
+  private void buildFrom(List<Resource> resources, HybridSearchStore store, NearDuplicateFilter deduplicator) {
+    for (Resource res : resources) {
+      try {
+        int duplicatesBefore = deduplicator != null ? deduplicator.duplicates() : 0;
+        int added = ingest(store, res, deduplicator, null);
+        if (added == 0 && deduplicator != null && deduplicator.duplicates() > duplicatesBefore) {
+          requestsSaved++;
+        }
+        if (added > 0) {
+          log.debug("Lagt til {} dokumenter fra '{}'", added, res.getFilename());
+        }
+      } catch (Exception e) {
+        log.error("Feil ved lesing/indeksering av '{}': {}", res.getFilename(), e.getMessage(), e);
+      } finally {
+        processedDocuments.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Streams one document into {@code store}, embedding its chunks batch by batch as the
+   * parser produces them. When the document fails partway, the chunks already added are
+   * removed again. The document is indexed once when it is complete, so searches never see
+   * part of it.
+   *
+   * @param mutationLog receives each embedded batch when given; the caller ends the transaction
+   * @return the number of chunks added
+   */
+  private int ingest(HybridSearchStore store, Resource res, NearDuplicateFilter deduplicator,
+                     @Nullable MutationLog mutationLog) {
+    List<String> ids = new ArrayList<>();
+    try (HybridSearchStore.Indexing indexing = store.deferIndexing()) {
+      try {
+        return pipeline.ingest(res, deduplicator, batch -> {
+          store.add(batch);
+          List<String> batchIds = batch.stream().map(Document::getId).toList();
+          ids.addAll(batchIds);
+          chunks.addAndGet(batch.size());
+          if (mutationLog != null) {
+            try {
+              mutationLog.add(store.contents(batchIds));
+            } catch (IOException e) {
+              mutationLogFailed = true;
+              throw new UncheckedIOException("Could not write to the mutation log", e);
+            }
+          }
+        });
+      } catch (RuntimeException e) {
+        if (!ids.isEmpty()) {
+          store.delete(ids);
+          chunks.addAndGet(-ids.size());
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Publishes and logs what deduplication saved for the serving generation. A document
+   * whose chunks were all duplicates saves a whole embedding request.
+   */
+  private void reportDeduplication(NearDuplicateFilter deduplicator, HybridSearchStore store, long number) {
+    if (deduplicator == null) {
+      deduplication = Deduplication.NONE;
+      return;
+    }
+    long bytesPerChunk = 0;
+    try {
+      long bytes = 0;
+      for (Path file : snapshotFiles(snapshotFile(number))) {
+        if (Files.exists(file)) bytes += Files.size(file);
+      }
+      bytesPerChunk = store.size() > 0 ? bytes / store.size() : 0;
+    } catch (IOException e) {
+      log.debug("Could not size snapshot {}: {}", number, e.getMessage());
+    }
+    deduplication = new Deduplication(deduplicator.checked(), deduplicator.duplicates(), requestsSaved,
+        deduplicator.duplicateChars() / 4, deduplicator.duplicates() * bytesPerChunk);
+    if (deduplicator.duplicates() > 0) {
+      log.info("Deduplication (generation {}): skipped {} of {} chunks, {} embedding request(s), ~{} tokens, ~{} KB of index",
+          number, deduplication.duplicateChunks(), deduplication.checkedChunks(),
+          deduplication.embeddingRequestsSaved(), deduplication.embeddingTokensSaved(),
+          deduplication.indexBytesSaved() / 1024);
+    }
+  }
+
+  /**
+   * Applies the committed uploads logged since snapshot {@code number} was written. The
+   * log is reduced to the last change per chunk first and the store is re-indexed once,
+   * however many uploads there were.
+   */
+  private MutationLog.Replay replayLog(HybridSearchStore store, long number) throws IOException {
+    Map<String, SimpleVectorStoreContent> upserts = new LinkedHashMap<>();
+    Set<String> deletes = new HashSet<>();
+    MutationLog.Replay replay = MutationLog.replay(logDir(number), mutations -> {
+      for (MutationLog.Mutation mutation : mutations) {
+        switch (mutation) {
+          case MutationLog.Add add -> add.contents().forEach(c -> {
+            upserts.put(c.getId(), c);
+            deletes.remove(c.getId());
+          });
+          case MutationLog.Delete delete -> delete.ids().forEach(id -> {
+            upserts.remove(id);
+            deletes.add(id);
+          });
+        }
+      }
+    });
+    try (HybridSearchStore.Indexing indexing = store.deferIndexing()) {
+      if (!deletes.isEmpty()) store.delete(List.copyOf(deletes));
+      store.restore(List.copyOf(upserts.values()));
+    }
+    if (replay.transactions() > 0 || replay.discardedBytes() > 0) {
+      log.info("Replayed {} upload(s) from the mutation log of generation {}: {} chunk(s) restored, {} removed, {} damaged byte(s) discarded",
+          replay.transactions(), number, upserts.size(), deletes.size(), replay.discardedBytes());
+    }
+    return replay;
+  }
+
+  /**
+   * The log for uploads to {@code serving}, opened on first use. {@code null} when the log
+   * is disabled or cannot be opened; the upload then re-saves the whole snapshot.
+   */
+  @Nullable
+  private MutationLog mutationLog(Generation serving) {
+    if (!mutationLogProperties.isEnabled()) return null;
+    if (mutationLog != null && loggedStore == serving.store()) return mutationLog;
+    closeMutationLog();
+    try {
+      mutationLog = MutationLog.open(logDir(serving.number()), mutationLogProperties.getSegmentBytes());
+      loggedStore = serving.store();
+      mutationLogFailed = false;
+    } catch (IOException e) {
+      log.warn("Could not open the mutation log of generation {}; uploads re-save the snapshot: {}",
+          serving.number(), e.getMessage());
+    }
+    return mutationLog;
+  }
+
+  /**
+   * Commits or aborts the upload in the log, compacting once the log is large. When the
+   * log could not be written, the generation is saved in full instead, which also starts
+   * the log over.
+   */
+  private void endTransaction(Generation serving, boolean commit) throws IOException {
+    if (!mutationLogFailed) {
+      try {
+        if (commit) {
+          mutationLog.commit();
+        } else {
+          mutationLog.abort();
+        }
+        if (mutationLog.size() >= mutationLogProperties.getCompactBytes()) {
+          compact(serving.store(), serving.number());
+        }
+        return;
+      } catch (IOException e) {
+        mutationLogFailed = true;
+      }
+    }
+    log.warn("Mutation log of generation {} could not be written; saving the full snapshot instead", serving.number());
+    compact(serving.store(), serving.number());
+  }
+
+  /** Folds a non-empty log of the serving generation into its snapshot, on the background thread. */
+  @Scheduled(fixedDelayString = "${sfg.aiapp.mutation-log.compact-interval-ms:600000}")
+  public void compactInBackground() {
+    if (!isReady()) return;
+    executor.submit(() -> {
+      Generation serving = current.get();
+      if (mutationLog == null || loggedStore != serving.store() || mutationLog.isEmpty()) return;
+      try {
+        long bytes = mutationLog.size();
+        compact(serving.store(), serving.number());
+        log.info("Folded {} KB of mutation log into snapshot {}", bytes / 1024, serving.number());
+      } catch (IOException | RuntimeException e) {
+        log.warn("Could not compact the mutation log of generation {}: {}", serving.number(), e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * Writes a new snapshot of {@code store} as generation {@code number}, then drops that
+   * generation's log. A crash in between replays the log onto the new snapshot, which
+   * changes nothing: adds replace chunks by id and deletes of missing ids are no-ops.
+   */
+  private void compact(HybridSearchStore store, long number) throws IOException {
+    persist(store, number);
+    if (mutationLog != null && loggedStore == store) {
+      try {
+        mutationLog.reset();
+        mutationLogFailed = false;
+        return;
+      } catch (IOException e) {
+        // Start over with a fresh log on the next upload
+        closeMutationLog();
+      }
+    }
+    MutationLog.delete(logDir(number));
+  }
+
+  private void closeMutationLog() {
+    if (mutationLog == null) return;
+    try {
+      mutationLog.close();
+    } catch (IOException e) {
+      log.debug("Could not close the mutation log: {}", e.getMessage());
+    }
+    mutationLog = null;
+    loggedStore = null;
+  }
+
+  /** Swaps in a new generation, keeping the old one in memory for rollback. */
+  private synchronized void swap(Generation next) {
+    previous = current.getAndSet(next);
+  }
+
+  /**
+   * Writes the versioned snapshot, then atomically replaces the store file so a restart
+   * picks up the same generation. Old snapshots beyond the retention limit are removed.
+   */
+  private void persist(HybridSearchStore store, long number) throws IOException {
+    Path snapshot = snapshotFile(number);
+    Files.createDirectories(snapshot.getParent());
+    List<Path> before = snapshotFiles(snapshot);
+    store.save(snapshot.toFile());
+    publishAsCurrent(snapshot);
+    // Shard files of an overwritten snapshot with another shard count
+    before.removeAll(snapshotFiles(snapshot));
+    for (Path stale : before) {
+      Files.deleteIfExists(stale);
+    }
+
+    List<Path> all = snapshots();
+    all.sort(Comparator.comparingLong(VectorStoreManager::snapshotNumber).reversed());
+    for (Path old : all.subList(Math.min(RETAINED_SNAPSHOTS, all.size()), all.size())) {
+      for (Path file : snapshotFiles(old)) {
+        Files.deleteIfExists(file);
+      }
+      MutationLog.delete(logDir(snapshotNumber(old)));
+    }
+  }
+
+  /**
+   * Points the store file at {@code snapshot}: a plain snapshot is copied, a shard
+   * manifest is rewritten to reference the snapshot's shard files. Either way the
+   * store file is replaced atomically.
+   */
+  private void publishAsCurrent(Path snapshot) throws IOException {
+    Path target = pipeline.vectorStoreFile().toPath();
+    if (ShardedVectorStore.isManifest(snapshot)) {
+      ShardedVectorStore.publish(snapshot, target);
+      return;
+    }
+    Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+    Files.copy(snapshot, tmp, StandardCopyOption.REPLACE_EXISTING);
+    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** The snapshot file plus, for a shard manifest, the shard files it references. */
+  private static List<Path> snapshotFiles(Path snapshot) {
+    List<Path> files = new ArrayList<>();
+    if (ShardedVectorStore.isManifest(snapshot)) {
+      files.addAll(ShardedVectorStore.shardFiles(snapshot));
+    }
+    files.add(snapshot);
+    return files;
+  }
+
+  private Path snapshotFile(long number) throws IOException {
+    return generationsDir().resolve("vectorstore-" + number + ".json");
+  }
+
+  /** Directory of the mutation log of generation {@code number}, next to its snapshot. */
+  private Path logDir(long number) throws IOException {
+    return generationsDir().resolve("vectorstore-" + number + ".wal");
+  }
+
+  private Path generationsDir() throws IOException {
+    return pipeline.vectorStoreFile().toPath().resolveSibling("generations");
+  }
+
+  private List<Path> snapshots() throws IOException {
+    Path dir = generationsDir();
+    if (!Files.isDirectory(dir)) {
+      return new ArrayList<>();
+    }
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.filter(p -> SNAPSHOT_NAME.matcher(p.getFileName().toString()).matches())
+          .collect(Collectors.toCollection(ArrayList::new));
+    }
+  }
+
+  private static long snapshotNumber(Path snapshot) {
+    Matcher m = SNAPSHOT_NAME.matcher(snapshot.getFileName().toString());
+    return m.matches() ? Long.parseLong(m.group(1)) : 0;
+  }
+
+  private void resetProgress() {
+    startedAt = Instant.now();
+    finishedAt = null;
+    error = null;
+    totalDocuments = 0;
+    processedDocuments.set(0);
+    chunks.set(0);
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,165 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.analytics.UsageAnalytics;
+import com.kevinmazali.portfolio.config.WarmUpProperties;
+import com.kevinmazali.portfolio.model.Question;
+import com.kevinmazali.portfolio.repository.RequestLogRepository;
+import com.kevinmazali.portfolio.vectorstore.DocumentIngestionPipeline;
+import com.kevinmazali.portfolio.vectorstore.QueryEmbeddingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the most asked questions through the answer path after a start, so the first
+ * visitors do not pay for empty caches and cold code.
+ *
+ * <p>Once the vector store is serving, the top questions (from the persisted heavy-hitters
+ * sketch of /ask traffic, or the most recent /ask rows in request_log when there is none
+ * yet) are translated, embedded and searched like a stateless /ask. That fills the
+ * translation and query embedding caches. The first {@code generate} questions also get a
+ * chat model answer, which warms the provider connection. Then {@code rounds} more passes
+ * run with warm caches and no provider calls, so retrieval, fusion and extractive scoring
+ * are JIT-compiled before real traffic arrives.</p>
+ *
+ * <p>Readiness waits for this through the {@code warmUp} health contributor, for at most
+ * {@code timeout}. Failures are logged and never keep the instance out of service.</p>
+ */
+@Slf4j
+@Service
+public class WarmUpService {
+
+  public enum State { PENDING, RUNNING, DONE }
+
+  /** Progress, exposed through the health details. */
+  public record Status(State state, int questions, int generated, int rounds, long elapsedMillis) {}
+
+  private final VectorStoreManager vectorStoreManager;
+  private final OpenAIService openAIService;
+  private final UsageAnalytics usageAnalytics;
+  private final RequestLogRepository requestLogRepository;
+  private final DocumentIngestionPipeline pipeline;
+  private final WarmUpProperties props;
+
+  private volatile State state;
+  private volatile int questions;
+  private volatile int generated;
+  private volatile int rounds;
+  private volatile long startedAt;
+  private volatile long finishedAt;
+
+  public WarmUpService(VectorStoreManager vectorStoreManager, OpenAIService openAIService,
+                       UsageAnalytics usageAnalytics, RequestLogRepository requestLogRepository,
+                       DocumentIngestionPipeline pipeline, WarmUpProperties props) {
+    this.vectorStoreManager = vectorStoreManager;
+    this.openAIService = openAIService;
+    this.usageAnalytics = usageAnalytics;
+    this.requestLogRepository = requestLogRepository;
+    this.pipeline = pipeline;
+    this.props = props;
+    this.state = props.isEnabled() ? State.PENDING : State.DONE;
+  }
+
+  /** Starts after the usage sketch has been restored; waits for the vector store on its own thread. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void warmUpInBackground() {
+    if (state != State.PENDING) return;
+    state = State.RUNNING;
+    startedAt = System.nanoTime();
+    Thread t = new Thread(this::warmUp, "warm-up");
+    t.setDaemon(true);
+    t.start();
+  }
+
+  public boolean isDone() {
+    return state == State.DONE;
+  }
+
+  public Status status() {
+    long end = state == State.DONE ? finishedAt : System.nanoTime();
+    long elapsed = startedAt == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(end - startedAt);
+    return new Status(state, questions, generated, rounds, elapsed);
+  }
+
+  private void warmUp() {
+    Deadline budget = Deadline.after(props.getTimeout());
+    try {
+      vectorStoreManager.whenReady().get(budget.remainingNanos(), TimeUnit.NANOSECONDS);
+      List<String> top = topQuestions(props.getQuestions());
+      QueryEmbeddingCache embeddings = pipeline.queryEmbeddings();
+      long embeddingCalls = embeddings.misses();
+
+      for (String question : top) {
+        if (budget.isExpired()) break;
+        boolean generate = generated < props.getGenerate();
+        if (run(question, generate, budget)) {
+          questions++;
+          if (generate) generated++;
+        }
+      }
+
+      // An expired deadline keeps these passes off the provider: cached translations are
+      // still used, uncached ones are skipped, and the answer is extractive
+      Deadline offline = budget.within(Duration.ZERO);
+      while (rounds < props.getRounds() && !budget.isExpired()) {
+        for (String question : top) run(question, false, offline);
+        rounds++;
+      }
+      log.info("Warm-up done: {} question(s), {} generated answer(s), {} round(s), {} embedding call(s) in {} ms",
+          questions, generated, rounds, embeddings.misses() - embeddingCalls,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      log.warn("Warm-up stopped early: {}", e.toString());
+    } finally {
+      finishedAt = System.nanoTime();
+      state = State.DONE;
+    }
+  }
+
+  private boolean run(String question, boolean generate, Deadline deadline) {
+    try {
+      openAIService.warmUp(new Question(question), generate, deadline);
+      return true;
+    } catch (RuntimeException e) {
+      log.debug("Warm-up question '{}' failed: {}", question, e.toString());
+      return false;
+    }
+  }
+
+  /**
+   * The most asked questions from the usage sketch, or counted over the most recent /ask
+   * rows in request_log when the sketch is still empty.
+   */
+  private List<String> topQuestions(int n) {
+    if (n <= 0) return List.of();
+    List<String> top = usageAnalytics.topQuestions(n);
+    if (!top.isEmpty()) return top;
+    try {
+      Map<String, Long> counts = requestLogRepository
+          .findByPathOrderByIdDesc("/ask", PageRequest.of(0, Math.max(1, props.getRequestLogRows())))
+          .stream()
+          .map(row -> UsageAnalytics.normalize(row.getPayload()))
+          .filter(q -> !q.isEmpty())
+          .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+      return counts.entrySet().stream()
+          .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+          .limit(n)
+          .map(Map.Entry::getKey)
+          .toList();
+    } catch (RuntimeException e) {
+      log.warn("Could not read questions from request_log for warm-up: {}", e.getMessage());
+      return List.of();
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * In-memory inverted index scored with Okapi BM25.
+ *
+ * <p>Built from chunk plaintext and addressed by the same ordinals as the vector
+ * snapshot, so metadata candidate sets apply unchanged. The index is never
+ * persisted: with encryption enabled it is rebuilt from decrypted text on load,
+ * and no plaintext-derived data is written to disk.</p>
+ */
+final class Bm25Index {
+
+  static final Bm25Index EMPTY = new Bm25Index(Map.of(), new int[0], 0);
+
+  private static final double K1 = 1.2;
+  private static final double B = 0.75;
+
+  /**
+   * English and Norwegian function words. They occur in most chunks and questions, so
+   * they would only add noise matches ("What is TDT4100?" matching every "is").
+   */
+  private static final Set<String> STOP_WORDS = Set.of(
+      "an", "and", "are", "as", "at", "be", "been", "but", "by", "can", "did", "do", "does", "for", "from",
+      "had", "has", "have", "he", "her", "his", "how", "in", "into", "is", "it", "its", "me", "my", "of",
+      "on", "or", "she", "that", "the", "their", "them", "there", "these", "they", "this", "those", "to",
+      "was", "we", "were", "what", "when", "where", "which", "who", "why", "will", "with", "would", "you",
+      "your",
+      "av", "da", "de", "den", "denne", "der", "det", "dette", "du", "eller", "en", "er", "et", "fra",
+      "han", "har", "hun", "hva", "hvem", "hvilke", "hvilken", "hvor", "hvordan", "hvorfor", "jeg", "kan",
+      "med", "meg", "min", "mitt", "når", "og", "om", "på", "seg", "sin", "som", "til", "var", "vi");
+
+  /** term -> ordinals (ascending) and matching term frequencies */
+  private final Map<String, Postings> postings;
+  private final int[] docLengths;
+  private final double avgDocLength;
+
+  private Bm25Index(Map<String, Postings> postings, int[] docLengths, double avgDocLength) {
+    this.postings = postings;
+    this.docLengths = docLengths;
+    this.avgDocLength = avgDocLength;
+  }
+
+  /**
+   * Builds the index; the position of each text in the list is its ordinal.
+   * {@code null} texts are indexed as empty documents.
+   */
+  static Bm25Index build(List<String> textsByOrdinal) {
+    Map<String, PostingsBuilder> builders = new HashMap<>();
+    int[] lengths = new int[textsByOrdinal.size()];
+    long total = 0;
+    for (int ordinal = 0; ordinal < textsByOrdinal.size(); ordinal++) {
+      List<String> tokens = tokenize(textsByOrdinal.get(ordinal));
+      lengths[ordinal] = tokens.size();
+      total += tokens.size();
+      Map<String, Integer> tf = new HashMap<>();
+      for (String t : tokens) tf.merge(t, 1, Integer::sum);
+      for (Map.Entry<String, Integer> e : tf.entrySet()) {
+        builders.computeIfAbsent(e.getKey(), k -> new PostingsBuilder()).add(ordinal, e.getValue());
+      }
+    }
+    Map<String, Postings> postings = new HashMap<>(builders.size() * 2);
+    builders.forEach((term, b) -> postings.put(term, b.build()));
+    double avg = lengths.length == 0 ? 0 : (double) total / lengths.length;
+    return new Bm25Index(postings, lengths, avg);
+  }
+
+  /**
+   * Returns the best {@code topK} ordinals for the query, restricted to {@code candidates}.
+   */
+  List<Hit> search(String query, int topK, BitSet candidates) {
+    Set<String> terms = new LinkedHashSet<>(tokenize(query));
+    if (terms.isEmpty() || topK <= 0 || docLengths.length == 0) return List.of();
+
+    int n = docLengths.length;
+    Map<Integer, Double> scores = new HashMap<>();
+    for (String term : terms) {
+      Postings p = postings.get(term);
+      if (p == null) continue;
+      double idf = Math.log(1 + (n - p.ordinals.length + 0.5) / (p.ordinals.length + 0.5));
+      for (int i = 0; i < p.ordinals.length; i++) {
+        int ordinal = p.ordinals[i];
+        if (!candidates.get(ordinal)) continue;
+        double tf = p.frequencies[i];
+        double norm = K1 * (1 - B + B * docLengths[ordinal] / avgDocLength);
+        scores.merge(ordinal, idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+      }
+    }
+
+    PriorityQueue<Hit> best = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(Hit::score));
+    scores.forEach((ordinal, score) -> {
+      if (best.size() < topK) {
+        best.add(new Hit(ordinal, score));
+      } else if (score > best.peek().score()) {
+        best.poll();
+        best.add(new Hit(ordinal, score));
+      }
+    });
+    List<Hit> ranked = new ArrayList<>(best);
+    ranked.sort(Comparator.comparingDouble(Hit::score).reversed());
+    return ranked;
+  }
+
+  /**
+   * Lower-cases and splits on anything that is not a letter or digit, so course
+   * codes (e.g. "tdt4100") and technology names survive as single tokens. Single
+   * characters and stop words are dropped.
+   */
+  static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<>();
+    if (text == null || text.isEmpty()) return tokens;
+    String lower = text.toLowerCase(Locale.ROOT);
+    int start = -1;
+    for (int i = 0; i <= lower.length(); i++) {
+      boolean word = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+      if (word && start < 0) {
+        start = i;
+      } else if (!word && start >= 0) {
+        String token = lower.substring(start, i);
+        if (token.length() > 1 && !STOP_WORDS.contains(token)) tokens.add(token);
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+  record Hit(int ordinal, double score) {}
+
+  private record Postings(int[] ordinals, int[] frequencies) {}
+
+  private static final class PostingsBuilder {
+    private int[] ordinals = new int[4];
+    private int[] frequencies = new int[4];
+    private int size;
+
+    void add(int ordinal, int frequency) {
+      if (size == ordinals.length) {
+        ordinals = Arrays.copyOf(ordinals, size * 2);
+        frequencies = Arrays.copyOf(frequencies, size * 2);
+      }
+      ordinals[size] = ordinal;
+      frequencies[size] = frequency;
+      size++;
+    }
+
+    Postings build() {
+      return new Postings(Arrays.copyOf(ordinals, size), Arrays.copyOf(frequencies, size));
+    }
+  }
+}
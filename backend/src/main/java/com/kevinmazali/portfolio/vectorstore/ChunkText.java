@@ -0,0 +1,31 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import com.kevinmazali.portfolio.crypto.CryptoService;
+import org.springframework.lang.Nullable;
+
+import java.util.Map;
+
+/**
+ * Resolves the plaintext of a stored chunk, decrypting it when it carries
+ * {@code enc=aesgcm} metadata (see {@link CryptoService} for the format).
+ */
+public final class ChunkText {
+
+  private ChunkText() {}
+
+  /**
+   * Returns the chunk plaintext.
+   *
+   * @param text stored text (Base64 ciphertext when encrypted)
+   * @param metadata chunk metadata
+   * @param crypto decryption service, or {@code null} when no key is configured
+   * @return the plaintext, or the stored text when the chunk is not encrypted or no key is available
+   * @throws RuntimeException when decryption fails
+   */
+  public static String plaintext(String text, Map<String, Object> metadata, @Nullable CryptoService crypto) {
+    if (crypto != null && "aesgcm".equals(metadata.get("enc"))) {
+      return crypto.decrypt(String.valueOf(metadata.get("enc_iv")), text);
+    }
+    return text;
+  }
+}
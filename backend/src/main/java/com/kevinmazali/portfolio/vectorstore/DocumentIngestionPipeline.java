@@ -1,62 +1,323 @@
-package com.kevinmazali.portfolio.config;
+package com.kevinmazali.portfolio.vectorstore;
 
+import com.kevinmazali.portfolio.config.DeduplicationProperties;
+import com.kevinmazali.portfolio.config.ParsingProperties;
+import com.kevinmazali.portfolio.config.RetrievalProperties;
+import com.kevinmazali.portfolio.config.VectorStoreProperties;
 import com.kevinmazali.portfolio.crypto.CryptoService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
 import org.springframework.ai.transformer.splitter.TextSplitter;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
-import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.env.Environment;
 import org.springframework.boot.system.ApplicationHome;
+import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
- * Configuration responsible for initializing and maintaining the vector store.
+ * Document ingestion pipeline for the vector store.
  *
- * <p>On startup it will try to load an existing store from disk; if none exists,
- * it will discover, parse, optionally encrypt, chunk, embed and persist
- * documents as a new {@link SimpleVectorStore}.</p>
+ * <p>Discovers source documents, parses them with Tika in bounded segments
+ * ({@link StreamingDocumentParser}), enriches metadata, chunks them with
+ * {@link TokenTextSplitter} and optionally encrypts the chunks before they are embedded
+ * into a {@link ShardedVectorStore}. Loading, building and serving the
+ * store is orchestrated by {@link com.kevinmazali.portfolio.service.VectorStoreManager}.</p>
  */
 @Slf4j
-@Configuration
-public class VectorStoreConfig {
+@Component
+public class DocumentIngestionPipeline {
+
+  /** File extensions picked up by directory scans and accepted for upload. */
+  public static final List<String> SUPPORTED_EXTENSIONS =
+      List.of("pdf", "docx", "doc", "txt", "md", "png", "jpg", "jpeg", "gif", "bmp", "tiff", "webp", "svg");
+
+  private final EmbeddingModel embeddingModel;
+  private final VectorStoreProperties vectorStoreProperties;
+  private final RetrievalProperties retrievalProperties;
+  private final DeduplicationProperties deduplicationProperties;
+  private final Environment env;
+  private final TextSplitter textSplitter = new TokenTextSplitter();
+  private final StreamingDocumentParser parser;
+  private final QueryEmbeddingCache queryEmbeddings;
+  private volatile ParseQuarantine quarantine;
 
   @Value("${sfg.aiapp.documentsToLoad:}")
   private String documentsToLoadFromYaml;
 
-  /**
-   * Creates and initializes the {@link SimpleVectorStore} bean.
-   *
-   * @param embeddingModel the embedding model used to embed chunks
-   * @param vectorStoreProperties configuration properties for the vector store
-   * @param env Spring environment for optional fallbacks
-   * @return a loaded or freshly built {@link SimpleVectorStore}
-   */
-  @Bean
-  public SimpleVectorStore simpleVectorStore(
+  public DocumentIngestionPipeline(
       EmbeddingModel embeddingModel,
       VectorStoreProperties vectorStoreProperties,
+      RetrievalProperties retrievalProperties,
+      DeduplicationProperties deduplicationProperties,
+      ParsingProperties parsingProperties,
       Environment env
-  ) throws IOException {
+  ) {
+    this.embeddingModel = embeddingModel;
+    this.vectorStoreProperties = vectorStoreProperties;
+    this.retrievalProperties = retrievalProperties;
+    this.deduplicationProperties = deduplicationProperties;
+    this.env = env;
+    this.parser = new StreamingDocumentParser(StreamingDocumentParser.tika(),
+        parsingProperties.getMaxFileSize().toBytes(), parsingProperties.getMaxChars(),
+        parsingProperties.getTimeout(), parsingProperties.getAllocationFloor().toBytes(),
+        parsingProperties.getAllocationPerInputByte(), parsingProperties.getSegmentChars());
+    this.queryEmbeddings = new QueryEmbeddingCache(embeddingModel::embed, embeddingModel::embed,
+        retrievalProperties.getQueryCacheSize());
+  }
+
+  /**
+   * Creates an empty store with the configured number of {@link IndexedVectorStore} shards.
+   * The lexical index is fed decrypted text and kept in memory only, so no plaintext
+   * reaches the disk. All stores share one {@link QueryEmbeddingCache}.
+   */
+  public ShardedVectorStore newStore() {
+    CryptoService crypto = vectorStoreProperties.isEncryptContent() ? createCryptoService(vectorStoreProperties) : null;
+    List<IndexedVectorStore> shards = new ArrayList<>();
+    for (int i = 0; i < Math.max(1, vectorStoreProperties.getShards()); i++) {
+      shards.add(new IndexedVectorStore(embeddingModel, queryEmbeddings,
+          doc -> ChunkText.plaintext(doc.getText(), doc.getMetadata(), crypto),
+          retrievalProperties.getPrefixDimensions(),
+          retrievalProperties.getPrefixShortlistFactor()));
+    }
+    return new ShardedVectorStore(shards);
+  }
+
+  /** Query embeddings cached across store generations; see {@link #newStore()}. */
+  public QueryEmbeddingCache queryEmbeddings() {
+    return queryEmbeddings;
+  }
+
+  /**
+   * Creates the near-duplicate filter for one build or for appends to a store, or returns
+   * {@code null} when deduplication is disabled. Chunks already in {@code existing} are
+   * registered first, so new chunks are also checked against them.
+   */
+  @Nullable
+  public NearDuplicateFilter newDeduplicator(@Nullable HybridSearchStore existing) {
+    if (!deduplicationProperties.isEnabled()) return null;
+    NearDuplicateFilter filter = new NearDuplicateFilter(deduplicationProperties.getThreshold(),
+        deduplicationProperties.getShingleSize(), deduplicationProperties.getNumHashes(),
+        deduplicationProperties.getBands());
+    if (existing != null) {
+      CryptoService crypto = vectorStoreProperties.isEncryptContent() ? createCryptoService(vectorStoreProperties) : null;
+      for (Document doc : existing.documents()) {
+        try {
+          filter.seed(ChunkText.plaintext(doc.getText(), doc.getMetadata(), crypto));
+        } catch (RuntimeException e) {
+          log.debug("Skipping unreadable chunk {} when seeding the duplicate filter", doc.getId());
+        }
+      }
+    }
+    return filter;
+  }
+
+  /**
+   * Returns the file used to save/load the vector store (always anchored under 'backend'),
+   * creating its parent directory when needed.
+   */
+  public File vectorStoreFile() throws IOException {
+    File vectorStoreFile = resolveVectorStoreFilePath(vectorStoreProperties.getVectorStorePath());
+    ensureParentDir(vectorStoreFile);
+    return vectorStoreFile;
+  }
+
+  /**
+   * Directory for documents uploaded at runtime. It lives inside the vector store folder,
+   * so uploaded files are also picked up when the store is rebuilt.
+   */
+  public Path uploadsDir() throws IOException {
+    Path dir = vectorStoreFile().toPath().resolveSibling("uploads");
+    Files.createDirectories(dir);
+    return dir;
+  }
+
+  /** Whether the file name has one of the {@link #SUPPORTED_EXTENSIONS}. */
+  public static boolean isSupported(String filename) {
+    if (filename == null) return false;
+    int dot = filename.lastIndexOf('.');
+    return dot >= 0 && SUPPORTED_EXTENSIONS.contains(filename.substring(dot + 1).toLowerCase());
+  }
+
+  /** Discovers the documents to ingest when building a store from scratch. */
+  public List<Resource> resolveResources() throws IOException {
+    List<Resource> resources = resolveResources(vectorStoreProperties);
+    addUploads(resources);
+    if (resources.isEmpty()) {
+      log.warn("Fant ingen dokumenter å laste. Sjekk 'documentsToLoad' / basekatalog og filendelser.");
+    } else {
+      log.info("Fant {} dokument(er) til indeksering.", resources.size());
+    }
+    return resources;
+  }
+
+  /**
+   * Adds the files uploaded at runtime to the configured corpus, so a rebuild keeps both.
+   * Files already in {@code resources} are not added twice.
+   */
+  private void addUploads(List<Resource> resources) throws IOException {
+    Path uploads = uploadsDir();
+    Set<Path> known = new HashSet<>();
+    for (Resource r : resources) {
+      if (r.isFile()) known.add(r.getFile().toPath().toAbsolutePath().normalize());
+    }
+    PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+    String baseUri = uploads.toUri().toString();
+    int before = resources.size();
+    for (String ext : SUPPORTED_EXTENSIONS) {
+      try {
+        for (Resource found : resolver.getResources(baseUri + "**/*." + ext)) {
+          if (known.add(found.getFile().toPath().toAbsolutePath().normalize())) {
+            resources.add(found);
+          }
+        }
+      } catch (Exception e) {
+        log.debug("Skipping scan for .{} in uploads due to: {}", ext, e.getMessage());
+      }
+    }
+    if (resources.size() > before && log.isInfoEnabled()) {
+      log.info("Loading uploaded files from: {}", uploads);
+      resources.subList(before, resources.size()).forEach(r -> log.info(" - {}", safeName(r)));
+    }
+  }
+
+  /**
+   * Streams a single document through parsing, enrichment, chunking, language tagging and
+   * (when enabled) encryption, handing the chunks to {@code sink} one text segment at a
+   * time so a large document never has to be held in memory whole. Chunks that
+   * {@code deduplicator} reports as near duplicates of chunks seen before are dropped, so
+   * they are never embedded or stored.
+   *
+   * <p>Files that are quarantined are skipped. A file that exceeds the parsing limits or
+   * cannot be parsed is quarantined with the reason, so it is not retried on every boot.</p>
+   *
+   * @param res the document to read
+   * @param deduplicator filter shared across the documents of one build, or {@code null}
+   * @param sink receives each non-empty batch of chunks, ready to be added to a store
+   * @return the number of chunks passed to {@code sink}
+   * @throws StreamingDocumentParser.ParseFailedException when the document could not be parsed
+   */
+  public int ingest(Resource res, @Nullable NearDuplicateFilter deduplicator, Consumer<List<Document>> sink) {
+    String name = safeName(res);
+    Optional<ParseQuarantine.Entry> quarantined = quarantine().find(res, name);
+    if (quarantined.isPresent()) {
+      log.warn("Hopper over '{}' (i karantene siden {}: {})", name,
+          quarantined.get().quarantinedAt(), quarantined.get().reason());
+      return 0;
+    }
+    log.debug("Leser dokument: {}", name);
+
+    int duplicatesBefore = deduplicator != null ? deduplicator.duplicates() : 0;
+    AtomicInteger added = new AtomicInteger();
+    StreamingDocumentParser.Result result;
+    try {
+      result = parser.parse(res, segment -> {
+        List<Document> chunks = toChunks(segment, res, deduplicator);
+        if (!chunks.isEmpty()) {
+          sink.accept(chunks);
+          added.addAndGet(chunks.size());
+        }
+      });
+    } catch (StreamingDocumentParser.ParseFailedException e) {
+      log.error("Kunne ikke lese '{}', settes i karantene: {}", name, e.getMessage());
+      quarantine().add(res, name, e.getMessage());
+      throw e;
+    }
+
+    if (result.truncated()) {
+      log.warn("'{}' ble avkortet etter {} tegn (sfg.aiapp.parsing.max-chars)", name, result.chars());
+    }
+    if (result.chars() == 0) {
+      log.warn("Ingen tekst funnet i '{}' - hopper over", name);
+    } else if (added.get() == 0 && deduplicator != null && deduplicator.duplicates() > duplicatesBefore) {
+      log.info("Alle chunks fra '{}' finnes allerede - hopper over", name);
+    }
+    return added.get();
+  }
+
+  /** Files that failed to parse, stored next to the vector store. */
+  public ParseQuarantine quarantine() {
+    ParseQuarantine q = quarantine;
+    if (q == null) {
+      synchronized (this) {
+        if (quarantine == null) {
+          try {
+            quarantine = new ParseQuarantine(vectorStoreFile().toPath().resolveSibling("quarantine.json"));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+        q = quarantine;
+      }
+    }
+    return q;
+  }
+
+  /**
+   * Enriches, chunks, tags with their language, deduplicates and encrypts one segment of
+   * a document's text.
+   */
+  private List<Document> toChunks(String segment, Resource res, @Nullable NearDuplicateFilter deduplicator) {
+    // Process documents and add metadata for content type
+    List<Document> processedDocs = processMultimodalDocuments(List.of(new Document(segment, new HashMap<>())), res);
+
+    List<Document> splitDocs = textSplitter.apply(processedDocs);
 
-    // Build store with the embedding model
-    SimpleVectorStore store = SimpleVectorStore.builder(embeddingModel).build();
+    if (splitDocs == null || splitDocs.isEmpty()) {
+      return List.of();
+    }
 
-    // Startup log: which embedding model and dimensions are in use
+    // Language per chunk, detected on the plaintext; retrieval searches one language partition per query variant
+    for (Document chunk : splitDocs) {
+      chunk.getMetadata().put(LanguageDetector.METADATA_KEY, LanguageDetector.detect(chunk.getText()));
+    }
+
+    // Drop near duplicates (e.g. the same CV text in several exports) before anything is embedded
+    if (deduplicator != null) {
+      int before = splitDocs.size();
+      splitDocs = splitDocs.stream().filter(d -> deduplicator.accept(d.getText())).toList();
+      if (splitDocs.size() < before) {
+        log.debug("Hoppet over {} nesten like chunks fra '{}'", before - splitDocs.size(), safeName(res));
+      }
+      if (splitDocs.isEmpty()) {
+        return List.of();
+      }
+    }
+
+    // Encrypt documents when encryption is enabled
+    if (vectorStoreProperties.isEncryptContent()) {
+      CryptoService crypto = createCryptoService(vectorStoreProperties);
+      if (crypto != null) {
+        splitDocs = encryptDocuments(splitDocs, crypto);
+        log.debug("Kryptert {} dokumenter fra '{}'", splitDocs.size(), safeName(res));
+      } else {
+        log.warn("Kryptering er aktivert men ingen nøkkel funnet - lagrer ukryptert");
+      }
+    }
+    return splitDocs;
+  }
+
+  /** Startup log: which embedding model and dimensions are in use. */
+  public void logEmbeddingModel() {
     try {
       String modelClass = embeddingModel.getClass().getName();
       String modelName = "(ukjent)";
@@ -94,79 +355,6 @@ public class VectorStoreConfig {
     } catch (Exception e) {
       log.warn("Kunne ikke logge embedding-modell detaljer: {}", e.getMessage());
     }
-
-    // File used to save/load the vector store (always anchored under 'backend')
-    File vectorStoreFile = resolveVectorStoreFilePath(vectorStoreProperties.getVectorStorePath());
-    ensureParentDir(vectorStoreFile);
-
-    if (vectorStoreFile.exists()) {
-      log.info("Laster eksisterende vector store fra: {}", vectorStoreFile.getPath());
-      store.load(vectorStoreFile);
-      return store;
-    }
-
-    log.info("Ingen eksisterende vector store. Leser og indekserer dokumenter ...");
-
-    // --- Load documents ---
-    List<Resource> resources = resolveResources(vectorStoreProperties);
-
-    if (resources.isEmpty()) {
-      log.warn("Fant ingen dokumenter å laste. Sjekk 'documentsToLoad' / basekatalog og filendelser.");
-    } else {
-      log.info("Fant {} dokument(er) til indeksering.", resources.size());
-    }
-
-    TextSplitter textSplitter = new TokenTextSplitter();
-
-    for (Resource res : resources) {
-      try {
-        log.debug("Leser dokument: {}", safeName(res));
-        TikaDocumentReader reader = new TikaDocumentReader(res);
-        List<Document> docs = reader.get();
-        
-        if (docs == null || docs.isEmpty()) {
-          log.warn("Ingen dokumenter funnet i '{}' - hopper over", safeName(res));
-          continue;
-        }
-        
-        // Process documents and add metadata for content type
-        List<Document> processedDocs = processMultimodalDocuments(docs, res);
-        
-        if (processedDocs.isEmpty()) {
-          log.warn("Ingen prosesserte dokumenter fra '{}' - hopper over", safeName(res));
-          continue;
-        }
-        
-        List<Document> splitDocs = textSplitter.apply(processedDocs);
-        
-        if (splitDocs == null || splitDocs.isEmpty()) {
-          log.warn("Ingen split-dokumenter generert fra '{}' - hopper over", safeName(res));
-          continue;
-        }
-        
-        // Encrypt documents when encryption is enabled
-        if (vectorStoreProperties.isEncryptContent()) {
-          CryptoService crypto = createCryptoService(vectorStoreProperties);
-          if (crypto != null) {
-            splitDocs = encryptDocuments(splitDocs, crypto);
-            log.debug("Kryptert {} dokumenter fra '{}'", splitDocs.size(), safeName(res));
-          } else {
-            log.warn("Kryptering er aktivert men ingen nøkkel funnet - lagrer ukryptert");
-          }
-        }
-        
-        store.add(splitDocs);
-        log.debug("Lagt til {} dokumenter fra '{}'", splitDocs.size(), safeName(res));
-      } catch (Exception e) {
-        log.error("Feil ved lesing/indeksering av '{}': {}", safeName(res), e.getMessage(), e);
-      }
-    }
-
-    // Persist the newly built vector store
-    store.save(vectorStoreFile);
-    log.info("Vector store lagret til: {}", vectorStoreFile.getPath());
-
-    return store;
   }
 
   // --- Helpers ---
@@ -201,7 +389,7 @@ public class VectorStoreConfig {
     String relative = stripLeadingDotSlash(configuredPath);
 
     // Find the application home directory (jar/classes folder)
-    File appHome = new ApplicationHome(VectorStoreConfig.class).getDir();
+    File appHome = new ApplicationHome(DocumentIngestionPipeline.class).getDir();
 
     // Walk upwards to find a directory named 'backend'
     File current = appHome;
@@ -239,6 +427,7 @@ public class VectorStoreConfig {
   /**
    * Resolves input resources either from a pre-configured list, from the vector
    * store folder (seeding), or by scanning a base directory for supported extensions.
+   * Uploaded files are not part of this corpus; {@link #resolveResources()} adds them.
    */
   private List<Resource> resolveResources(VectorStoreProperties props) throws IOException {
     List<Resource> result = new ArrayList<>();
@@ -255,15 +444,18 @@ public class VectorStoreConfig {
       File vectorStoreDir = vectorStoreFile.getParentFile();
       if (vectorStoreDir != null && vectorStoreDir.exists() && vectorStoreDir.isDirectory()) {
         PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
-        List<String> exts = Arrays.asList("pdf", "docx", "doc", "txt", "md", "png", "jpg", "jpeg", "gif", "bmp", "tiff", "webp", "svg");
+        List<String> exts = SUPPORTED_EXTENSIONS;
 
         String baseUri = vectorStoreDir.toURI().toString(); // e.g. file:/app/vectordatabase/
+        // Uploads are added on top of whichever corpus is configured, see addUploads
+        Path uploads = vectorStoreFile.toPath().resolveSibling("uploads").toAbsolutePath().normalize();
         for (String ext : exts) {
           String pattern = baseUri + "**/*." + ext;
           try {
-            Resource[] found = resolver.getResources(pattern);
-            if (found.length > 0) {
-              result.addAll(Arrays.asList(found));
+            for (Resource found : resolver.getResources(pattern)) {
+              if (!found.getFile().toPath().toAbsolutePath().normalize().startsWith(uploads)) {
+                result.add(found);
+              }
             }
           } catch (Exception e) {
             log.debug("Skipping scan for .{} in vectorStoreDir due to: {}", ext, e.getMessage());
@@ -313,7 +505,7 @@ public class VectorStoreConfig {
     } catch (Exception ignored) { }
 
     // Search recursively in subfolders: **/*.ext
-    List<String> exts = Arrays.asList("pdf", "docx", "doc", "txt", "md", "png", "jpg", "jpeg", "gif", "bmp", "tiff", "webp", "svg");
+    List<String> exts = SUPPORTED_EXTENSIONS;
     for (String ext : exts) {
       String pattern = baseDir + "**/*." + ext; // e.g. classpath:/tmp/docs/**/*.(pdf/docx/...)
       try {
@@ -0,0 +1,89 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.lang.Nullable;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The operations retrieval and the store lifecycle need from a vector store: vector and
+ * BM25 search, metadata-scoped counts, adding and removing chunks and file persistence.
+ *
+ * <p>Implemented by a single {@link IndexedVectorStore} and by {@link ShardedVectorStore},
+ * which spreads the chunks over several of them.</p>
+ */
+public interface HybridSearchStore {
+
+  /** Embeds the request query and returns the best {@code topK} chunks by cosine similarity. */
+  List<Document> similaritySearch(SearchRequest request);
+
+  /**
+   * Scores the chunks matching {@code filter} (all chunks when {@code null}) against a
+   * precomputed query embedding and returns the best {@code topK} by cosine similarity.
+   */
+  List<Document> similaritySearch(float[] queryEmbedding, int topK, double similarityThreshold,
+                                  @Nullable Filter.Expression filter);
+
+  /** Ranks the chunks matching {@code filter} by BM25 against the query terms. */
+  List<Document> lexicalSearch(String query, int topK, @Nullable Filter.Expression filter);
+
+  /** Embeds a query with the same model as the stored chunks. */
+  float[] embedQuery(String query);
+
+  /** Embeds several queries, in order; in one model call where the store supports it. */
+  default List<float[]> embedQueries(List<String> queries) {
+    return queries.stream().map(this::embedQuery).toList();
+  }
+
+  /** Changes whenever the indexed content changes; lets callers detect stale results. */
+  long version();
+
+  /** Number of chunks matching {@code filter}. */
+  int count(@Nullable Filter.Expression filter);
+
+  /** Total number of chunks currently held by the store. */
+  int size();
+
+  /** All stored chunks with their stored (possibly encrypted) text, without scores. */
+  List<Document> documents();
+
+  /** Embeds and adds chunks. */
+  void add(List<Document> documents);
+
+  /** Removes the chunks with the given ids; unknown ids are ignored. */
+  void delete(List<String> ids);
+
+  /** The stored chunks with the given ids, embeddings included; unknown ids are skipped. */
+  List<SimpleVectorStoreContent> contents(Collection<String> ids);
+
+  /**
+   * Adds already embedded chunks, replacing stored chunks with the same id. Nothing is
+   * embedded; used to replay logged changes.
+   */
+  void restore(List<SimpleVectorStoreContent> contents);
+
+  /**
+   * Defers re-indexing until the returned handle is closed, so the adds, deletes and
+   * restores of one ingestion are indexed once. Searches keep seeing the chunks as of the
+   * last re-index meanwhile. Handles may be nested; the last one to close re-indexes.
+   */
+  Indexing deferIndexing();
+
+  /** Writes the store to {@code file}, replacing it atomically. */
+  void save(File file);
+
+  /** Replaces the store's chunks with the ones persisted in {@code file}. */
+  void load(File file);
+
+  /** Handle returned by {@link #deferIndexing()}; closing it re-indexes if anything changed. */
+  interface Indexing extends AutoCloseable {
+
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,390 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * {@link SimpleVectorStore} with an inverted metadata index in front of the similarity scan
+ * and a BM25 lexical index next to it.
+ *
+ * <p>Persistence format and the embedding path are unchanged. On every load or mutation
+ * the chunks are laid out in a dense, ordinal-addressed snapshot together with a
+ * {@link MetadataIndex} and a {@link Bm25Index}. Filter expressions on a {@link SearchRequest}
+ * are resolved into a candidate bitset first, so a filtered query only scores the chunks
+ * that can match instead of evaluating a SpEL predicate against the whole store. Within
+ * {@link #deferIndexing()} mutations only touch the backing map, and the snapshot is
+ * rebuilt once when the handle is closed.</p>
+ *
+ * <p>The lexical index is built from chunk plaintext obtained through the configured
+ * resolver (which decrypts encrypted chunks) and lives in memory only. The same plaintext
+ * is used to detect the language of chunks that carry no {@code lang} metadata yet. Each
+ * chunk is resolved once and kept with its norm, so a rebuild after an upload only
+ * decrypts the new chunks.</p>
+ *
+ * <p>When a prefix size is configured, vector search is two-tier: a {@link MatryoshkaIndex}
+ * over truncated, re-normalized embeddings shortlists {@code topK * shortlistFactor}
+ * candidates, which are then re-ranked with the full-width vectors.</p>
+ */
+@Slf4j
+public class IndexedVectorStore extends SimpleVectorStore implements HybridSearchStore {
+
+  private final QueryEmbeddingCache queryEmbeddings;
+  private final Function<Document, String> plaintextResolver;
+  private final int prefixDimensions;
+  private final int shortlistFactor;
+
+  private volatile Snapshot snapshot = Snapshot.EMPTY;
+  private volatile long version;
+
+  /** Per-chunk data derived at the last reindex, by id; guarded by {@code this}. */
+  private Map<String, Resolved> resolved = Map.of();
+  /** Open {@link #deferIndexing()} handles and whether a mutation is waiting for them; guarded by {@code this}. */
+  private int deferrals;
+  private boolean stale;
+
+  public IndexedVectorStore(EmbeddingModel embeddingModel) {
+    this(embeddingModel, Document::getText, 0, 0);
+  }
+
+  /**
+   * @param embeddingModel the embedding model used for chunks and queries
+   * @param plaintextResolver returns the plaintext of a stored chunk for lexical indexing
+   * @param prefixDimensions leading dimensions used for the first-stage search; 0 disables it
+   * @param shortlistFactor first-stage shortlist size as a multiple of topK
+   */
+  public IndexedVectorStore(EmbeddingModel embeddingModel, Function<Document, String> plaintextResolver,
+                            int prefixDimensions, int shortlistFactor) {
+    this(embeddingModel, new QueryEmbeddingCache(embeddingModel::embed, embeddingModel::embed, 0),
+        plaintextResolver, prefixDimensions, shortlistFactor);
+  }
+
+  /**
+   * @param embeddingModel the embedding model used for chunks
+   * @param queryEmbeddings embeds queries, possibly shared with other stores
+   * @param plaintextResolver returns the plaintext of a stored chunk for lexical indexing
+   * @param prefixDimensions leading dimensions used for the first-stage search; 0 disables it
+   * @param shortlistFactor first-stage shortlist size as a multiple of topK
+   */
+  public IndexedVectorStore(EmbeddingModel embeddingModel, QueryEmbeddingCache queryEmbeddings,
+                            Function<Document, String> plaintextResolver, int prefixDimensions, int shortlistFactor) {
+    super(SimpleVectorStore.builder(embeddingModel));
+    this.queryEmbeddings = queryEmbeddings;
+    this.plaintextResolver = plaintextResolver;
+    this.prefixDimensions = prefixDimensions;
+    this.shortlistFactor = Math.max(1, shortlistFactor);
+  }
+
+  @Override
+  public void doAdd(List<Document> documents) {
+    super.doAdd(documents);
+    changed();
+  }
+
+  @Override
+  public void doDelete(List<String> idList) {
+    super.doDelete(idList);
+    changed();
+  }
+
+  @Override
+  public void load(File file) {
+    super.load(file);
+    changed();
+  }
+
+  /**
+   * Writes to a temporary file next to {@code file}, forces it to disk and moves it into
+   * place, so a crash mid-save leaves the previous file intact.
+   */
+  @Override
+  public void save(File file) {
+    Path target = file.toPath();
+    Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+    super.save(tmp.toFile());
+    try {
+      try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+        channel.force(true);
+      }
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not save vector store to " + target, e);
+    }
+  }
+
+  @Override
+  public void load(Resource resource) {
+    super.load(resource);
+    changed();
+  }
+
+  @Override
+  public List<Document> doSimilaritySearch(SearchRequest request) {
+    float[] query = queryEmbeddings.embed(request.getQuery());
+    return similaritySearch(query, request.getTopK(), request.getSimilarityThreshold(), request.getFilterExpression());
+  }
+
+  /**
+   * Scores the chunks matching {@code filter} (all chunks when {@code null}) against a
+   * precomputed query embedding and returns the best {@code topK} by cosine similarity.
+   */
+  @Override
+  public List<Document> similaritySearch(float[] queryEmbedding, int topK, double similarityThreshold,
+                                         @Nullable Filter.Expression filter) {
+    Snapshot s = this.snapshot;
+    BitSet candidates = candidates(s, filter);
+    float queryNorm = VectorMath.norm(queryEmbedding);
+    if (queryNorm == 0f || topK <= 0) return List.of();
+
+    // First stage: shortlist on the truncated prefixes when that prunes anything
+    int shortlistSize = topK * shortlistFactor;
+    if (s.prefixIndex().enabled() && candidates.cardinality() > shortlistSize) {
+      int[] shortlist = s.prefixIndex().shortlist(queryEmbedding, shortlistSize, candidates);
+      candidates = new BitSet(s.entries().size());
+      for (int ordinal : shortlist) candidates.set(ordinal);
+    }
+
+    PriorityQueue<ScoredOrdinal> best = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(ScoredOrdinal::score));
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      if (s.norms()[i] == 0f) continue;
+      float[] embedding = s.entries().get(i).getEmbedding();
+      double score = VectorMath.dot(queryEmbedding, embedding) / (queryNorm * s.norms()[i]);
+      if (score < similarityThreshold) continue;
+      if (best.size() < topK) {
+        best.add(new ScoredOrdinal(i, score));
+      } else if (score > best.peek().score()) {
+        best.poll();
+        best.add(new ScoredOrdinal(i, score));
+      }
+    }
+
+    List<ScoredOrdinal> ranked = new ArrayList<>(best);
+    ranked.sort(Comparator.comparingDouble(ScoredOrdinal::score).reversed());
+    return ranked.stream().map(so -> toDocument(s.entries().get(so.ordinal()), so.score(), true)).toList();
+  }
+
+  /**
+   * Ranks the chunks matching {@code filter} by BM25 against the query terms. The
+   * returned documents carry the stored (possibly encrypted) text and the BM25 score.
+   */
+  @Override
+  public List<Document> lexicalSearch(String query, int topK, @Nullable Filter.Expression filter) {
+    Snapshot s = this.snapshot;
+    return s.lexicalIndex().search(query, topK, candidates(s, filter)).stream()
+        .map(hit -> toDocument(s.entries().get(hit.ordinal()), hit.score(), false))
+        .toList();
+  }
+
+  @Override
+  public float[] embedQuery(String query) {
+    return queryEmbeddings.embed(query);
+  }
+
+  @Override
+  public List<float[]> embedQueries(List<String> queries) {
+    return queryEmbeddings.embedAll(queries);
+  }
+
+  /** Incremented whenever the indexed content changes; lets callers detect stale results. */
+  @Override
+  public long version() {
+    return version;
+  }
+
+  /** Number of chunks matching {@code filter}; useful to log how selective a scope is. */
+  @Override
+  public int count(@Nullable Filter.Expression filter) {
+    return candidates(this.snapshot, filter).cardinality();
+  }
+
+  /** Total number of chunks currently held by the store. */
+  @Override
+  public int size() {
+    return this.snapshot.entries().size();
+  }
+
+  @Override
+  public List<Document> documents() {
+    return this.snapshot.entries().stream()
+        .map(c -> new Document(c.getId(), c.getText(), c.getMetadata()))
+        .toList();
+  }
+
+  /** The stored chunks, embeddings included, including changes not indexed yet. */
+  List<SimpleVectorStoreContent> contents() {
+    return new ArrayList<>(this.store.values());
+  }
+
+  @Override
+  public List<SimpleVectorStoreContent> contents(Collection<String> ids) {
+    List<SimpleVectorStoreContent> contents = new ArrayList<>(ids.size());
+    for (String id : ids) {
+      SimpleVectorStoreContent c = this.store.get(id);
+      if (c != null) contents.add(c);
+    }
+    return contents;
+  }
+
+  @Override
+  public void restore(List<SimpleVectorStoreContent> contents) {
+    if (contents.isEmpty()) return;
+    for (SimpleVectorStoreContent c : contents) {
+      this.store.put(c.getId(), c);
+    }
+    changed();
+  }
+
+  /**
+   * Replaces the stored chunks with already embedded ones, e.g. when chunks are moved
+   * between shards; nothing is re-embedded.
+   */
+  void replaceContents(Collection<SimpleVectorStoreContent> contents) {
+    this.store.clear();
+    for (SimpleVectorStoreContent c : contents) {
+      this.store.put(c.getId(), c);
+    }
+    changed();
+  }
+
+  @Override
+  public Indexing deferIndexing() {
+    synchronized (this) {
+      deferrals++;
+    }
+    AtomicBoolean closed = new AtomicBoolean();
+    return () -> {
+      if (!closed.compareAndSet(false, true)) return;
+      synchronized (this) {
+        if (--deferrals == 0 && stale) reindex();
+      }
+    };
+  }
+
+  /** Re-indexes now, or marks the index stale while indexing is deferred. */
+  private synchronized void changed() {
+    if (deferrals > 0) {
+      stale = true;
+    } else {
+      reindex();
+    }
+  }
+
+  /**
+   * Rebuilds the ordinal snapshot, metadata index and lexical index from the backing map.
+   * Chunks that were already indexed reuse their plaintext and norm.
+   */
+  protected synchronized void reindex() {
+    List<SimpleVectorStoreContent> entries = new ArrayList<>(this.store.values());
+    Map<String, Resolved> previous = this.resolved;
+    Map<String, Resolved> current = new HashMap<>(entries.size() * 2);
+    float[] norms = new float[entries.size()];
+    List<Map<String, Object>> metadata = new ArrayList<>(entries.size());
+    List<String> texts = new ArrayList<>(entries.size());
+    List<float[]> embeddings = new ArrayList<>(entries.size());
+    int fresh = 0;
+    int unreadable = 0;
+    for (int i = 0; i < entries.size(); i++) {
+      SimpleVectorStoreContent c = entries.get(i);
+      Resolved r = previous.get(c.getId());
+      if (r == null || r.content() != c) {
+        r = resolve(c);
+        fresh++;
+        if (r.text() == null) unreadable++;
+      }
+      current.put(c.getId(), r);
+      norms[i] = r.norm();
+      embeddings.add(c.getEmbedding());
+      texts.add(r.text());
+      metadata.add(r.metadata());
+    }
+    if (unreadable > 0) {
+      log.warn("{} chunk(s) could not be resolved to plaintext and are excluded from lexical search", unreadable);
+    }
+    this.snapshot = new Snapshot(List.copyOf(entries), norms, MetadataIndex.build(metadata),
+        Bm25Index.build(texts), MatryoshkaIndex.build(embeddings, prefixDimensions));
+    this.resolved = current;
+    this.stale = false;
+    this.version++;
+    log.debug("Vector store indexed: {} chunks, {} newly resolved", entries.size(), fresh);
+  }
+
+  private Resolved resolve(SimpleVectorStoreContent c) {
+    String text;
+    try {
+      text = plaintextResolver.apply(new Document(c.getId(), c.getText(), c.getMetadata()));
+    } catch (RuntimeException e) {
+      text = null;
+    }
+    return new Resolved(c, VectorMath.norm(c.getEmbedding()), text, withLanguage(c.getMetadata(), text));
+  }
+
+  /**
+   * Chunks stored before language detection get their language detected here, so the
+   * per-language partitions of the metadata index cover them too. Only the index sees it.
+   */
+  private static Map<String, Object> withLanguage(Map<String, Object> metadata, @Nullable String text) {
+    if (metadata.containsKey(LanguageDetector.METADATA_KEY) || text == null) return metadata;
+    Map<String, Object> copy = new HashMap<>(metadata);
+    copy.put(LanguageDetector.METADATA_KEY, LanguageDetector.detect(text));
+    return copy;
+  }
+
+  private static BitSet candidates(Snapshot s, @Nullable Filter.Expression filter) {
+    if (filter == null) {
+      BitSet all = new BitSet(s.entries().size());
+      all.set(0, s.entries().size());
+      return all;
+    }
+    return s.metadataIndex().resolve(filter);
+  }
+
+  private static Document toDocument(SimpleVectorStoreContent content, double score, boolean cosine) {
+    Map<String, Object> metadata = new HashMap<>(content.getMetadata());
+    if (cosine) {
+      metadata.put("distance", 1.0 - score);
+    }
+    return Document.builder()
+        .id(content.getId())
+        .text(content.getText())
+        .metadata(metadata)
+        .score(score)
+        .build();
+  }
+
+  private record ScoredOrdinal(int ordinal, double score) {}
+
+  /** What indexing derives from one stored chunk; {@code text} is {@code null} when unreadable. */
+  private record Resolved(SimpleVectorStoreContent content, float norm, @Nullable String text,
+                          Map<String, Object> metadata) {}
+
+  private record Snapshot(List<SimpleVectorStoreContent> entries, float[] norms, MetadataIndex metadataIndex,
+                          Bm25Index lexicalIndex, MatryoshkaIndex prefixIndex) {
+    static final Snapshot EMPTY = new Snapshot(List.of(), new float[0], MetadataIndex.EMPTY,
+        Bm25Index.EMPTY, MatryoshkaIndex.DISABLED);
+  }
+}
@@ -0,0 +1,71 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Tells English from Norwegian text by counting function words.
+ *
+ * <p>The corpus and the questions are in one of the two languages, so a pair of disjoint
+ * stop-word lists is enough and needs no model. Words that are common in both languages
+ * ("i", "for", "men", "her", ...) are left out of both lists, and the Norwegian letters
+ * æ, ø and å count as extra evidence. Text without a clear majority, such as image
+ * captions, tables or two-word questions, is {@link #UNDETERMINED}.</p>
+ */
+public final class LanguageDetector {
+
+  /** Metadata key holding a chunk's language. */
+  public static final String METADATA_KEY = "lang";
+
+  /** The detected languages, as ISO 639-1 codes. */
+  public static final List<String> LANGUAGES = List.of("en", "no");
+
+  /** Value for text whose language could not be told. */
+  public static final String UNDETERMINED = "und";
+
+  private static final Pattern NON_LETTERS = Pattern.compile("[^\\p{L}]+");
+
+  private static final Set<String> ENGLISH = Set.of(
+      "the", "and", "of", "to", "in", "is", "was", "with", "that", "this", "are", "be", "as", "by", "on",
+      "from", "have", "has", "had", "it", "its", "an", "which", "or", "were", "been", "not", "but", "they",
+      "their", "what", "who", "where", "when", "how", "his", "she", "he", "you", "your", "we", "our", "about",
+      "also", "into", "than", "then", "there", "these", "those", "would", "could", "should", "will", "did",
+      "does", "do", "my", "me", "him", "worked", "work", "tell", "while", "during", "after");
+
+  private static final Set<String> NORWEGIAN = Set.of(
+      "og", "jeg", "det", "et", "til", "er", "som", "på", "med", "av", "ikke", "der", "så", "meg", "seg",
+      "ett", "har", "om", "vi", "mitt", "hadde", "hun", "nå", "ved", "fra", "ut", "sin", "dem", "oss", "opp",
+      "hans", "hvor", "eller", "hva", "skal", "selv", "alle", "vil", "bli", "ble", "blitt", "kunne", "inn",
+      "når", "være", "noen", "noe", "ville", "dere", "deres", "etter", "ned", "skulle", "denne", "deg",
+      "sine", "sitt", "mot", "å", "hvorfor", "dette", "disse", "uten", "hvordan", "ingen", "ditt", "blir",
+      "hvilken", "hvilke", "mellom", "hver", "hvem", "hvis", "både", "bare", "enn", "fordi", "før", "også",
+      "slik", "vært", "siden", "hennes", "innen", "jobbet", "jobber", "fortell", "gjennom", "mens", "ikkje");
+
+  private LanguageDetector() {
+  }
+
+  /**
+   * Returns {@code "en"}, {@code "no"} or {@link #UNDETERMINED}. Short texts need one
+   * function word more than the other language; longer ones a clear majority.
+   */
+  public static String detect(String text) {
+    if (text == null || text.isBlank()) return UNDETERMINED;
+    int english = 0;
+    int norwegian = 0;
+    int words = 0;
+    for (String word : NON_LETTERS.split(text.toLowerCase(Locale.ROOT))) {
+      if (word.isEmpty()) continue;
+      words++;
+      if (ENGLISH.contains(word)) english++;
+      if (NORWEGIAN.contains(word)) norwegian++;
+      else if (word.indexOf('æ') >= 0 || word.indexOf('ø') >= 0 || word.indexOf('å') >= 0) norwegian++;
+    }
+    int top = Math.max(english, norwegian);
+    int other = Math.min(english, norwegian);
+    boolean decided = words < 20 ? top > other : top >= 3 && top >= 2 * other;
+    if (!decided) return UNDETERMINED;
+    return english > norwegian ? "en" : "no";
+  }
+}
@@ -0,0 +1,127 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * First-stage index over Matryoshka-truncated embeddings.
+ *
+ * <p>{@code text-embedding-3-*} models concentrate most of the signal in the leading
+ * dimensions, so a prefix of 256 or 512 dimensions, re-normalized, ranks nearly like the
+ * full vector. The prefixes are packed row by row into one contiguous array (about 1 KB
+ * per chunk at 256 dimensions) and scanned to produce a shortlist, which the caller
+ * re-ranks with the full-width vectors.</p>
+ */
+final class MatryoshkaIndex {
+
+  static final MatryoshkaIndex DISABLED = new MatryoshkaIndex(0, new float[0]);
+
+  private final int dimensions;
+  /** Row-major, L2-normalized prefixes: row i starts at {@code i * dimensions}. */
+  private final float[] prefixes;
+
+  private MatryoshkaIndex(int dimensions, float[] prefixes) {
+    this.dimensions = dimensions;
+    this.prefixes = prefixes;
+  }
+
+  /**
+   * Builds the prefix matrix; the position of each embedding in the list is its ordinal.
+   * Returns {@link #DISABLED} when {@code dimensions} is not positive.
+   */
+  static MatryoshkaIndex build(List<float[]> embeddings, int dimensions) {
+    if (dimensions <= 0) return DISABLED;
+    float[] prefixes = new float[embeddings.size() * dimensions];
+    for (int i = 0; i < embeddings.size(); i++) {
+      float[] e = embeddings.get(i);
+      if (e != null) truncateInto(e, dimensions, prefixes, i * dimensions);
+    }
+    return new MatryoshkaIndex(dimensions, prefixes);
+  }
+
+  boolean enabled() {
+    return dimensions > 0;
+  }
+
+  int dimensions() {
+    return dimensions;
+  }
+
+  /**
+   * Returns the ordinals of the {@code limit} candidates whose prefix is most similar to
+   * the query prefix, in no particular order.
+   */
+  int[] shortlist(float[] query, int limit, BitSet candidates) {
+    if (limit <= 0) return new int[0];
+    float[] q = new float[dimensions];
+    truncateInto(query, dimensions, q, 0);
+
+    // Bounded min-heap on (score, ordinal) kept in two parallel arrays
+    int[] heapOrdinals = new int[limit];
+    float[] heapScores = new float[limit];
+    int size = 0;
+    for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+      int offset = i * dimensions;
+      float score = 0f;
+      for (int d = 0; d < dimensions; d++) {
+        score += q[d] * prefixes[offset + d];
+      }
+      if (size < limit) {
+        heapOrdinals[size] = i;
+        heapScores[size] = score;
+        siftUp(heapOrdinals, heapScores, size++);
+      } else if (score > heapScores[0]) {
+        heapOrdinals[0] = i;
+        heapScores[0] = score;
+        siftDown(heapOrdinals, heapScores, size);
+      }
+    }
+    return size == limit ? heapOrdinals : Arrays.copyOf(heapOrdinals, size);
+  }
+
+  /** Copies the first {@code dimensions} components and L2-normalizes them. */
+  private static void truncateInto(float[] source, int dimensions, float[] target, int offset) {
+    int n = Math.min(dimensions, source.length);
+    double sum = 0;
+    for (int d = 0; d < n; d++) {
+      sum += source[d] * source[d];
+    }
+    float inv = sum == 0 ? 0f : (float) (1.0 / Math.sqrt(sum));
+    for (int d = 0; d < n; d++) {
+      target[offset + d] = source[d] * inv;
+    }
+  }
+
+  private static void siftUp(int[] ordinals, float[] scores, int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (scores[parent] <= scores[i]) break;
+      swap(ordinals, scores, i, parent);
+      i = parent;
+    }
+  }
+
+  private static void siftDown(int[] ordinals, float[] scores, int size) {
+    int i = 0;
+    while (true) {
+      int left = 2 * i + 1;
+      int right = left + 1;
+      int smallest = i;
+      if (left < size && scores[left] < scores[smallest]) smallest = left;
+      if (right < size && scores[right] < scores[smallest]) smallest = right;
+      if (smallest == i) return;
+      swap(ordinals, scores, i, smallest);
+      i = smallest;
+    }
+  }
+
+  private static void swap(int[] ordinals, float[] scores, int a, int b) {
+    int o = ordinals[a];
+    ordinals[a] = ordinals[b];
+    ordinals[b] = o;
+    float s = scores[a];
+    scores[a] = scores[b];
+    scores[b] = s;
+  }
+}
@@ -0,0 +1,166 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index over chunk metadata: for every metadata key it maps each distinct
+ * value to the set of chunk ordinals carrying it.
+ *
+ * <p>Filter expressions are resolved into candidate {@link BitSet}s so that a
+ * filtered search only scores the chunks that can match. Semantics follow the
+ * SpEL evaluation used by {@code SimpleVectorStore}: a chunk without the key
+ * matches {@code !=} and {@code nin}, but never {@code ==}, {@code in} or a range.</p>
+ */
+final class MetadataIndex {
+
+  static final MetadataIndex EMPTY = new MetadataIndex(0, Map.of());
+
+  private final int size;
+  private final Map<String, Map<String, BitSet>> postings;
+
+  private MetadataIndex(int size, Map<String, Map<String, BitSet>> postings) {
+    this.size = size;
+    this.postings = postings;
+  }
+
+  /**
+   * Builds the index; the position of each map in the list is its ordinal.
+   */
+  static MetadataIndex build(List<Map<String, Object>> metadataByOrdinal) {
+    Map<String, Map<String, BitSet>> postings = new HashMap<>();
+    for (int ordinal = 0; ordinal < metadataByOrdinal.size(); ordinal++) {
+      Map<String, Object> metadata = metadataByOrdinal.get(ordinal);
+      if (metadata == null) continue;
+      for (Map.Entry<String, Object> e : metadata.entrySet()) {
+        if (e.getValue() == null) continue;
+        Map<String, BitSet> byValue = postings.computeIfAbsent(e.getKey(), k -> new HashMap<>());
+        if (e.getValue() instanceof Collection<?> values) {
+          for (Object v : values) {
+            if (v != null) byValue.computeIfAbsent(String.valueOf(v), k -> new BitSet()).set(ordinal);
+          }
+        } else {
+          byValue.computeIfAbsent(String.valueOf(e.getValue()), k -> new BitSet()).set(ordinal);
+        }
+      }
+    }
+    return new MetadataIndex(metadataByOrdinal.size(), postings);
+  }
+
+  /** Number of indexed chunks. */
+  int size() {
+    return size;
+  }
+
+  /** Distinct values indexed for a metadata key, with the number of chunks per value. */
+  Map<String, Integer> valueCounts(String key) {
+    Map<String, Integer> counts = new HashMap<>();
+    postings.getOrDefault(key, Map.of()).forEach((value, bits) -> counts.put(value, bits.cardinality()));
+    return counts;
+  }
+
+  /**
+   * Resolves a filter expression to the ordinals of all chunks that satisfy it.
+   * The returned set is a fresh copy and may be modified by the caller.
+   *
+   * @throws IllegalArgumentException for operands or operators that cannot be resolved
+   */
+  BitSet resolve(Filter.Operand operand) {
+    if (operand instanceof Filter.Group group) {
+      return resolve(group.content());
+    }
+    if (!(operand instanceof Filter.Expression expression)) {
+      throw new IllegalArgumentException("Unsupported filter operand: " + operand);
+    }
+    return switch (expression.type()) {
+      case AND -> {
+        BitSet result = resolve(expression.left());
+        result.and(resolve(expression.right()));
+        yield result;
+      }
+      case OR -> {
+        BitSet result = resolve(expression.left());
+        result.or(resolve(expression.right()));
+        yield result;
+      }
+      case NOT -> complement(resolve(expression.left()));
+      case EQ -> matching(key(expression), values(expression));
+      case IN -> matching(key(expression), values(expression));
+      case NE -> complement(matching(key(expression), values(expression)));
+      case NIN -> complement(matching(key(expression), values(expression)));
+      case GT, GTE, LT, LTE -> range(expression);
+      default -> throw new IllegalArgumentException("Unsupported filter operator: " + expression.type());
+    };
+  }
+
+  private BitSet matching(String key, List<String> values) {
+    BitSet result = new BitSet(size);
+    Map<String, BitSet> byValue = postings.get(key);
+    if (byValue == null) return result;
+    for (String v : values) {
+      BitSet bits = byValue.get(v);
+      if (bits != null) result.or(bits);
+    }
+    return result;
+  }
+
+  private BitSet range(Filter.Expression expression) {
+    BitSet result = new BitSet(size);
+    Map<String, BitSet> byValue = postings.get(key(expression));
+    if (byValue == null) return result;
+    String bound = values(expression).getFirst();
+    for (Map.Entry<String, BitSet> e : byValue.entrySet()) {
+      int cmp = compare(e.getKey(), bound);
+      boolean hit = switch (expression.type()) {
+        case GT -> cmp > 0;
+        case GTE -> cmp >= 0;
+        case LT -> cmp < 0;
+        case LTE -> cmp <= 0;
+        default -> false;
+      };
+      if (hit) result.or(e.getValue());
+    }
+    return result;
+  }
+
+  private BitSet complement(BitSet bits) {
+    bits.flip(0, size);
+    return bits;
+  }
+
+  /** Compares numerically when both sides are numbers, lexically otherwise. */
+  private static int compare(String a, String b) {
+    try {
+      return Double.compare(Double.parseDouble(a), Double.parseDouble(b));
+    } catch (NumberFormatException e) {
+      return a.compareTo(b);
+    }
+  }
+
+  private static String key(Filter.Expression expression) {
+    if (!(expression.left() instanceof Filter.Key key)) {
+      throw new IllegalArgumentException("Expected a metadata key on the left side of " + expression.type());
+    }
+    String k = key.key().trim();
+    // The text parser keeps quotes around quoted identifiers
+    if (k.length() >= 2 && (k.startsWith("'") || k.startsWith("\"") || k.startsWith("`"))) {
+      k = k.substring(1, k.length() - 1);
+    }
+    return k;
+  }
+
+  private static List<String> values(Filter.Expression expression) {
+    if (!(expression.right() instanceof Filter.Value value) || value.value() == null) {
+      throw new IllegalArgumentException("Expected a value on the right side of " + expression.type());
+    }
+    if (value.value() instanceof Collection<?> list) {
+      return list.stream().map(String::valueOf).toList();
+    }
+    return List.of(String.valueOf(value.value()));
+  }
+}
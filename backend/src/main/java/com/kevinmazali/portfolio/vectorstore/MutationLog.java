@@ -0,0 +1,290 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only write-ahead log of changes to a vector store snapshot, so a change costs
+ * I/O in proportion to its size instead of a rewrite of the whole store.
+ *
+ * <p>The log is a directory of segment files ({@code segment-<n>.log}), each starting
+ * with a magic header and holding framed records:
+ * {@code [int payload length][int CRC32C of type and payload][byte type][payload]}.
+ * Added chunks (embeddings included) and deleted ids are JSON payloads. Changes are
+ * grouped in transactions: records are written as they arrive and only
+ * {@link #commit()} forces the segment to disk, so one upload costs one fsync however
+ * many embedding batches it has. A new segment is started after a commit once the current
+ * one exceeds the segment size, and whenever the log is opened, so a transaction never
+ * spans segments.</p>
+ *
+ * <p>{@link #replay} hands over committed transactions in order. A transaction without
+ * its commit record (crash mid-upload) is dropped, and a segment with a torn or corrupt
+ * tail is cut off at its last intact record. Replaying a change that is already in the
+ * snapshot is harmless: adds replace chunks by id and deleting a missing id does
+ * nothing.</p>
+ *
+ * <p>Not thread-safe; the owner writes from one thread.</p>
+ */
+@Slf4j
+public final class MutationLog implements Closeable {
+
+  /** A change recorded in the log. */
+  public sealed interface Mutation {}
+
+  /** Chunks added with their embeddings; replaying them needs no embedding calls. */
+  public record Add(List<SimpleVectorStoreContent> contents) implements Mutation {}
+
+  public record Delete(List<String> ids) implements Mutation {}
+
+  /** What {@link #replay} found. */
+  public record Replay(int transactions, int mutations, long discardedBytes) {}
+
+  private record Entry(String id, String text, Map<String, Object> metadata, float[] embedding) {}
+
+  private static final byte[] MAGIC = "VSWAL001".getBytes(StandardCharsets.US_ASCII);
+  private static final int HEADER_BYTES = 9;
+  private static final byte ADD = 1;
+  private static final byte DELETE = 2;
+  private static final byte COMMIT = 3;
+  private static final byte ABORT = 4;
+  private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final Path directory;
+  private final long segmentBytes;
+  private FileChannel channel;
+  private long sequence;
+  /** Record bytes in all segments, headers excluded. */
+  private long recordBytes;
+
+  private MutationLog(Path directory, long segmentBytes) {
+    this.directory = directory;
+    this.segmentBytes = Math.max(1, segmentBytes);
+  }
+
+  /**
+   * Opens the log in {@code directory} for appending. Existing segments are kept (replay
+   * them first); new records go to a fresh segment after them.
+   */
+  public static MutationLog open(Path directory, long segmentBytes) throws IOException {
+    Files.createDirectories(directory);
+    MutationLog mutationLog = new MutationLog(directory, segmentBytes);
+    for (Path segment : segments(directory)) {
+      mutationLog.sequence = Math.max(mutationLog.sequence, sequenceOf(segment));
+    }
+    mutationLog.recordBytes = size(directory);
+    mutationLog.startSegment();
+    return mutationLog;
+  }
+
+  /** Bytes of records in the log in {@code directory}; 0 when there is none. */
+  public static long size(Path directory) throws IOException {
+    long bytes = 0;
+    for (Path segment : segments(directory)) bytes += Math.max(0, Files.size(segment) - MAGIC.length);
+    return bytes;
+  }
+
+  /**
+   * Passes the mutations of every committed transaction in {@code directory} to
+   * {@code committed}, oldest first. Damaged segments are truncated after their last
+   * intact record, or removed when not even the header is intact.
+   */
+  public static Replay replay(Path directory, Consumer<List<Mutation>> committed) throws IOException {
+    int transactions = 0;
+    int mutations = 0;
+    long discarded = 0;
+    List<Mutation> pending = new ArrayList<>();
+    for (Path segment : segments(directory)) {
+      pending.clear();
+      long end;
+      try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+        long size = in.size();
+        end = readMagic(in) ? MAGIC.length : 0;
+        while (end > 0 && end < size) {
+          ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+          if (!readFully(in, header, end)) break;
+          header.flip();
+          int length = header.getInt();
+          int crc = header.getInt();
+          byte type = header.get();
+          if (length < 0 || length > size - end - HEADER_BYTES) break;
+          ByteBuffer payload = ByteBuffer.allocate(length);
+          if (!readFully(in, payload, end + HEADER_BYTES)) break;
+          if (crc(type, payload.array()) != crc) break;
+          switch (type) {
+            case ADD -> pending.add(new Add(decodeAdd(payload.array())));
+            case DELETE -> pending.add(new Delete(MAPPER.readValue(payload.array(), new TypeReference<List<String>>() {})));
+            case COMMIT -> {
+              committed.accept(List.copyOf(pending));
+              transactions++;
+              mutations += pending.size();
+              pending.clear();
+            }
+            case ABORT -> pending.clear();
+            default -> throw new IOException("Unknown record type " + type + " in " + segment);
+          }
+          end += HEADER_BYTES + length;
+        }
+        if (end == size) continue;
+        discarded += size - end;
+      }
+      // Torn or corrupt from here on: keep the intact prefix
+      log.warn("Mutation log segment {} is damaged at byte {}; discarding the rest of it", segment, end);
+      if (end == 0) {
+        Files.delete(segment);
+      } else {
+        try (FileChannel out = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+          out.truncate(end);
+          out.force(true);
+        }
+      }
+    }
+    return new Replay(transactions, mutations, discarded);
+  }
+
+  /** Removes the log in {@code directory}, if any. */
+  public static void delete(Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) return;
+    for (Path segment : segments(directory)) Files.deleteIfExists(segment);
+    Files.deleteIfExists(directory);
+  }
+
+  /** Appends added chunks to the current transaction. */
+  public void add(List<SimpleVectorStoreContent> contents) throws IOException {
+    List<Entry> entries = contents.stream()
+        .map(c -> new Entry(c.getId(), c.getText(), c.getMetadata(), c.getEmbedding()))
+        .toList();
+    write(ADD, MAPPER.writeValueAsBytes(entries));
+  }
+
+  /** Appends deleted ids to the current transaction. */
+  public void delete(List<String> ids) throws IOException {
+    write(DELETE, MAPPER.writeValueAsBytes(ids));
+  }
+
+  /** Ends the current transaction and forces the log to disk. */
+  public void commit() throws IOException {
+    write(COMMIT, new byte[0]);
+    channel.force(false);
+    if (channel.size() >= segmentBytes) startSegment();
+  }
+
+  /** Ends the current transaction without applying it; replay skips its records. */
+  public void abort() throws IOException {
+    write(ABORT, new byte[0]);
+  }
+
+  /** Bytes of records in the log; compaction starts once this grows large. */
+  public long size() {
+    return recordBytes;
+  }
+
+  /** Whether the log holds no records, i.e. the snapshot is up to date. */
+  public boolean isEmpty() {
+    return recordBytes == 0;
+  }
+
+  /**
+   * Drops every segment once their changes are in a new snapshot, and starts over with
+   * an empty segment.
+   */
+  public void reset() throws IOException {
+    channel.close();
+    for (Path segment : segments(directory)) Files.delete(segment);
+    recordBytes = 0;
+    startSegment();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void write(byte type, byte[] payload) throws IOException {
+    ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+    record.putInt(payload.length).putInt(crc(type, payload)).put(type).put(payload).flip();
+    while (record.hasRemaining()) channel.write(record);
+    recordBytes += HEADER_BYTES + payload.length;
+  }
+
+  private void startSegment() throws IOException {
+    if (channel != null) channel.close();
+    Path segment = directory.resolve(String.format("segment-%06d.log", ++sequence));
+    channel = FileChannel.open(segment, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    channel.write(ByteBuffer.wrap(MAGIC));
+    channel.force(true);
+    syncDirectory(directory);
+  }
+
+  private static boolean readMagic(FileChannel in) throws IOException {
+    ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+    return readFully(in, magic, 0) && Arrays.equals(magic.array(), MAGIC);
+  }
+
+  private static boolean readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+    long pos = position;
+    while (buffer.hasRemaining()) {
+      int n = in.read(buffer, pos);
+      if (n < 0) return false;
+      pos += n;
+    }
+    return true;
+  }
+
+  private static List<SimpleVectorStoreContent> decodeAdd(byte[] payload) throws IOException {
+    return MAPPER.readValue(payload, new TypeReference<List<Entry>>() {}).stream()
+        .map(e -> new SimpleVectorStoreContent(e.id(), e.text(), e.metadata(), e.embedding()))
+        .toList();
+  }
+
+  private static int crc(byte type, byte[] payload) {
+    CRC32C crc = new CRC32C();
+    crc.update(type);
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+
+  private static List<Path> segments(Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) return List.of();
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(p -> SEGMENT_NAME.matcher(p.getFileName().toString()).matches())
+          .sorted(Comparator.comparingLong(MutationLog::sequenceOf))
+          .toList();
+    }
+  }
+
+  private static long sequenceOf(Path segment) {
+    Matcher m = SEGMENT_NAME.matcher(segment.getFileName().toString());
+    return m.matches() ? Long.parseLong(m.group(1)) : 0;
+  }
+
+  /** Makes a created or deleted segment file durable; not supported on every platform. */
+  private static void syncDirectory(Path directory) {
+    try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+      dir.force(true);
+    } catch (IOException e) {
+      // Best effort
+    }
+  }
+}
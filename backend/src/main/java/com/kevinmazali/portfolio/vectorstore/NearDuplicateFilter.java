@@ -0,0 +1,195 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Near-duplicate detection for chunks with MinHash and locality-sensitive hashing.
+ *
+ * <p>Each text is reduced to its set of word shingles ({@code shingleSize} consecutive
+ * words) and summarized by a MinHash signature: for every one of {@code numHashes}
+ * hash functions, the minimum hash over the shingles. The fraction of positions where
+ * two signatures agree estimates the Jaccard similarity of the shingle sets.</p>
+ *
+ * <p>Signatures are split into {@code bands} bands; texts that agree on all rows of at
+ * least one band land in the same bucket and become candidates, and only candidates
+ * are compared. With 128 hashes in 32 bands a pair at Jaccard 0.8 is a candidate with
+ * probability above 0.999, while unrelated chunks almost never are, so checking a chunk
+ * costs the same regardless of how many have been accepted.</p>
+ *
+ * <p>Not thread-safe; one instance is used by one build or by the serial append path.</p>
+ */
+public final class NearDuplicateFilter {
+
+  private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private final double threshold;
+  private final int shingleSize;
+  private final int rows;
+  private final long[] seedsA;
+  private final long[] seedsB;
+  private final List<long[]> signatures = new ArrayList<>();
+  private final List<Map<Long, List<Integer>>> buckets = new ArrayList<>();
+
+  private int checked;
+  private int duplicates;
+  private long duplicateChars;
+
+  /**
+   * @param threshold estimated Jaccard similarity of the shingle sets at or above which a
+   *                  text is a near duplicate, in (0, 1]
+   * @param shingleSize words per shingle
+   * @param numHashes MinHash signature length
+   * @param bands LSH bands; must divide {@code numHashes}
+   */
+  public NearDuplicateFilter(double threshold, int shingleSize, int numHashes, int bands) {
+    if (threshold <= 0 || threshold > 1) throw new IllegalArgumentException("threshold must be in (0, 1]");
+    if (bands <= 0 || numHashes % bands != 0) throw new IllegalArgumentException("bands must divide numHashes");
+    this.threshold = threshold;
+    this.shingleSize = Math.max(1, shingleSize);
+    this.rows = numHashes / bands;
+    this.seedsA = new long[numHashes];
+    this.seedsB = new long[numHashes];
+    Random random = new Random(0x5eed);
+    for (int i = 0; i < numHashes; i++) {
+      seedsA[i] = random.nextLong() | 1L;
+      seedsB[i] = random.nextLong();
+    }
+    for (int b = 0; b < bands; b++) buckets.add(new HashMap<>());
+  }
+
+  /**
+   * Checks {@code text} against everything accepted so far. A novel text is accepted and
+   * becomes a reference for later checks; a near duplicate is counted and dropped.
+   *
+   * @return {@code true} when the text is not a near duplicate
+   */
+  public boolean accept(String text) {
+    checked++;
+    long[] signature = signature(text);
+    if (signature == null) return true;
+    if (isDuplicate(signature)) {
+      duplicates++;
+      duplicateChars += text.length();
+      return false;
+    }
+    insert(signature);
+    return true;
+  }
+
+  /** Registers a text as a reference without counting it, e.g. chunks already in the store. */
+  public void seed(String text) {
+    long[] signature = signature(text);
+    if (signature != null && !isDuplicate(signature)) insert(signature);
+  }
+
+  /** Texts passed to {@link #accept}. */
+  public int checked() {
+    return checked;
+  }
+
+  /** Texts rejected as near duplicates. */
+  public int duplicates() {
+    return duplicates;
+  }
+
+  /** Total characters of the rejected texts. */
+  public long duplicateChars() {
+    return duplicateChars;
+  }
+
+  /** Estimated Jaccard similarity of the shingle sets of two texts. */
+  double similarity(String a, String b) {
+    long[] sa = signature(a);
+    long[] sb = signature(b);
+    if (sa == null || sb == null) return 0;
+    return agreement(sa, sb);
+  }
+
+  private boolean isDuplicate(long[] signature) {
+    Set<Integer> compared = new HashSet<>();
+    for (int b = 0; b < buckets.size(); b++) {
+      List<Integer> candidates = buckets.get(b).get(bandKey(signature, b));
+      if (candidates == null) continue;
+      for (int candidate : candidates) {
+        if (compared.add(candidate) && agreement(signature, signatures.get(candidate)) >= threshold) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void insert(long[] signature) {
+    int index = signatures.size();
+    signatures.add(signature);
+    for (int b = 0; b < buckets.size(); b++) {
+      buckets.get(b).computeIfAbsent(bandKey(signature, b), k -> new ArrayList<>(1)).add(index);
+    }
+  }
+
+  /** MinHash signature of the text's word shingles, or {@code null} for text without words. */
+  private long[] signature(String text) {
+    if (text == null) return null;
+    String[] words = NON_WORD.split(text.toLowerCase(Locale.ROOT).strip());
+    List<String> tokens = new ArrayList<>(words.length);
+    for (String w : words) {
+      if (!w.isEmpty()) tokens.add(w);
+    }
+    if (tokens.isEmpty()) return null;
+
+    long[] signature = new long[seedsA.length];
+    Arrays.fill(signature, Long.MAX_VALUE);
+    int shingles = Math.max(1, tokens.size() - shingleSize + 1);
+    for (int s = 0; s < shingles; s++) {
+      long h = 0xcbf29ce484222325L;
+      for (int w = s; w < Math.min(tokens.size(), s + shingleSize); w++) {
+        h = fnv(h, tokens.get(w));
+        h = (h ^ ' ') * 0x100000001b3L;
+      }
+      for (int i = 0; i < signature.length; i++) {
+        long v = mix(seedsA[i] * h + seedsB[i]);
+        if (v < signature[i]) signature[i] = v;
+      }
+    }
+    return signature;
+  }
+
+  private long bandKey(long[] signature, int band) {
+    long h = band;
+    for (int r = band * rows; r < (band + 1) * rows; r++) {
+      h = mix(h * 31 + signature[r]);
+    }
+    return h;
+  }
+
+  private static double agreement(long[] a, long[] b) {
+    int same = 0;
+    for (int i = 0; i < a.length; i++) {
+      if (a[i] == b[i]) same++;
+    }
+    return (double) same / a.length;
+  }
+
+  private static long fnv(long h, String word) {
+    for (int i = 0; i < word.length(); i++) {
+      h = (h ^ word.charAt(i)) * 0x100000001b3L;
+    }
+    return h;
+  }
+
+  /** SplitMix64 finalizer: spreads the bits of a linear hash. */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,114 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Source documents that failed to parse, persisted next to the vector store so a
+ * restart or rebuild skips them instead of failing on them again.
+ *
+ * <p>An entry records the file's size and modification time; once the file changes
+ * (e.g. a fixed version is uploaded over it) the entry no longer matches and the file
+ * is parsed again. Entries can also be released by hand.</p>
+ */
+@Slf4j
+public final class ParseQuarantine {
+
+  /** One quarantined file and why it was quarantined. */
+  public record Entry(String source, long size, long lastModified, String reason, String quarantinedAt) {}
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final Path file;
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+  /** Loads the entries stored in {@code file}, if it exists. */
+  public ParseQuarantine(Path file) {
+    this.file = file;
+    if (Files.exists(file)) {
+      try {
+        for (Entry e : MAPPER.readValue(file.toFile(), new TypeReference<List<Entry>>() {})) {
+          entries.put(e.source(), e);
+        }
+      } catch (IOException e) {
+        log.warn("Could not read parse quarantine {}, starting empty: {}", file, e.getMessage());
+      }
+    }
+  }
+
+  /** The entry for {@code resource} when it is quarantined and unchanged since. */
+  public synchronized Optional<Entry> find(Resource resource, String source) {
+    Entry entry = entries.get(source);
+    if (entry == null) return Optional.empty();
+    if (entry.size() != size(resource) || entry.lastModified() != lastModified(resource)) {
+      log.info("'{}' changed since it was quarantined; parsing it again", source);
+      entries.remove(source);
+      save();
+      return Optional.empty();
+    }
+    return Optional.of(entry);
+  }
+
+  /** Records that {@code resource} failed to parse. */
+  public synchronized void add(Resource resource, String source, String reason) {
+    entries.put(source, new Entry(source, size(resource), lastModified(resource), reason, Instant.now().toString()));
+    save();
+  }
+
+  /** All quarantined files, oldest first. */
+  public synchronized List<Entry> list() {
+    return new ArrayList<>(entries.values());
+  }
+
+  /**
+   * Removes a file from quarantine so the next rebuild or upload parses it again.
+   *
+   * @return {@code false} when it was not quarantined
+   */
+  public synchronized boolean release(String source) {
+    if (entries.remove(source) == null) return false;
+    save();
+    return true;
+  }
+
+  private void save() {
+    try {
+      Files.createDirectories(file.getParent());
+      Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+      MAPPER.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), new ArrayList<>(entries.values()));
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write parse quarantine " + file, e);
+    }
+  }
+
+  private static long size(Resource resource) {
+    try {
+      return resource.contentLength();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  private static long lastModified(Resource resource) {
+    try {
+      return resource.lastModified();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * LRU cache of query embeddings, shared by all store generations since they use the same
+ * embedding model.
+ *
+ * <p>Queries are keyed case-folded, with whitespace collapsed and trailing punctuation
+ * removed, so "What projects has Kevin worked on?" and "what projects has kevin worked on"
+ * share one embedding call. The embedding is computed outside the lock; two concurrent
+ * misses for the same query both call the model and the later one wins.</p>
+ *
+ * <p>{@link #embedAll} embeds the misses of several queries in one model call.</p>
+ */
+public final class QueryEmbeddingCache {
+
+  private final Function<String, float[]> embedder;
+  private final Function<List<String>, List<float[]>> batchEmbedder;
+  private final Map<String, float[]> entries;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param embedder computes an embedding on a miss
+   * @param maxEntries entries kept; 0 disables caching
+   */
+  public QueryEmbeddingCache(Function<String, float[]> embedder, int maxEntries) {
+    this(embedder, queries -> queries.stream().map(embedder).toList(), maxEntries);
+  }
+
+  /**
+   * @param embedder computes an embedding on a miss
+   * @param batchEmbedder computes the embeddings of several misses in one call, in order
+   * @param maxEntries entries kept; 0 disables caching
+   */
+  public QueryEmbeddingCache(Function<String, float[]> embedder, Function<List<String>, List<float[]>> batchEmbedder,
+                             int maxEntries) {
+    this.embedder = embedder;
+    this.batchEmbedder = batchEmbedder;
+    int max = Math.max(0, maxEntries);
+    this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+        return size() > max;
+      }
+    };
+  }
+
+  /** The embedding of {@code query}, from the cache when it was embedded before. */
+  public float[] embed(String query) {
+    String key = key(query);
+    synchronized (entries) {
+      float[] cached = entries.get(key);
+      if (cached != null) {
+        hits.incrementAndGet();
+        return cached;
+      }
+    }
+    misses.incrementAndGet();
+    float[] embedding = embedder.apply(query);
+    synchronized (entries) {
+      entries.put(key, embedding);
+    }
+    return embedding;
+  }
+
+  /**
+   * The embeddings of {@code queries}, in order. Queries that are not cached are embedded
+   * together in one call, each distinct (normalized) query once.
+   */
+  public List<float[]> embedAll(List<String> queries) {
+    List<String> keys = queries.stream().map(QueryEmbeddingCache::key).toList();
+    Map<String, float[]> found = new LinkedHashMap<>();
+    Map<String, String> missing = new LinkedHashMap<>();
+    synchronized (entries) {
+      for (int i = 0; i < queries.size(); i++) {
+        String key = keys.get(i);
+        if (found.containsKey(key) || missing.containsKey(key)) continue;
+        float[] cached = entries.get(key);
+        if (cached != null) {
+          found.put(key, cached);
+        } else {
+          missing.put(key, queries.get(i));
+        }
+      }
+    }
+    hits.addAndGet(found.size());
+    if (!missing.isEmpty()) {
+      misses.addAndGet(missing.size());
+      List<float[]> embeddings = batchEmbedder.apply(new ArrayList<>(missing.values()));
+      int i = 0;
+      synchronized (entries) {
+        for (String key : missing.keySet()) {
+          float[] embedding = embeddings.get(i++);
+          entries.put(key, embedding);
+          found.put(key, embedding);
+        }
+      }
+    }
+    return keys.stream().map(found::get).toList();
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  static String key(String query) {
+    if (query == null) return "";
+    return query.strip().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").replaceAll("[?!.\\s]+$", "");
+  }
+}
@@ -0,0 +1,43 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import org.springframework.ai.document.Document;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reciprocal Rank Fusion (RRF) of several ranked result lists.
+ *
+ * <p>Each document scores {@code sum(1 / (K + rank))} over the lists it appears in.
+ * Ranks are comparable across retrievers whose raw scores are not (cosine vs. BM25),
+ * and chunks found by both the vector and the lexical search rise to the top.</p>
+ */
+public final class RankFusion {
+
+  /** Damping constant from the original RRF paper. */
+  private static final int K = 60;
+
+  private RankFusion() {}
+
+  /**
+   * Fuses the rankings, de-duplicating on document id, and returns the best {@code limit}.
+   */
+  public static List<Document> reciprocalRank(List<List<Document>> rankings, int limit) {
+    Map<String, Double> scores = new LinkedHashMap<>();
+    Map<String, Document> byId = new LinkedHashMap<>();
+    for (List<Document> ranking : rankings) {
+      for (int rank = 0; rank < ranking.size(); rank++) {
+        Document d = ranking.get(rank);
+        scores.merge(d.getId(), 1.0 / (K + rank + 1), Double::sum);
+        byId.putIfAbsent(d.getId(), d);
+      }
+    }
+    return scores.entrySet().stream()
+        .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+        .limit(limit)
+        .map(e -> byId.get(e.getKey()))
+        .toList();
+  }
+}
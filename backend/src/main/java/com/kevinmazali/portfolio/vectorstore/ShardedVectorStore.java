@@ -0,0 +1,424 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.lang.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Spreads chunks over several in-process {@link IndexedVectorStore} shards and searches
+ * them in parallel.
+ *
+ * <p>Chunks are routed by a hash of their {@code source} metadata, so all chunks of one
+ * document live on the same shard and an upload only re-indexes that shard. A query is
+ * embedded once, scattered to every shard on virtual threads (which run on the JVM's
+ * ForkJoin carrier pool, one carrier per core), and each shard's best {@code topK} are
+ * gathered with a k-way merge by score. A brute-force scan is bound by memory bandwidth
+ * and core count, so with one shard per core the scan time drops close to linearly.</p>
+ *
+ * <p>With one shard the store is persisted exactly like a single {@link IndexedVectorStore}.
+ * With more, every shard has its own JSON file next to the store file and the store file
+ * itself is a small manifest listing them; only shards that changed since the last save
+ * are rewritten. Loading a file written with a different shard count re-routes the
+ * chunks without re-embedding them.</p>
+ *
+ * <p>BM25 statistics are per shard, so lexical scores from different shards are only
+ * approximately comparable. The gathered lexical list feeds rank fusion, which only
+ * looks at ranks, and documents are never split across shards.</p>
+ */
+@Slf4j
+public class ShardedVectorStore implements HybridSearchStore {
+
+  private static final String FORMAT = "sharded-v1";
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final ExecutorService SCATTER = Executors.newVirtualThreadPerTaskExecutor();
+
+  /** Store file contents when there is more than one shard; file names are relative to the manifest. */
+  @JsonPropertyOrder({"format", "shards", "files"})
+  record Manifest(String format, int shards, List<String> files) {}
+
+  /** Which file a shard was last written to, and at which shard version. */
+  private record Saved(Path file, long version) {}
+
+  private final List<IndexedVectorStore> shards;
+  private final Saved[] saved;
+
+  /**
+   * @param shards the shards, all built with the same embedding model; their order defines the routing
+   */
+  public ShardedVectorStore(List<IndexedVectorStore> shards) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("At least one shard is required");
+    }
+    this.shards = List.copyOf(shards);
+    this.saved = new Saved[shards.size()];
+  }
+
+  /** Number of shards. */
+  public int shardCount() {
+    return shards.size();
+  }
+
+  List<IndexedVectorStore> shards() {
+    return shards;
+  }
+
+  /** Whether {@code file} was written with this store's shard count, so loading it needs no re-routing. */
+  public boolean matchesLayout(File file) {
+    Path path = file.toPath();
+    return (isManifest(path) ? readManifest(path).shards() : 1) == shards.size();
+  }
+
+  @Override
+  public List<Document> similaritySearch(SearchRequest request) {
+    return similaritySearch(embedQuery(request.getQuery()), request.getTopK(), request.getSimilarityThreshold(),
+        request.getFilterExpression());
+  }
+
+  @Override
+  public List<Document> similaritySearch(float[] queryEmbedding, int topK, double similarityThreshold,
+                                         @Nullable Filter.Expression filter) {
+    return mergeTopK(scatter(shard -> shard.similaritySearch(queryEmbedding, topK, similarityThreshold, filter)), topK);
+  }
+
+  @Override
+  public List<Document> lexicalSearch(String query, int topK, @Nullable Filter.Expression filter) {
+    return mergeTopK(scatter(shard -> shard.lexicalSearch(query, topK, filter)), topK);
+  }
+
+  @Override
+  public float[] embedQuery(String query) {
+    return shards.get(0).embedQuery(query);
+  }
+
+  @Override
+  public List<float[]> embedQueries(List<String> queries) {
+    return shards.get(0).embedQueries(queries);
+  }
+
+  /** Sum of the shard versions, so it changes whenever any shard changes. */
+  @Override
+  public long version() {
+    long version = 0;
+    for (IndexedVectorStore shard : shards) version += shard.version();
+    return version;
+  }
+
+  @Override
+  public int count(@Nullable Filter.Expression filter) {
+    int count = 0;
+    for (IndexedVectorStore shard : shards) count += shard.count(filter);
+    return count;
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (IndexedVectorStore shard : shards) size += shard.size();
+    return size;
+  }
+
+  @Override
+  public List<Document> documents() {
+    List<Document> documents = new ArrayList<>(size());
+    for (IndexedVectorStore shard : shards) documents.addAll(shard.documents());
+    return documents;
+  }
+
+  /** Routes the chunks to their shards and embeds each shard's batch in parallel. */
+  @Override
+  public void add(List<Document> documents) {
+    List<List<Document>> routed = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) routed.add(new ArrayList<>());
+    for (Document d : documents) {
+      routed.get(shardOf(d.getMetadata(), d.getId())).add(d);
+    }
+    List<Callable<Void>> tasks = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      IndexedVectorStore shard = shards.get(i);
+      List<Document> batch = routed.get(i);
+      if (!batch.isEmpty()) {
+        tasks.add(() -> {
+          shard.add(batch);
+          return null;
+        });
+      }
+    }
+    invokeAll(tasks);
+  }
+
+  /** Ids do not reveal the shard, so every shard drops whichever of them it holds. */
+  @Override
+  public void delete(List<String> ids) {
+    for (IndexedVectorStore shard : shards) shard.delete(ids);
+  }
+
+  @Override
+  public List<SimpleVectorStoreContent> contents(Collection<String> ids) {
+    List<SimpleVectorStoreContent> contents = new ArrayList<>(ids.size());
+    for (IndexedVectorStore shard : shards) contents.addAll(shard.contents(ids));
+    return contents;
+  }
+
+  /** Routes the chunks like {@link #add}; only shards that receive chunks are re-indexed. */
+  @Override
+  public void restore(List<SimpleVectorStoreContent> contents) {
+    List<List<SimpleVectorStoreContent>> routed = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) routed.add(new ArrayList<>());
+    for (SimpleVectorStoreContent c : contents) {
+      routed.get(shardOf(c.getMetadata(), c.getId())).add(c);
+    }
+    for (int i = 0; i < shards.size(); i++) shards.get(i).restore(routed.get(i));
+  }
+
+  /** Defers every shard; closing re-indexes the changed shards in parallel. */
+  @Override
+  public Indexing deferIndexing() {
+    List<Indexing> deferred = shards.stream().map(IndexedVectorStore::deferIndexing).toList();
+    return () -> {
+      List<Callable<Void>> closes = new ArrayList<>();
+      for (Indexing indexing : deferred) {
+        closes.add(() -> {
+          indexing.close();
+          return null;
+        });
+      }
+      invokeAll(closes);
+    };
+  }
+
+  @Override
+  public void save(File file) {
+    if (shards.size() == 1) {
+      shards.get(0).save(file);
+      return;
+    }
+    Path manifest = file.toPath();
+    String base = baseName(manifest);
+    List<String> names = new ArrayList<>();
+    List<Callable<Void>> writes = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      IndexedVectorStore shard = shards.get(i);
+      String name = base + ".shard-" + i + ".json";
+      Path target = manifest.resolveSibling(name);
+      names.add(name);
+      long version = shard.version();
+      Saved last = saved[i];
+      if (last != null && last.file().equals(target) && last.version() == version && Files.exists(target)) {
+        continue;
+      }
+      int index = i;
+      writes.add(() -> {
+        shard.save(target.toFile());
+        saved[index] = new Saved(target, version);
+        return null;
+      });
+    }
+    invokeAll(writes);
+    writeManifest(manifest, new Manifest(FORMAT, shards.size(), names));
+    log.debug("Saved {} of {} shard(s) to {}", writes.size(), shards.size(), manifest.getParent());
+  }
+
+  @Override
+  public void load(File file) {
+    Path path = file.toPath();
+    List<Path> files = isManifest(path) ? shardFiles(path) : List.of(path);
+    if (files.size() == shards.size()) {
+      List<Callable<Void>> loads = new ArrayList<>();
+      for (int i = 0; i < shards.size(); i++) {
+        IndexedVectorStore shard = shards.get(i);
+        Path shardFile = files.get(i);
+        loads.add(() -> {
+          shard.load(shardFile.toFile());
+          return null;
+        });
+      }
+      invokeAll(loads);
+      return;
+    }
+    // Written with another shard count: read every file, then re-route
+    log.info("Re-sharding {} file(s) from {} into {} shard(s)", files.size(), path, shards.size());
+    try (Indexing indexing = deferIndexing()) {
+      reshard(files);
+    }
+  }
+
+  /**
+   * Reads {@code files} through the first shard and moves every chunk to the shard it routes
+   * to. Loading replaces a shard's chunks, so each file's are collected before the next is read.
+   */
+  private void reshard(List<Path> files) {
+    List<SimpleVectorStoreContent> all = new ArrayList<>();
+    IndexedVectorStore reader = shards.get(0);
+    for (Path f : files) {
+      reader.load(f.toFile());
+      all.addAll(reader.contents());
+    }
+    List<List<SimpleVectorStoreContent>> routed = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) routed.add(new ArrayList<>());
+    for (SimpleVectorStoreContent c : all) {
+      routed.get(shardOf(c.getMetadata(), c.getId())).add(c);
+    }
+    List<Callable<Void>> replaces = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      IndexedVectorStore shard = shards.get(i);
+      List<SimpleVectorStoreContent> contents = routed.get(i);
+      replaces.add(() -> {
+        shard.replaceContents(contents);
+        return null;
+      });
+    }
+    invokeAll(replaces);
+  }
+
+  /**
+   * Whether {@code file} is a shard manifest rather than a plain store file. Only the
+   * first bytes are read, so this is cheap for large stores.
+   */
+  public static boolean isManifest(Path file) {
+    if (!Files.isRegularFile(file)) return false;
+    byte[] expected = ("{\"format\":\"" + FORMAT + "\"").getBytes(StandardCharsets.UTF_8);
+    try (InputStream in = Files.newInputStream(file)) {
+      return Arrays.equals(in.readNBytes(expected.length), expected);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /** The shard files a manifest points to, resolved against the manifest's directory. */
+  public static List<Path> shardFiles(Path manifest) {
+    return readManifest(manifest).files().stream().map(name -> manifest.resolveSibling(name).normalize()).toList();
+  }
+
+  /**
+   * Writes a copy of {@code manifest} to {@code target} that points to the same shard
+   * files, replacing {@code target} atomically. The shard files are not copied.
+   */
+  public static void publish(Path manifest, Path target) {
+    Path targetDir = target.toAbsolutePath().getParent();
+    List<String> files = shardFiles(manifest).stream()
+        .map(p -> targetDir.relativize(p.toAbsolutePath()).toString().replace(File.separatorChar, '/'))
+        .toList();
+    writeManifest(target, new Manifest(FORMAT, files.size(), files));
+  }
+
+  /**
+   * Merges per-shard rankings, each sorted by descending score, into the overall best
+   * {@code topK}. A heap holds one cursor per shard, so the merge costs
+   * {@code O(topK log shards)} instead of sorting every candidate.
+   */
+  static List<Document> mergeTopK(List<List<Document>> rankings, int topK) {
+    if (rankings.size() == 1) return rankings.get(0);
+    PriorityQueue<int[]> heads = new PriorityQueue<>(rankings.size(),
+        Comparator.comparingDouble((int[] c) -> score(rankings.get(c[0]).get(c[1]))).reversed());
+    for (int r = 0; r < rankings.size(); r++) {
+      if (!rankings.get(r).isEmpty()) heads.add(new int[] {r, 0});
+    }
+    List<Document> merged = new ArrayList<>(topK);
+    while (merged.size() < topK && !heads.isEmpty()) {
+      int[] cursor = heads.poll();
+      List<Document> ranking = rankings.get(cursor[0]);
+      merged.add(ranking.get(cursor[1]));
+      if (cursor[1] + 1 < ranking.size()) heads.add(new int[] {cursor[0], cursor[1] + 1});
+    }
+    return merged;
+  }
+
+  /** Shard for a chunk: by its source document when known, otherwise by chunk id. */
+  int shardOf(Map<String, Object> metadata, String id) {
+    Object source = metadata.get("source");
+    String key = source != null ? source.toString() : id;
+    int h = key.hashCode();
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    return Math.floorMod(h, shards.size());
+  }
+
+  /** Runs {@code task} on every shard, the first one on the calling thread, and returns the results in shard order. */
+  private <T> List<T> scatter(Function<IndexedVectorStore, T> task) {
+    if (shards.size() == 1) return List.of(task.apply(shards.get(0)));
+    List<Callable<T>> rest = new ArrayList<>(shards.size() - 1);
+    for (IndexedVectorStore shard : shards.subList(1, shards.size())) {
+      rest.add(() -> task.apply(shard));
+    }
+    List<Future<T>> futures = rest.stream().map(SCATTER::submit).toList();
+    List<T> results = new ArrayList<>(shards.size());
+    results.add(task.apply(shards.get(0)));
+    results.addAll(join(futures));
+    return results;
+  }
+
+  private static <T> void invokeAll(List<Callable<T>> tasks) {
+    join(tasks.stream().map(SCATTER::submit).toList());
+  }
+
+  private static <T> List<T> join(List<Future<T>> futures) {
+    List<T> results = new ArrayList<>(futures.size());
+    try {
+      for (Future<T> f : futures) results.add(f.get());
+    } catch (InterruptedException e) {
+      futures.forEach(f -> f.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for shards", e);
+    } catch (ExecutionException e) {
+      futures.forEach(f -> f.cancel(true));
+      if (e.getCause() instanceof RuntimeException re) throw re;
+      throw new IllegalStateException("Shard task failed", e.getCause());
+    }
+    return results;
+  }
+
+  private static double score(Document d) {
+    return d.getScore() != null ? d.getScore() : Double.NEGATIVE_INFINITY;
+  }
+
+  private static String baseName(Path file) {
+    String name = file.getFileName().toString();
+    return name.endsWith(".json") ? name.substring(0, name.length() - ".json".length()) : name;
+  }
+
+  private static Manifest readManifest(Path manifest) {
+    try {
+      return MAPPER.readValue(manifest.toFile(), Manifest.class);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read shard manifest " + manifest, e);
+    }
+  }
+
+  private static void writeManifest(Path target, Manifest manifest) {
+    try {
+      Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+      MAPPER.writeValue(tmp.toFile(), manifest);
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write shard manifest " + target, e);
+    }
+  }
+}
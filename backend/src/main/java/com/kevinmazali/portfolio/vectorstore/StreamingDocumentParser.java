@@ -0,0 +1,418 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.core.io.Resource;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Extracts text from a document in bounded segments instead of one string.
+ *
+ * <p>The parser runs on its own worker thread and writes into a writer that cuts the
+ * text into segments of about {@code segmentChars} at line breaks and hands them over
+ * through a two-slot queue. The caller splits, embeds and stores each segment while the
+ * parser continues, and a full queue pauses the parser, so memory holds a few segments
+ * rather than the whole document.</p>
+ *
+ * <p>Limits per file:</p>
+ * <ul>
+ *   <li>files over {@code maxBytes} are rejected, up front when the size is known and
+ *       while reading otherwise;</li>
+ *   <li>text beyond {@code maxChars} is dropped and the parse stops early (truncation,
+ *       not a failure);</li>
+ *   <li>the parser fails after {@code timeout} of its own time; time spent waiting for the
+ *       caller is not counted;</li>
+ *   <li>the worker fails when the heap it has allocated for the file, measured with the
+ *       JVM's per-thread allocation counter, exceeds an allocation cap of
+ *       {@code allocationPerInputByte} times the input size, but at least
+ *       {@code allocationFloor}. The counter sums every allocation, including buffers
+ *       freed long ago, so this caps the parser's work, like the timeout does, rather
+ *       than the memory it holds; scaling it with the input keeps large valid files
+ *       within it while a small file that expands enormously (a decompression bomb)
+ *       is stopped.</li>
+ * </ul>
+ *
+ * <p>A parser that ignores interruption after a timeout is abandoned: its worker thread
+ * (a daemon) is left behind and a fresh worker takes over, so one bad file cannot block
+ * the next.</p>
+ */
+@Slf4j
+public final class StreamingDocumentParser {
+
+  /** Writes the plain text of a document to {@code out}. */
+  @FunctionalInterface
+  public interface TextExtractor {
+    void extract(InputStream in, Writer out) throws Exception;
+  }
+
+  /** Outcome of a parse: extracted characters and whether the character cap cut it short. */
+  public record Result(long chars, boolean truncated) {}
+
+  /** A document that cannot be parsed within the limits; the message is the reason. */
+  public static final class ParseFailedException extends RuntimeException {
+    public ParseFailedException(String reason, Throwable cause) {
+      super(reason, cause);
+    }
+  }
+
+  private static final Object END = new Object();
+  private static final long POLL_MILLIS = 100;
+
+  private final TextExtractor extractor;
+  private final long maxBytes;
+  private final long maxChars;
+  private final long timeoutNanos;
+  private final long allocationFloor;
+  private final long allocationPerInputByte;
+  private final int segmentChars;
+  private ExecutorService worker = newWorker();
+
+  public StreamingDocumentParser(TextExtractor extractor, long maxBytes, long maxChars, Duration timeout,
+                                 long allocationFloor, long allocationPerInputByte, int segmentChars) {
+    this.extractor = extractor;
+    this.maxBytes = maxBytes;
+    this.maxChars = maxChars;
+    this.timeoutNanos = timeout.toNanos();
+    this.allocationFloor = allocationFloor;
+    this.allocationPerInputByte = Math.max(0, allocationPerInputByte);
+    this.segmentChars = Math.max(1024, segmentChars);
+  }
+
+  /** Tika's auto-detecting parser, with embedded documents (e.g. attachments) included. */
+  public static TextExtractor tika() {
+    AutoDetectParser parser = new AutoDetectParser();
+    return (in, out) -> {
+      ParseContext context = new ParseContext();
+      context.set(Parser.class, parser);
+      parser.parse(in, new BodyContentHandler(out), new Metadata(), context);
+    };
+  }
+
+  /**
+   * Parses {@code resource} and passes each text segment to {@code consumer} on the
+   * calling thread. An exception from the consumer aborts the parse and is rethrown as is.
+   *
+   * @throws ParseFailedException when the file is too large, times out, exceeds the
+   *                              allocation cap or cannot be parsed
+   */
+  public synchronized Result parse(Resource resource, Consumer<String> consumer) {
+    long length = contentLength(resource);
+    if (length > maxBytes) {
+      throw new ParseFailedException("file is " + length + " bytes, the limit is " + maxBytes, null);
+    }
+
+    BlockingQueue<Object> queue = new ArrayBlockingQueue<>(2);
+    AtomicLong workerThread = new AtomicLong(-1);
+    AtomicLong allocatedAtStart = new AtomicLong(-1);
+    // The size when known up front, else what has been read so far
+    AtomicLong inputBytes = new AtomicLong(Math.max(0, length));
+    CountDownLatch exited = new CountDownLatch(1);
+    SegmentingWriter out = new SegmentingWriter(queue, inputBytes);
+    Future<?> task = worker.submit(() -> {
+      workerThread.set(Thread.currentThread().threadId());
+      allocatedAtStart.set(allocatedBytes(Thread.currentThread().threadId()));
+      try (InputStream in = new LimitedInputStream(resource.getInputStream(), inputBytes)) {
+        extractor.extract(in, out);
+        out.finish();
+        out.done(END);
+      } catch (Throwable t) {
+        try {
+          if (out.truncated.get()) {
+            out.finish();
+            out.done(END);
+          } else {
+            out.done(t);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      } finally {
+        exited.countDown();
+      }
+      return null;
+    });
+
+    try {
+      while (true) {
+        Object item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (item == END) {
+          return new Result(out.total, out.truncated.get());
+        }
+        if (item instanceof Throwable t) {
+          throw failure(t);
+        }
+        if (item instanceof String segment) {
+          consumer.accept(segment);
+        }
+        if (out.busyNanos() > timeoutNanos) {
+          throw new ParseFailedException("parsing took longer than " + Duration.ofNanos(timeoutNanos), null);
+        }
+        long allocated = allocatedBytes(workerThread.get()) - allocatedAtStart.get();
+        long cap = allocationCap(inputBytes.get());
+        if (allocatedAtStart.get() >= 0 && !out.isDone() && allocated > cap) {
+          throw allocationCapExceeded(cap, inputBytes.get());
+        }
+      }
+    } catch (InterruptedException e) {
+      task.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while parsing " + resource.getFilename(), e);
+    } catch (RuntimeException e) {
+      // Includes the limit checks above and failures of the consumer
+      try {
+        abort(task, exited);
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+      throw e;
+    }
+  }
+
+  private ParseFailedException failure(Throwable t) {
+    for (Throwable c = t; c != null; c = c.getCause()) {
+      if (c instanceof FileTooLargeException) {
+        return new ParseFailedException("file is larger than " + maxBytes + " bytes", null);
+      }
+      if (c instanceof AllocationCapExceededException cap) {
+        return allocationCapExceeded(cap.cap, cap.inputBytes);
+      }
+    }
+    if (t instanceof OutOfMemoryError) {
+      return new ParseFailedException("parser ran out of memory", t);
+    }
+    return new ParseFailedException(t.getClass().getSimpleName() + ": " + t.getMessage(), t);
+  }
+
+  /** Cancels the parse; a worker that does not stop within a second is replaced. */
+  private void abort(Future<?> task, CountDownLatch exited) throws InterruptedException {
+    task.cancel(true);
+    if (exited.await(1, TimeUnit.SECONDS)) return;
+    ExecutorService stuck = worker;
+    worker = newWorker();
+    stuck.shutdownNow();
+    log.warn("Document parser did not stop cleanly; continuing on a new worker thread");
+  }
+
+  private static ExecutorService newWorker() {
+    return Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "document-parser");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  private static long contentLength(Resource resource) {
+    try {
+      return resource.isFile() ? resource.contentLength() : -1;
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
+  /** Heap allocated by a thread so far, or -1 when the JVM does not track it. */
+  private static long allocatedBytes(long threadId) {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (threadId < 0 || !(bean instanceof com.sun.management.ThreadMXBean sun)
+        || !sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled()) {
+      return -1;
+    }
+    return sun.getThreadAllocatedBytes(threadId);
+  }
+
+  private static final class FileTooLargeException extends IOException {
+  }
+
+  /** Heap the worker may allocate for {@code inputBytes} of input, saturating instead of overflowing. */
+  private long allocationCap(long inputBytes) {
+    long scaled = allocationPerInputByte > 0 && inputBytes > Long.MAX_VALUE / allocationPerInputByte
+        ? Long.MAX_VALUE
+        : allocationPerInputByte * inputBytes;
+    return Math.max(allocationFloor, scaled);
+  }
+
+  private static ParseFailedException allocationCapExceeded(long cap, long inputBytes) {
+    return new ParseFailedException("parser allocated more than " + cap + " bytes for " + inputBytes
+        + " bytes of input (allocation cap)", null);
+  }
+
+  private static final class AllocationCapExceededException extends IOException {
+    final long cap;
+    final long inputBytes;
+
+    AllocationCapExceededException(long cap, long inputBytes) {
+      this.cap = cap;
+      this.inputBytes = inputBytes;
+    }
+  }
+
+  private static final class CharLimitReachedException extends IOException {
+  }
+
+  /**
+   * Fails the read once more than {@code maxBytes} have been read, and raises
+   * {@code inputBytes} to the bytes read so far.
+   */
+  private final class LimitedInputStream extends FilterInputStream {
+    private final AtomicLong inputBytes;
+    private long read;
+
+    LimitedInputStream(InputStream in, AtomicLong inputBytes) {
+      super(in);
+      this.inputBytes = inputBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) count(1);
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n > 0) count(n);
+      return n;
+    }
+
+    private void count(int n) throws IOException {
+      read += n;
+      if (read > maxBytes) throw new FileTooLargeException();
+      if (read > inputBytes.get()) inputBytes.set(read);
+    }
+  }
+
+  /**
+   * Buffers extracted text and hands it to the queue in segments cut at line breaks,
+   * enforcing the character cap and the worker's allocation cap on every write.
+   */
+  private final class SegmentingWriter extends Writer {
+    private final BlockingQueue<Object> queue;
+    private final AtomicLong inputBytes;
+    private final StringBuilder buffer = new StringBuilder();
+    private final AtomicBoolean truncated = new AtomicBoolean();
+    private final long start = System.nanoTime();
+    private volatile long total;
+    private volatile long blockedNanos;
+    private volatile long blockedSince;
+    private volatile long doneAt;
+    private long allocatedAtStart = -1;
+
+    SegmentingWriter(BlockingQueue<Object> queue, AtomicLong inputBytes) {
+      this.queue = queue;
+      this.inputBytes = inputBytes;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      checkAllocation();
+      long allowed = Math.min(len, maxChars - total);
+      buffer.append(cbuf, off, (int) allowed);
+      total += allowed;
+      while (buffer.length() >= segmentChars) {
+        int cut = boundary();
+        emit(buffer.substring(0, cut));
+        buffer.delete(0, cut);
+      }
+      if (allowed < len) {
+        truncated.set(true);
+        throw new CharLimitReachedException();
+      }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    void finish() throws InterruptedException {
+      if (!buffer.isEmpty()) {
+        offer(buffer.toString());
+        buffer.setLength(0);
+      }
+    }
+
+    /** Queues the final item; the parser's clock stops here. */
+    void done(Object item) throws InterruptedException {
+      doneAt = System.nanoTime();
+      queue.put(item);
+    }
+
+    boolean isDone() {
+      return doneAt != 0;
+    }
+
+    /** Time the parser has spent working, excluding time waiting for the caller to take segments. */
+    long busyNanos() {
+      long end = doneAt != 0 ? doneAt : System.nanoTime();
+      long since = blockedSince;
+      long blocked = blockedNanos + (since != 0 && doneAt == 0 ? end - since : 0);
+      return end - start - blocked;
+    }
+
+    /** Queues a segment, counting the time the parser waits for the caller. */
+    void offer(String segment) throws InterruptedException {
+      if (segment.isBlank()) return;
+      long since = System.nanoTime();
+      blockedSince = since;
+      queue.put(segment);
+      blockedNanos += System.nanoTime() - since;
+      blockedSince = 0;
+    }
+
+    private void emit(String segment) throws IOException {
+      try {
+        offer(segment);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Parse cancelled");
+      }
+    }
+
+    /** Last line break (else whitespace) in the second half of the segment, else a hard cut. */
+    private int boundary() {
+      int from = segmentChars / 2;
+      int last = Math.min(segmentChars, buffer.length()) - 1;
+      int newline = buffer.lastIndexOf("\n", last);
+      if (newline >= from) return newline + 1;
+      for (int i = last; i >= from; i--) {
+        if (Character.isWhitespace(buffer.charAt(i))) return i + 1;
+      }
+      return segmentChars;
+    }
+
+    private void checkAllocation() throws IOException {
+      long now = allocatedBytes(Thread.currentThread().threadId());
+      if (now < 0) return;
+      if (allocatedAtStart < 0) allocatedAtStart = now;
+      long input = inputBytes.get();
+      long cap = allocationCap(input);
+      if (now - allocatedAtStart > cap) throw new AllocationCapExceededException(cap, input);
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+/**
+ * Small dense-vector helpers shared by the in-process indexes.
+ */
+final class VectorMath {
+
+  private VectorMath() {}
+
+  static double dot(float[] a, float[] b) {
+    int n = Math.min(a.length, b.length);
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      sum += a[i] * b[i];
+    }
+    return sum;
+  }
+
+  static float norm(float[] v) {
+    if (v == null) return 0f;
+    double sum = 0;
+    for (float x : v) {
+      sum += x * x;
+    }
+    return (float) Math.sqrt(sum);
+  }
+}
@@ -0,0 +1,62 @@
+package com.kevinmazali.portfolio;
+
+import com.kevinmazali.portfolio.service.OpenAIService;
+import com.kevinmazali.portfolio.service.RetrievalCache;
+import com.kevinmazali.portfolio.service.TokenAccounting;
+import com.kevinmazali.portfolio.service.WarmUpService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringApplication.AbandonedRunException;
+import org.springframework.boot.SpringApplicationHook;
+import org.springframework.boot.SpringApplicationRunListener;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Wires the whole application without MySQL, unlike {@link PortfolioApplicationTests}.
+ *
+ * <p>The run is abandoned as soon as the context has refreshed, so every bean is constructed
+ * but nothing that starts on the started and ready events (the vector store load, warm-up,
+ * log maintenance) runs.</p>
+ */
+class ApplicationContextTest {
+
+    @Test
+    void everyBeanCanBeConstructedWithoutADatabase() {
+        List<Object> beans = new ArrayList<>();
+        SpringApplicationHook stopAfterRefresh = application -> new SpringApplicationRunListener() {
+            @Override
+            public void contextLoaded(ConfigurableApplicationContext context) {
+                context.addApplicationListener((ApplicationListener<ApplicationEvent>) event -> {
+                    if (!(event instanceof ContextRefreshedEvent)) return;
+                    beans.add(context.getBean(RetrievalCache.class));
+                    beans.add(context.getBean(TokenAccounting.class));
+                    beans.add(context.getBean(OpenAIService.class));
+                    beans.add(context.getBean(WarmUpService.class));
+                    throw new AbandonedRunException(context);
+                });
+            }
+        };
+
+        assertThrows(AbandonedRunException.class, () -> SpringApplication.withHook(stopAfterRefresh, () ->
+            SpringApplication.run(PortfolioApplication.class,
+                "--server.port=0",
+                "--spring.ai.openai.api-key=test",
+                "--spring.datasource.url=jdbc:mysql://localhost:1/test",
+                "--spring.datasource.hikari.connection-timeout=250",
+                "--spring.datasource.hikari.initialization-fail-timeout=-1",
+                "--spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect",
+                "--spring.jpa.hibernate.ddl-auto=none",
+                "--spring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=false",
+                "--sfg.aiapp.encryptionKeyBase64=")));
+        assertEquals(4, beans.size());
+    }
+}
@@ -1,7 +1,10 @@
 package com.kevinmazali.portfolio;
 
+import com.kevinmazali.portfolio.analytics.UsageAnalytics;
+import com.kevinmazali.portfolio.config.LlmProperties;
 import com.kevinmazali.portfolio.service.OpenAIService;
 import com.kevinmazali.portfolio.service.RequestLogService;
+import com.kevinmazali.portfolio.service.VectorStoreManager;
 import org.mockito.Mockito;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
@@ -18,6 +21,23 @@ public class MockConfig {
     RequestLogService requestLogService() {
         return Mockito.mock(RequestLogService.class);
     }
+
+    @Bean
+    UsageAnalytics usageAnalytics() {
+        return Mockito.mock(UsageAnalytics.class);
+    }
+
+    @Bean
+    LlmProperties llmProperties() {
+        return new LlmProperties();
+    }
+
+    @Bean
+    VectorStoreManager vectorStoreManager() {
+        VectorStoreManager manager = Mockito.mock(VectorStoreManager.class);
+        Mockito.when(manager.isReady()).thenReturn(true);
+        return manager;
+    }
 }
 
 
@@ -12,11 +12,16 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import org.mockito.Mockito;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = QuestionController.class)
@@ -34,7 +39,7 @@ class RateLimitFilterTest {
 
     @Test
     void rateLimiterShouldReturn429AfterFiveRequestsInWindow() throws Exception {
-        when(openAIService.getAnswer(any(Question.class))).thenReturn(new Answer("ok"));
+        when(openAIService.getAnswer(any(Question.class), any(), any())).thenReturn(new Answer("ok"));
 
         String body = "{\"question\":\"hi\"}";
 
@@ -52,6 +57,37 @@ class RateLimitFilterTest {
                 .content(body))
             .andExpect(status().isTooManyRequests());
     }
+
+    @Test
+    void batchIsChargedPerQuestion() throws Exception {
+        when(openAIService.getAnswers(any(), any(), any())).thenAnswer(inv -> ((List<?>) inv.getArgument(0)).stream()
+            .map(q -> CompletableFuture.completedFuture(new Answer("ok")))
+            .toList());
+
+        String body = "{\"questions\":[{\"question\":\"a\"},{\"question\":\"b\"},{\"question\":\"c\"}]}";
+
+        // Three of the five tokens
+        mockMvc.perform(post("/ask/batch")
+                .with(fromAddress("10.0.0.2"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isOk());
+
+        // Only two left, so the next batch of three is rejected whole
+        mockMvc.perform(post("/ask/batch")
+                .with(fromAddress("10.0.0.2"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().exists("Retry-After"));
+    }
+
+    private static RequestPostProcessor fromAddress(String address) {
+        return request -> {
+            request.setRemoteAddr(address);
+            return request;
+        };
+    }
 }
 
     // Test beans are provided by MockConfig
@@ -0,0 +1,35 @@
+package com.kevinmazali.portfolio.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimatesWithinTenPercent() {
+        for (int n : new int[] {10, 1_000, 50_000}) {
+            HyperLogLog hll = new HyperLogLog();
+            for (int i = 0; i < n; i++) {
+                hll.add("chat-" + i);
+                hll.add("chat-" + i);
+            }
+            double error = Math.abs(hll.estimate() - n) / (double) n;
+            assertTrue(error < 0.10, "n=" + n + " estimate=" + hll.estimate());
+        }
+    }
+
+    @Test
+    void mergeIsUnionAndSurvivesSerialization() {
+        HyperLogLog a = new HyperLogLog();
+        HyperLogLog b = new HyperLogLog();
+        for (int i = 0; i < 600; i++) a.add("chat-" + i);
+        for (int i = 300; i < 900; i++) b.add("chat-" + i);
+
+        HyperLogLog union = HyperLogLog.fromBytes(a.toBytes());
+        union.merge(b);
+        assertTrue(Math.abs(union.estimate() - 900) < 90, "estimate=" + union.estimate());
+        assertEquals(0, HyperLogLog.fromBytes(null).estimate());
+    }
+}
@@ -0,0 +1,47 @@
+package com.kevinmazali.portfolio.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTest {
+
+    @Test
+    void keepsExactCountsWhileUnderCapacity() {
+        SpaceSaving sketch = new SpaceSaving(10);
+        for (int i = 0; i < 5; i++) sketch.offer("who is kevin");
+        for (int i = 0; i < 3; i++) sketch.offer("which courses has kevin taken");
+        sketch.offer("hvem er kevin");
+
+        List<SpaceSaving.Entry> top = sketch.top(2);
+        assertEquals(new SpaceSaving.Entry("who is kevin", 5, 0), top.get(0));
+        assertEquals(new SpaceSaving.Entry("which courses has kevin taken", 3, 0), top.get(1));
+    }
+
+    @Test
+    void findsHeavyHittersInALongTailStream() {
+        SpaceSaving sketch = new SpaceSaving(20);
+        Random random = new Random(7);
+        int[] heavy = new int[3];
+        for (int i = 0; i < 20_000; i++) {
+            int r = random.nextInt(100);
+            if (r < 30) {
+                int h = r % 3;
+                heavy[h]++;
+                sketch.offer("heavy-" + h);
+            } else {
+                sketch.offer("tail-" + random.nextInt(5_000));
+            }
+        }
+        List<SpaceSaving.Entry> top = sketch.top(3);
+        for (SpaceSaving.Entry e : top) {
+            assertTrue(e.item().startsWith("heavy-"), "unexpected top item " + e.item());
+            int trueCount = heavy[Integer.parseInt(e.item().substring(6))];
+            assertTrue(e.count() >= trueCount && e.count() - e.error() <= trueCount);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.kevinmazali.portfolio.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedTextConverterTest {
+
+    private final CompressedTextConverter converter = new CompressedTextConverter();
+
+    @Test
+    void roundTripsShortLongAndNonAsciiText() {
+        List<String> samples = List.of(
+            "",
+            "Hi",
+            "Hvem er Kevin?",
+            "Du prøvde å være litt lur der, men karakterene mine er bare for søknadssteder å se. 😉",
+            "I study data engineering at NTNU. ".repeat(500)
+        );
+        for (String s : samples) {
+            assertEquals(s, converter.convertToEntityAttribute(converter.convertToDatabaseColumn(s)));
+        }
+    }
+
+    @Test
+    void legacyUncompressedRowsAreReadAsText() {
+        String legacy = "Which courses has Kevin taken?";
+        assertEquals(legacy, converter.convertToEntityAttribute(legacy.getBytes(StandardCharsets.UTF_8)));
+        assertEquals("", converter.convertToEntityAttribute(new byte[0]));
+    }
+
+    @Test
+    void incompressibleTextIsStoredWithOnlyTheHeader() {
+        byte[] stored = converter.convertToDatabaseColumn("q");
+        assertEquals(CompressedTextConverter.CODEC_STORED, stored[1]);
+        assertEquals(CompressedTextConverter.HEADER_LENGTH + 1, stored.length);
+    }
+
+    @Test
+    void compressedTextCarriesItsHeader() {
+        String text = "Kevin has taken TDT4100 Object-Oriented Programming at NTNU. ".repeat(20);
+        byte[] stored = converter.convertToDatabaseColumn(text);
+
+        ByteBuffer header = ByteBuffer.wrap(stored, 0, CompressedTextConverter.HEADER_LENGTH);
+        assertEquals(CompressedTextConverter.MAGIC, header.get());
+        assertEquals(CompressedTextConverter.CODEC_DEFLATE, header.get());
+        assertEquals(CompressedTextConverter.CURRENT_DICTIONARY, header.get());
+        assertEquals(text.getBytes(StandardCharsets.UTF_8).length, header.getInt());
+        assertTrue(stored.length < text.length());
+        assertEquals(text, converter.convertToEntityAttribute(stored));
+    }
+
+    @Test
+    void unknownCodecsAndDictionariesAreRejected() {
+        byte[] stored = converter.convertToDatabaseColumn("Which courses has Kevin taken? ".repeat(10));
+
+        byte[] unknownCodec = stored.clone();
+        unknownCodec[1] = 9;
+        assertThrows(IllegalStateException.class, () -> converter.convertToEntityAttribute(unknownCodec));
+
+        byte[] unknownDictionary = stored.clone();
+        unknownDictionary[2] = 99;
+        assertThrows(IllegalStateException.class, () -> converter.convertToEntityAttribute(unknownDictionary));
+    }
+}
@@ -0,0 +1,159 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.config.LlmProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChatModelGatewayTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private static LlmProperties props() {
+        LlmProperties props = new LlmProperties();
+        props.setHedgeMinSamples(5);
+        props.setHedgeMinDelay(Duration.ofMillis(200));
+        props.setBreakerWindow(4);
+        props.setBreakerMinimumCalls(4);
+        props.setBreakerFailureRate(0.5);
+        return props;
+    }
+
+    private static String sleepThen(long millis, String value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+
+    @Test
+    void hedgesACallThatIsSlowerThanUsualAndTakesTheFirstAnswer() throws Exception {
+        ChatModelGateway gateway = new ChatModelGateway(p -> null, props(), registry, System::nanoTime);
+        for (int i = 0; i < 10; i++) {
+            assertEquals("warm", gateway.execute("answer", () -> sleepThen(5, "warm"), Deadline.none()));
+        }
+        assertEquals(0.0, registry.get("rag.llm.hedges").counter().count());
+
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+        String answer = gateway.execute("answer",
+            () -> attempts.getAndIncrement() == 0 ? sleepThen(1500, "original") : sleepThen(5, "hedge"),
+            Deadline.after(Duration.ofSeconds(5)));
+
+        assertEquals("hedge", answer);
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1000));
+        assertEquals(1.0, registry.get("rag.llm.hedges").counter().count());
+        assertEquals(1.0, registry.get("rag.llm.hedge.wins").counter().count());
+
+        // The original finishes later; its lateness is recorded as the tail latency saved
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+        while (registry.get("rag.llm.hedge.saved").timer().count() == 0 && System.nanoTime() < until) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, registry.get("rag.llm.hedge.saved").timer().count());
+        assertTrue(registry.get("rag.llm.hedge.saved").timer().totalTime(TimeUnit.MILLISECONDS) > 1000);
+    }
+
+    @Test
+    void failsAtTheDeadlineInsteadOfWaitingForTheProvider() {
+        ChatModelGateway gateway = new ChatModelGateway(p -> null, props(), registry, System::nanoTime);
+
+        long start = System.nanoTime();
+        assertThrows(DeadlineExceededException.class,
+            () -> gateway.execute("answer", () -> sleepThen(3000, "late"), Deadline.after(Duration.ofMillis(100))));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1000));
+        assertEquals(1.0, registry.get("rag.llm.calls").tag("outcome", "timeout").counter().count());
+    }
+
+    @Test
+    void aCallAbandonedAtItsDeadlineHoldsItsPermitUntilItFinishes() throws Exception {
+        LlmProperties props = props();
+        props.setMaxConcurrentCalls(1);
+        ChatModelGateway gateway = new ChatModelGateway(p -> null, props, registry, System::nanoTime);
+        // Registers the operation's meters, so the call below reaches its permit well within its deadline
+        assertEquals("warm", gateway.execute("answer", () -> "warm", Deadline.none()));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+
+        assertThrows(DeadlineExceededException.class, () -> gateway.execute("answer", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finished.countDown();
+            return "late";
+        }, Deadline.after(Duration.ofMillis(300))));
+
+        // The abandoned call is still running at the provider
+        assertThrows(ChatModelGateway.SaturatedException.class,
+            () -> gateway.execute("answer", () -> "ok", Deadline.none()));
+
+        release.countDown();
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        String answer = null;
+        while (answer == null && System.nanoTime() < until) {
+            try {
+                answer = gateway.execute("answer", () -> "ok", Deadline.none());
+            } catch (ChatModelGateway.SaturatedException e) {
+                Thread.sleep(5);
+            }
+        }
+        assertEquals("ok", answer);
+    }
+
+    @Test
+    void skipsTheHedgeWhenNoPermitIsFree() {
+        LlmProperties props = props();
+        props.setMaxConcurrentCalls(1);
+        ChatModelGateway gateway = new ChatModelGateway(p -> null, props, registry, System::nanoTime);
+        for (int i = 0; i < 10; i++) {
+            gateway.execute("answer", () -> sleepThen(5, "warm"), Deadline.none());
+        }
+
+        AtomicInteger attempts = new AtomicInteger();
+        String answer = gateway.execute("answer", () -> sleepThen(400, "original" + attempts.incrementAndGet()),
+            Deadline.after(Duration.ofSeconds(5)));
+
+        assertEquals("original1", answer);
+        assertEquals(1, attempts.get());
+        assertEquals(0.0, registry.get("rag.llm.hedges").counter().count());
+        assertEquals(1.0, registry.get("rag.llm.hedges.skipped").counter().count());
+    }
+
+    @Test
+    void opensTheCircuitAfterRepeatedFailuresAndProbesAfterTheWait() {
+        AtomicLong clock = new AtomicLong();
+        ChatModelGateway gateway = new ChatModelGateway(p -> null, props(), registry, clock::get);
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () -> gateway.execute("answer", () -> {
+                calls.incrementAndGet();
+                throw new IllegalStateException("provider error");
+            }, Deadline.none()));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, gateway.circuitState());
+
+        assertThrows(CircuitBreaker.OpenException.class,
+            () -> gateway.execute("answer", () -> "ok" + calls.incrementAndGet(), Deadline.none()));
+        assertEquals(4, calls.get());
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertEquals("ok5", gateway.execute("answer", () -> "ok" + calls.incrementAndGet(), Deadline.none()));
+        assertEquals(CircuitBreaker.State.CLOSED, gateway.circuitState());
+    }
+}
@@ -0,0 +1,85 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.config.ConversationMemoryProperties;
+import com.kevinmazali.portfolio.model.RequestLog;
+import com.kevinmazali.portfolio.repository.RequestLogRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+class ConversationMemoryTest {
+
+    @Test
+    void promptContextStaysBoundedAsTheChatGrows() {
+        ConversationMemoryProperties props = props();
+        AtomicInteger summaries = new AtomicInteger();
+        ConversationMemory memory = new ConversationMemory(emptyRepository(), props,
+            prompt -> "summary " + summaries.incrementAndGet() + " " + "x".repeat(2000), Runnable::run);
+
+        int limit = (props.getSummaryTokenBudget() + props.getRecentTokenBudget()) * 4 + 200;
+        for (int i = 0; i < 50; i++) {
+            memory.append("chat", "question " + i, "answer " + i + " " + "y".repeat(300));
+            String text = memory.history("chat").text();
+            assertTrue(text.length() <= limit, "turn " + i + ": " + text.length() + " chars");
+        }
+        String text = memory.history("chat").text();
+        assertTrue(text.contains("question 49"));
+        assertFalse(text.contains("question 40\n"));
+        assertTrue(text.startsWith("Summary of earlier turns:"));
+        assertTrue(summaries.get() > 0);
+    }
+
+    @Test
+    void fallsBackToExtractiveSummaryWhenSummarizationFails() {
+        ConversationMemory memory = new ConversationMemory(emptyRepository(), props(),
+            prompt -> { throw new IllegalStateException("model unavailable"); }, Runnable::run);
+        for (int i = 0; i < 4; i++) memory.append("chat", "question " + i, "answer " + i);
+
+        String text = memory.history("chat").text();
+        assertTrue(text.contains("Visitor asked: question 0"), text);
+        assertTrue(text.contains("Visitor: question 3"), text);
+    }
+
+    @Test
+    void recoversCompletedTurnsFromRequestLog() {
+        RequestLogRepository repository = Mockito.mock(RequestLogRepository.class);
+        // Newest first, as returned by findByRequesterIdOrderByIdDesc; the last question is unanswered
+        Mockito.when(repository.findByRequesterIdOrderByIdDesc(eq("chat"), any())).thenReturn(List.of(
+            row("/ask", "pending question"),
+            row("/ask:response", "It is an interactive portfolio."),
+            row("/ask", "What is the portfolio project?")
+        ));
+        ConversationMemory memory = new ConversationMemory(repository, props(), prompt -> "", Runnable::run);
+
+        ConversationMemory.History history = memory.history("chat");
+        assertEquals("Visitor: What is the portfolio project?\nAssistant: It is an interactive portfolio.", history.text());
+        assertTrue(memory.history(null).isEmpty());
+    }
+
+    private static ConversationMemoryProperties props() {
+        ConversationMemoryProperties props = new ConversationMemoryProperties();
+        props.setRecentTurns(2);
+        props.setRecentTokenBudget(300);
+        props.setSummaryTokenBudget(100);
+        return props;
+    }
+
+    private static RequestLogRepository emptyRepository() {
+        return Mockito.mock(RequestLogRepository.class);
+    }
+
+    private static RequestLog row(String path, String payload) {
+        RequestLog rl = new RequestLog();
+        rl.setPath(path);
+        rl.setPayload(payload);
+        return rl;
+    }
+}
@@ -0,0 +1,94 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.model.RequestLog;
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationSearchIndexTest {
+
+    private static final OffsetDateTime T0 = OffsetDateTime.of(2025, 9, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+    @Test
+    void matchesAllTermsNewestFirstWithPaging() {
+        ConversationSearchIndex index = readyIndex();
+        index.add(row(1, "Which courses has Kevin taken?", "a", 0));
+        index.add(row(2, "Kevin has taken TDT4100 and TDT4120.", "a", 1));
+        index.add(row(3, "Which projects has Kevin worked on?", "b", 2));
+        index.add(row(4, "What courses are in TDT4100?", "b", 3));
+
+        assertEquals(List.of(4L, 2L), index.search("tdt4100", null, null, null, 0, 10).ids());
+        assertEquals(List.of(1L), index.search("Courses KEVIN", null, null, null, 0, 10).ids());
+        assertTrue(index.search("kevin unknownterm", null, null, null, 0, 10).ids().isEmpty());
+
+        ConversationSearchIndex.Result first = index.search("kevin", null, null, null, 0, 2);
+        ConversationSearchIndex.Result second = index.search("kevin", null, null, null, 1, 2);
+        assertEquals(3, first.total());
+        assertEquals(List.of(3L, 2L), first.ids());
+        assertEquals(List.of(1L), second.ids());
+    }
+
+    @Test
+    void appliesRequesterAndDateFilters() {
+        ConversationSearchIndex index = readyIndex();
+        index.add(row(1, "kevin ntnu", "a", 0));
+        index.add(row(2, "kevin ntnu", "b", 1));
+        index.add(row(3, "kevin ntnu", "a", 2));
+
+        assertEquals(List.of(3L, 1L), index.search("ntnu", "a", null, null, 0, 10).ids());
+        assertEquals(List.of(2L), index.search("ntnu", null, T0.plusDays(1), T0.plusDays(2), 0, 10).ids());
+
+        index.removeBefore(T0.plusDays(1));
+        assertEquals(List.of(3L), index.search("ntnu", "a", null, null, 0, 10).ids());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void rowsSavedDuringBuildAreIndexedOnce() {
+        ConversationSearchIndex index = new ConversationSearchIndex(null, null, null);
+        index.add(row(7, "saved while building", "a", 0));
+        index.add(row(7, "saved while building", "a", 0));
+        index.markReady();
+        assertEquals(1, index.search("building", null, null, null, 0, 10).total());
+    }
+
+    @Test
+    void rowsCommittedOutOfIdOrderAreFoundInIdOrder() {
+        ConversationSearchIndex index = readyIndex();
+        index.add(row(1, "kevin ntnu", "a", 0));
+        index.add(row(4, "kevin ntnu java", "a", 3));
+        index.removeBefore(T0.plusDays(1));
+        // Concurrent requests: 3 and 2 commit after 4
+        index.add(row(3, "kevin ntnu java", "b", 2));
+        index.add(row(2, "kevin ntnu", "a", 1));
+        index.add(row(3, "kevin ntnu java", "b", 2));
+
+        assertEquals(List.of(4L, 3L, 2L), index.search("ntnu", null, null, null, 0, 10).ids());
+        assertEquals(List.of(4L, 3L), index.search("java", null, null, null, 0, 10).ids());
+        assertEquals(List.of(4L, 2L), index.search("kevin", "a", null, null, 0, 10).ids());
+        assertEquals(List.of(3L), index.search("ntnu", null, null, null, 1, 1).ids());
+        assertEquals(3, index.size());
+    }
+
+    private static ConversationSearchIndex readyIndex() {
+        ConversationSearchIndex index = new ConversationSearchIndex(null, null, null);
+        index.markReady();
+        return index;
+    }
+
+    private static RequestLog row(long id, String payload, String requester, int day) {
+        RequestLog rl = new RequestLog();
+        rl.setId(id);
+        rl.setPath("/ask");
+        rl.setMethod("POST");
+        rl.setPayload(payload);
+        rl.setRequesterId(requester);
+        rl.setCreatedAt(T0.plusDays(day));
+        return rl;
+    }
+}
@@ -0,0 +1,68 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.model.Answer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExtractiveAnswererTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExtractiveAnswerer answerer = new ExtractiveAnswerer(registry);
+
+    @Test
+    void picksTheSentencesThatMatchTheQuestion() {
+        List<String> passages = List.of(
+            "Kevin studied computer science at the University of Oslo. He enjoys hiking in the mountains.",
+            "Projects include a portfolio chatbot built with Spring Boot and Vue. The weather was nice that summer."
+        );
+
+        String text = answerer.extract("Which projects did Kevin build with Spring Boot?", passages);
+
+        assertTrue(text.contains("portfolio chatbot built with Spring Boot"));
+        assertFalse(text.contains("hiking"));
+        assertFalse(text.contains("weather"));
+    }
+
+    @Test
+    void skipsNearRepeatsAndKeepsDocumentOrder() {
+        List<String> passages = List.of(
+            "The thesis was about retrieval augmented generation for Norwegian documents.",
+            "Retrieval augmented generation for Norwegian documents was the topic of the thesis.",
+            "The thesis was graded A by the examiners at the university."
+        );
+
+        String text = answerer.extract("What was the thesis about?", passages);
+
+        assertTrue(text.startsWith("The thesis was about retrieval"));
+        assertFalse(text.contains("was the topic of the thesis"));
+        assertTrue(text.indexOf("retrieval") < text.indexOf("graded A"));
+    }
+
+    @Test
+    void matchesInflectedNorwegianWords() {
+        List<String> passages = List.of(
+            "Han har jobbet med flere prosjekter innen maskinlæring.",
+            "Fritiden brukes på fotball og friluftsliv."
+        );
+
+        String text = answerer.extract("Hvilke prosjektet har han gjort?", passages);
+
+        assertEquals("Han har jobbet med flere prosjekter innen maskinlæring.", text);
+    }
+
+    @Test
+    void marksTheAnswerExtractiveAndFallsBackWhenNothingMatches() {
+        Answer answer = answerer.answer("What is the capital of France?",
+            List.of("Kevin knows Java, Kotlin and TypeScript."), "circuit_open");
+
+        assertEquals(Answer.EXTRACTIVE, answer.mode());
+        assertTrue(answer.answer().startsWith("I could not find anything"));
+        assertEquals(1.0, registry.get("rag.answer.extractive").tag("reason", "circuit_open").counter().count());
+    }
+}
@@ -0,0 +1,94 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.config.RetrievalProperties;
+import com.kevinmazali.portfolio.vectorstore.IndexedVectorStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RetrievalCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MutableClock clock = new MutableClock();
+    private final IndexedVectorStore store = new IndexedVectorStore(Mockito.mock(EmbeddingModel.class));
+    private final List<Document> chunks = List.of(new Document("c1", "Kevin built a portfolio site", Map.of()));
+
+    @Test
+    void classifiesFollowUpsBySimilarityToTheCentroid() {
+        RetrievalCache cache = new RetrievalCache(props(), registry, clock);
+        assertEquals(RetrievalCache.Outcome.MISS, cache.lookup("chat", store, null, vec(1, 0, 0)).outcome());
+        cache.record("chat", store, null, vec(1, 0, 0), chunks, RetrievalCache.Outcome.MISS);
+
+        RetrievalCache.Lookup near = cache.lookup("chat", store, null, vec(1, 0.2f, 0));
+        assertEquals(RetrievalCache.Outcome.HIT, near.outcome());
+        assertEquals(chunks, near.documents());
+        assertEquals(RetrievalCache.Outcome.TOP_UP, cache.lookup("chat", store, null, vec(1, 1, 0)).outcome());
+        assertEquals(RetrievalCache.Outcome.MISS, cache.lookup("chat", store, null, vec(0, 0, 1)).outcome());
+
+        assertEquals(1.0, registry.get("rag.retrieval.cache").tag("outcome", "hit").counter().count());
+        assertEquals(1.0, registry.get("rag.retrieval.cache").tag("outcome", "top_up").counter().count());
+        assertEquals(2.0, registry.get("rag.retrieval.cache").tag("outcome", "miss").counter().count());
+    }
+
+    @Test
+    void entriesAreScopedToFilterAndExpire() {
+        RetrievalCache cache = new RetrievalCache(props(), registry, clock);
+        cache.record("chat", store, "filename == 'CV.pdf'", vec(1, 0, 0), chunks, RetrievalCache.Outcome.MISS);
+
+        assertEquals(RetrievalCache.Outcome.MISS, cache.lookup("chat", store, null, vec(1, 0, 0)).outcome());
+        assertEquals(RetrievalCache.Outcome.HIT,
+            cache.lookup("chat", store, " filename == 'CV.pdf' ", vec(1, 0, 0)).outcome());
+        assertEquals(RetrievalCache.Outcome.MISS, cache.lookup("other", store, null, vec(1, 0, 0)).outcome());
+
+        clock.advance(Duration.ofMinutes(11));
+        assertEquals(RetrievalCache.Outcome.MISS,
+            cache.lookup("chat", store, "filename == 'CV.pdf'", vec(1, 0, 0)).outcome());
+    }
+
+    private static RetrievalProperties props() {
+        RetrievalProperties props = new RetrievalProperties();
+        props.setCacheTtl(Duration.ofMinutes(10));
+        props.setCacheReuseThreshold(0.9);
+        props.setCacheTopUpThreshold(0.5);
+        return props;
+    }
+
+    private static float[] vec(float... v) {
+        return v;
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-09-01T12:00:00Z");
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.config.QuotaProperties;
+import com.kevinmazali.portfolio.model.TokenUsage;
+import com.kevinmazali.portfolio.repository.TokenUsageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TokenAccountingTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 14);
+
+    private final TokenUsageRepository repository = mock(TokenUsageRepository.class);
+    private final List<List<TokenUsage>> saved = new ArrayList<>();
+
+    private TokenAccounting accounting(long chatDaily, long ipDaily) {
+        QuotaProperties props = new QuotaProperties();
+        props.setChatDailyTokens(chatDaily);
+        props.setIpDailyTokens(ipDaily);
+        when(repository.saveAll(any())).thenAnswer(inv -> {
+            List<TokenUsage> rows = new ArrayList<>();
+            inv.<Iterable<TokenUsage>>getArgument(0).forEach(rows::add);
+            rows.sort(Comparator.comparing(TokenUsage::getAccount));
+            saved.add(rows);
+            return rows;
+        });
+        Clock clock = Clock.fixed(DAY.atTime(12, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        return new TokenAccounting(repository, props, new SimpleMeterRegistry(),
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), clock);
+    }
+
+    @Test
+    void chargesTheChatAndTheAddress() {
+        TokenAccounting accounting = accounting(100, 1000);
+        Requester requester = new Requester("c1", "10.0.0.1");
+
+        accounting.record(requester, "translate", 30, 10);
+        assertTrue(accounting.allows(requester));
+        accounting.record(requester, "answer", 50, 20);
+
+        assertFalse(accounting.allows(requester));
+        assertTrue(accounting.allows(new Requester("c2", "10.0.0.1")));
+        assertTrue(accounting.allows(Requester.SYSTEM));
+    }
+
+    @Test
+    void addressQuotaSpansChats() {
+        TokenAccounting accounting = accounting(100, 150);
+
+        accounting.record(new Requester("c1", "10.0.0.1"), "answer", 60, 20);
+        accounting.record(new Requester("c2", "10.0.0.1"), "answer", 60, 20);
+
+        assertFalse(accounting.allows(new Requester("c3", "10.0.0.1")));
+        assertTrue(accounting.allows(new Requester("c3", "10.0.0.2")));
+    }
+
+    @Test
+    void flushWritesOnlyChangedAccounts() {
+        TokenAccounting accounting = accounting(100, 1000);
+        accounting.record(new Requester("c1", "10.0.0.1"), "answer", 40, 10);
+
+        accounting.flush();
+        accounting.flush();
+        accounting.record(Requester.chat("c1"), "answer", 5, 5);
+        accounting.flush();
+
+        assertEquals(2, saved.size());
+        assertEquals(List.of("chat:c1", "ip:10.0.0.1"), saved.get(0).stream().map(TokenUsage::getAccount).toList());
+        TokenUsage chat = saved.get(1).get(0);
+        assertEquals(1, saved.get(1).size());
+        assertEquals(TokenUsage.id(DAY, "chat:c1"), chat.getId());
+        assertEquals(45, chat.getPromptTokens());
+        assertEquals(15, chat.getCompletionTokens());
+        assertEquals(2, chat.getCalls());
+    }
+
+    @Test
+    void restoresTodaysUsage() {
+        TokenUsage row = new TokenUsage();
+        row.setId(TokenUsage.id(DAY, "chat:c1"));
+        row.setDay(DAY);
+        row.setAccount("chat:c1");
+        row.setPromptTokens(80);
+        row.setCompletionTokens(30);
+        row.setCalls(3);
+        when(repository.findByDay(DAY)).thenReturn(List.of(row));
+        TokenAccounting accounting = accounting(100, 1000);
+
+        accounting.restore();
+        accounting.flush();
+
+        assertFalse(accounting.allows(Requester.chat("c1")));
+        assertTrue(saved.isEmpty());
+        assertEquals(Instant.parse("2025-03-15T00:00:00Z"),
+            Instant.parse("2025-03-14T12:00:00Z").plus(accounting.untilReset()));
+    }
+}
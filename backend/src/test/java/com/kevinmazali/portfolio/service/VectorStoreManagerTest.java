@@ -0,0 +1,92 @@
+package com.kevinmazali.portfolio.service;
+
+import com.kevinmazali.portfolio.config.DeduplicationProperties;
+import com.kevinmazali.portfolio.config.MutationLogProperties;
+import com.kevinmazali.portfolio.config.ParsingProperties;
+import com.kevinmazali.portfolio.config.RetrievalProperties;
+import com.kevinmazali.portfolio.config.VectorStoreProperties;
+import com.kevinmazali.portfolio.vectorstore.DocumentIngestionPipeline;
+import com.kevinmazali.portfolio.vectorstore.MutationLog;
+import com.kevinmazali.portfolio.vectorstore.ShardedVectorStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A rollback survives a restart: the rolled back generation's snapshot, shard files and
+ * log are removed, so the next start loads the restored generation.
+ */
+class VectorStoreManagerTest {
+
+    @Test
+    void rollbackIsKeptAfterReload(@TempDir Path dir) throws Exception {
+        Path storeFile = dir.resolve("vectordatabase/vectorstore.json");
+        Path generations = storeFile.resolveSibling("generations");
+        Files.createDirectories(generations);
+        snapshot(dir, generations.resolve("vectorstore-1.json"), chunk("a"));
+        snapshot(dir, generations.resolve("vectorstore-2.json"), chunk("a"), chunk("b"));
+        ShardedVectorStore.publish(generations.resolve("vectorstore-2.json"), storeFile);
+        try (MutationLog log = MutationLog.open(generations.resolve("vectorstore-2.wal"), 1 << 20)) {
+            log.add(List.of(chunk("c")));
+            log.commit();
+        }
+
+        VectorStoreManager manager = start(dir);
+        assertEquals(2, manager.status().generation());
+        assertEquals(3, manager.current().size());
+
+        assertEquals(Optional.of(1L), manager.rollback());
+        assertEquals(1, manager.current().size());
+        manager.shutdown();
+
+        try (Stream<Path> files = Files.list(generations)) {
+            assertEquals(List.of(), files.map(p -> p.getFileName().toString())
+                .filter(name -> name.startsWith("vectorstore-2"))
+                .toList());
+        }
+        VectorStoreManager reloaded = start(dir);
+        assertEquals(1, reloaded.status().generation());
+        assertEquals(1, reloaded.current().size());
+        reloaded.shutdown();
+    }
+
+    private static VectorStoreManager start(Path dir) throws Exception {
+        VectorStoreManager manager = new VectorStoreManager(pipeline(dir), new MutationLogProperties());
+        manager.initializeInBackground();
+        manager.whenReady().get(10, TimeUnit.SECONDS);
+        return manager;
+    }
+
+    private static void snapshot(Path dir, Path file, SimpleVectorStoreContent... chunks) {
+        ShardedVectorStore store = pipeline(dir).newStore();
+        store.restore(List.of(chunks));
+        store.save(file.toFile());
+    }
+
+    private static DocumentIngestionPipeline pipeline(Path dir) {
+        VectorStoreProperties props = new VectorStoreProperties();
+        props.setVectorStorePath(dir.resolve("vectordatabase/vectorstore.json").toString());
+        props.setDocumentsToLoadDir(dir.resolve("docs").toUri().toString());
+        props.setEncryptContent(false);
+        props.setShards(2);
+        return new DocumentIngestionPipeline(Mockito.mock(EmbeddingModel.class), props, new RetrievalProperties(),
+            new DeduplicationProperties(), new ParsingProperties(), new StandardEnvironment());
+    }
+
+    private static SimpleVectorStoreContent chunk(String id) {
+        return new SimpleVectorStoreContent(id, "text " + id, Map.of("source", "doc-" + id), new float[] {1f, 0.5f});
+    }
+}
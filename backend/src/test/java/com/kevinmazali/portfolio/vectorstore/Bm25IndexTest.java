@@ -0,0 +1,49 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Bm25IndexTest {
+
+    private final Bm25Index index = Bm25Index.build(List.of(
+        "Kevin took TDT4100 Object-oriented programming in Java",
+        "The portfolio is built with Spring Boot and Vue",
+        "Courses: TDT4120 Algorithms and data structures, TDT4100",
+        "Hobbies include football and cooking"
+    ));
+
+    private static BitSet all() {
+        BitSet b = new BitSet();
+        b.set(0, 4);
+        return b;
+    }
+
+    @Test
+    void exactTermsRankMatchingChunksFirst() {
+        List<Bm25Index.Hit> hits = index.search("What is TDT4100?", 10, all());
+        assertEquals(2, hits.size());
+        assertTrue(hits.stream().allMatch(h -> h.ordinal() == 0 || h.ordinal() == 2));
+        assertEquals(1, index.search("spring boot", 10, all()).getFirst().ordinal());
+    }
+
+    @Test
+    void candidatesRestrictTheResult() {
+        BitSet onlyCourses = new BitSet();
+        onlyCourses.set(2);
+        List<Bm25Index.Hit> hits = index.search("TDT4100", 10, onlyCourses);
+        assertEquals(1, hits.size());
+        assertEquals(2, hits.getFirst().ordinal());
+    }
+
+    @Test
+    void tokenizerKeepsCourseCodesAndDropsPunctuation() {
+        assertEquals(List.of("tdt4100", "object", "oriented"), Bm25Index.tokenize("TDT4100: Object-oriented!"));
+        assertEquals(List.of("tdt4100"), Bm25Index.tokenize("What is TDT4100?"));
+        assertEquals(List.of("tdt4100"), Bm25Index.tokenize("Hva er TDT4100?"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import com.kevinmazali.portfolio.config.DeduplicationProperties;
+import com.kevinmazali.portfolio.config.ParsingProperties;
+import com.kevinmazali.portfolio.config.RetrievalProperties;
+import com.kevinmazali.portfolio.config.VectorStoreProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A rebuild indexes the configured corpus and the files uploaded at runtime together.
+ */
+class DocumentIngestionPipelineTest {
+
+    @Test
+    void rebuildIndexesUploadsAlongsideTheConfiguredCorpus(@TempDir Path dir) throws IOException {
+        Path corpus = Files.createDirectories(dir.resolve("docs"));
+        Files.writeString(corpus.resolve("cv.md"), "Kevin has ten years of experience building Java services.");
+        DocumentIngestionPipeline pipeline = pipeline(dir.resolve("vectordatabase/vectorstore.json"), corpus);
+        Files.writeString(pipeline.uploadsDir().resolve("project.txt"), "The portfolio assistant answers questions with Spring AI.");
+
+        List<Resource> resources = pipeline.resolveResources();
+
+        assertEquals(Set.of("cv.md", "project.txt"),
+            resources.stream().map(Resource::getFilename).collect(Collectors.toSet()));
+        Set<Object> indexed = new HashSet<>();
+        for (Resource resource : resources) {
+            pipeline.ingest(resource, null, chunks -> chunks.forEach(c -> indexed.add(c.getMetadata().get("filename"))));
+        }
+        assertEquals(Set.of("cv.md", "project.txt"), indexed);
+    }
+
+    @Test
+    void seedFilesNextToTheStoreAreKeptWithUploads(@TempDir Path dir) throws IOException {
+        Path storeFile = dir.resolve("vectordatabase/vectorstore.json");
+        Files.createDirectories(storeFile.getParent());
+        Files.writeString(storeFile.resolveSibling("seed.txt"), "Seed document shipped with the store.");
+        DocumentIngestionPipeline pipeline = pipeline(storeFile, Files.createDirectories(dir.resolve("docs")));
+        Files.writeString(pipeline.uploadsDir().resolve("upload.txt"), "Uploaded document.");
+
+        List<Resource> resources = pipeline.resolveResources();
+
+        assertEquals(List.of("seed.txt", "upload.txt"), resources.stream().map(Resource::getFilename).toList());
+    }
+
+    private static DocumentIngestionPipeline pipeline(Path storeFile, Path corpus) {
+        VectorStoreProperties props = new VectorStoreProperties();
+        props.setVectorStorePath(storeFile.toString());
+        props.setDocumentsToLoadDir(corpus.toUri().toString());
+        props.setEncryptContent(false);
+        return new DocumentIngestionPipeline(Mockito.mock(EmbeddingModel.class), props, new RetrievalProperties(),
+            new DeduplicationProperties(), new ParsingProperties(), new StandardEnvironment());
+    }
+}
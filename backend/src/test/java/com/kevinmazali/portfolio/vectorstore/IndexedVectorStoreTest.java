@@ -0,0 +1,74 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Deferred mutations are indexed once when the handle closes, and a re-index only resolves
+ * the plaintext of chunks it has not seen before.
+ */
+class IndexedVectorStoreTest {
+
+    private static final EmbeddingModel EMBEDDINGS = Mockito.mock(EmbeddingModel.class);
+
+    @Test
+    void deferredChangesAreIndexedOnceWhenClosed() {
+        IndexedVectorStore store = new IndexedVectorStore(EMBEDDINGS);
+        store.replaceContents(chunks(0, 10));
+        long version = store.version();
+
+        try (HybridSearchStore.Indexing outer = store.deferIndexing()) {
+            try (HybridSearchStore.Indexing inner = store.deferIndexing()) {
+                store.restore(chunks(10, 12));
+            }
+            store.delete(List.of("chunk-0"));
+
+            // Searches keep seeing the last index until the outermost handle closes
+            assertEquals(10, store.size());
+            assertEquals(version, store.version());
+            assertEquals(11, store.contents().size());
+        }
+
+        assertEquals(11, store.size());
+        assertEquals(version + 1, store.version());
+        assertEquals(List.of("chunk-11"), store.lexicalSearch("text11", 5, null).stream().map(d -> d.getId()).toList());
+    }
+
+    @Test
+    void reindexOnlyResolvesNewChunks() {
+        AtomicInteger resolved = new AtomicInteger();
+        IndexedVectorStore store = new IndexedVectorStore(EMBEDDINGS, doc -> {
+            resolved.incrementAndGet();
+            return doc.getText();
+        }, 0, 0);
+
+        store.replaceContents(chunks(0, 100));
+        assertEquals(100, resolved.get());
+
+        store.restore(chunks(100, 101));
+        assertEquals(101, resolved.get());
+
+        // Replacing a chunk under the same id resolves it again
+        store.restore(List.of(new SimpleVectorStoreContent("chunk-5", "changed", Map.of(), new float[] {1f, 0f})));
+        assertEquals(102, resolved.get());
+        assertEquals(List.of("chunk-5"), store.lexicalSearch("changed", 5, null).stream().map(d -> d.getId()).toList());
+    }
+
+    private static List<SimpleVectorStoreContent> chunks(int from, int to) {
+        List<SimpleVectorStoreContent> chunks = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            chunks.add(new SimpleVectorStoreContent("chunk-" + i, "text" + i, Map.of("source", "doc-" + i),
+                new float[] {i, 1f}));
+        }
+        return chunks;
+    }
+}
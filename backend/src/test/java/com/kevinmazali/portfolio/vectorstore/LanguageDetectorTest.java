@@ -0,0 +1,35 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LanguageDetectorTest {
+
+    @Test
+    void detectsQuestionsInBothLanguages() {
+        assertEquals("en", LanguageDetector.detect("What has Kevin worked on?"));
+        assertEquals("en", LanguageDetector.detect("Tell me about the portfolio project"));
+        assertEquals("no", LanguageDetector.detect("Hva har Kevin jobbet med?"));
+        assertEquals("no", LanguageDetector.detect("Fortell om utdanningen hans"));
+    }
+
+    @Test
+    void detectsChunks() {
+        assertEquals("en", LanguageDetector.detect("""
+            Kevin is a computer engineering student at NTNU. During the summer he worked as a
+            developer at a consultancy, where he built an internal tool with Spring Boot and Vue
+            and was responsible for the deployment pipeline of the team."""));
+        assertEquals("no", LanguageDetector.detect("""
+            Kevin studerer dataingeniør ved NTNU. I sommer jobbet han som utvikler i et
+            konsulentselskap, der han laget et internt verktøy med Spring Boot og Vue og hadde
+            ansvar for at teamet kunne rulle ut nye versjoner."""));
+    }
+
+    @Test
+    void leavesAmbiguousTextUndetermined() {
+        assertEquals(LanguageDetector.UNDETERMINED, LanguageDetector.detect(""));
+        assertEquals(LanguageDetector.UNDETERMINED, LanguageDetector.detect("Kevin Mazali"));
+        assertEquals(LanguageDetector.UNDETERMINED, LanguageDetector.detect("Java, Spring Boot, Vue, TypeScript, MySQL, Docker"));
+    }
+}
@@ -0,0 +1,131 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recall@k of the two-tier (prefix shortlist + full re-rank) search against the exact
+ * full-width scan. Uses synthetic 3072-dimension vectors whose variance decays with the
+ * dimension index, the way Matryoshka-trained embeddings concentrate signal up front.
+ */
+@Slf4j
+class MatryoshkaIndexTest {
+
+    private static final int DIMENSIONS = 3072;
+    private static final int K = 10;
+
+    @Test
+    void prefixShortlistKeepsRecallOfFullScan() {
+        Random random = new Random(42);
+        List<float[]> docs = corpus(random, 600);
+        List<float[]> queries = queries(random, docs, 30);
+        for (int prefix : new int[]{256, 512}) {
+            MatryoshkaIndex index = MatryoshkaIndex.build(docs, prefix);
+            double recall = 0;
+            for (float[] query : queries) {
+                Set<Integer> approx = topK(query, docs, index.shortlist(query, K * 10, all(docs.size())));
+                approx.retainAll(topK(query, docs, null));
+                recall += approx.size() / (double) K;
+            }
+            recall /= queries.size();
+            assertTrue(recall >= 0.95, "recall@" + K + " at prefix " + prefix + " was " + recall);
+        }
+    }
+
+    /** Per-query time of the exact scan against the two-tier search on 3000 chunks. */
+    @Test
+    @Tag("benchmark")
+    void twoTierSearchBenchmark() {
+        Random random = new Random(42);
+        List<float[]> docs = corpus(random, 3000);
+        List<float[]> queries = queries(random, docs, 100);
+        for (int prefix : new int[]{256, 512}) {
+            MatryoshkaIndex index = MatryoshkaIndex.build(docs, prefix);
+            long fullNanos = 0;
+            long twoTierNanos = 0;
+            for (float[] query : queries) {
+                long t0 = System.nanoTime();
+                topK(query, docs, null);
+                long t1 = System.nanoTime();
+                topK(query, docs, index.shortlist(query, K * 10, all(docs.size())));
+                long t2 = System.nanoTime();
+                fullNanos += t1 - t0;
+                twoTierNanos += t2 - t1;
+            }
+            log.info("prefix={} full={} ms/q two-tier={} ms/q", prefix,
+                String.format("%.2f", fullNanos / 1e6 / queries.size()),
+                String.format("%.2f", twoTierNanos / 1e6 / queries.size()));
+        }
+    }
+
+    /** Chunks mixing two of 100 topics, plus noise. */
+    private static List<float[]> corpus(Random random, int n) {
+        List<float[]> topics = new ArrayList<>();
+        for (int t = 0; t < 100; t++) topics.add(gaussian(random, 1.0));
+        List<float[]> docs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            float[] a = topics.get(random.nextInt(topics.size()));
+            float[] b = topics.get(random.nextInt(topics.size()));
+            float[] noise = gaussian(random, 0.5);
+            double w = random.nextDouble();
+            float[] v = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) v[d] = (float) (w * a[d] + (1 - w) * b[d] + noise[d]);
+            docs.add(v);
+        }
+        return docs;
+    }
+
+    /** Noisy copies of random chunks. */
+    private static List<float[]> queries(Random random, List<float[]> docs, int n) {
+        List<float[]> queries = new ArrayList<>();
+        for (int q = 0; q < n; q++) {
+            float[] base = docs.get(random.nextInt(docs.size()));
+            float[] noise = gaussian(random, 0.8);
+            float[] v = new float[DIMENSIONS];
+            for (int d = 0; d < DIMENSIONS; d++) v[d] = base[d] + noise[d];
+            queries.add(v);
+        }
+        return queries;
+    }
+
+    private static BitSet all(int n) {
+        BitSet all = new BitSet(n);
+        all.set(0, n);
+        return all;
+    }
+
+    private static float[] gaussian(Random random, double scale) {
+        float[] v = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            v[d] = (float) (scale * random.nextGaussian() / Math.sqrt(1 + d / 32.0));
+        }
+        return v;
+    }
+
+    private static Set<Integer> topK(float[] query, List<float[]> docs, int[] only) {
+        PriorityQueue<double[]> best = new PriorityQueue<>(Comparator.comparingDouble(x -> x[0]));
+        int m = only == null ? docs.size() : only.length;
+        float queryNorm = VectorMath.norm(query);
+        for (int j = 0; j < m; j++) {
+            int i = only == null ? j : only[j];
+            double score = VectorMath.dot(query, docs.get(i)) / (queryNorm * VectorMath.norm(docs.get(i)));
+            best.add(new double[]{score, i});
+            if (best.size() > K) best.poll();
+        }
+        Set<Integer> result = new HashSet<>();
+        for (double[] b : best) result.add((int) b[1]);
+        return result;
+    }
+}
@@ -0,0 +1,49 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MetadataIndexTest {
+
+    private final MetadataIndex index = MetadataIndex.build(List.of(
+        Map.of("content_type", "text", "filename", "CV.pdf"),
+        Map.of("content_type", "text", "filename", "Projects.pdf"),
+        Map.of("content_type", "image", "filename", "diagram.png"),
+        Map.of("filename", "notes.md")
+    ));
+
+    private BitSet resolve(String expression) {
+        return index.resolve(new FilterExpressionTextParser().parse(expression));
+    }
+
+    private static BitSet bits(int... ordinals) {
+        BitSet b = new BitSet();
+        for (int o : ordinals) b.set(o);
+        return b;
+    }
+
+    @Test
+    void equalityAndMembershipResolveToPostings() {
+        assertEquals(bits(0, 1), resolve("content_type == 'text'"));
+        assertEquals(bits(1, 2), resolve("filename in ['Projects.pdf', 'diagram.png']"));
+    }
+
+    @Test
+    void negationsIncludeChunksWithoutTheKey() {
+        assertEquals(bits(2, 3), resolve("content_type != 'text'"));
+        assertEquals(bits(3), resolve("content_type nin ['text', 'image']"));
+        assertEquals(bits(2, 3), resolve("NOT(content_type == 'text')"));
+    }
+
+    @Test
+    void booleanCombinations() {
+        assertEquals(bits(1), resolve("content_type == 'text' && filename == 'Projects.pdf'"));
+        assertEquals(bits(0, 1, 2), resolve("content_type == 'image' || content_type == 'text'"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Committed transactions replay in order, uncommitted and aborted ones do not, and a
+ * torn tail is cut off without losing what was committed before it.
+ */
+class MutationLogTest {
+
+    @Test
+    void replaysCommittedTransactionsInOrder(@TempDir Path dir) throws IOException {
+        try (MutationLog log = MutationLog.open(dir, 1 << 20)) {
+            log.add(List.of(chunk("a", 1f), chunk("b", 2f)));
+            log.add(List.of(chunk("c", 3f)));
+            log.commit();
+            log.delete(List.of("b"));
+            log.commit();
+        }
+
+        List<List<MutationLog.Mutation>> replayed = new ArrayList<>();
+        MutationLog.Replay result = MutationLog.replay(dir, replayed::add);
+
+        assertEquals(new MutationLog.Replay(2, 3, 0), result);
+        MutationLog.Add first = assertInstanceOf(MutationLog.Add.class, replayed.get(0).get(0));
+        assertEquals("b", first.contents().get(1).getId());
+        assertEquals("text b", first.contents().get(1).getText());
+        assertEquals(Map.of("source", "doc-b"), first.contents().get(1).getMetadata());
+        assertArrayEquals(new float[] {2f, 0.5f}, first.contents().get(1).getEmbedding());
+        assertEquals(new MutationLog.Delete(List.of("b")), replayed.get(1).get(0));
+    }
+
+    @Test
+    void dropsAbortedAndUnfinishedTransactions(@TempDir Path dir) throws IOException {
+        try (MutationLog log = MutationLog.open(dir, 1 << 20)) {
+            log.add(List.of(chunk("a", 1f)));
+            log.abort();
+            log.add(List.of(chunk("b", 2f)));
+            log.commit();
+            log.add(List.of(chunk("c", 3f)));
+        }
+        // Reopening continues in a new segment, so the unfinished transaction stays unfinished
+        try (MutationLog log = MutationLog.open(dir, 1 << 20)) {
+            log.add(List.of(chunk("d", 4f)));
+            log.commit();
+        }
+
+        List<String> ids = new ArrayList<>();
+        MutationLog.Replay result = MutationLog.replay(dir, tx -> tx.forEach(m ->
+            ((MutationLog.Add) m).contents().forEach(c -> ids.add(c.getId()))));
+
+        assertEquals(List.of("b", "d"), ids);
+        assertEquals(2, result.transactions());
+    }
+
+    @Test
+    void truncatesATornTail(@TempDir Path dir) throws IOException {
+        try (MutationLog log = MutationLog.open(dir, 1 << 20)) {
+            log.add(List.of(chunk("a", 1f)));
+            log.commit();
+            log.add(List.of(chunk("b", 2f)));
+            log.commit();
+        }
+        Path segment = segments(dir).get(0);
+        long intact = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(intact - 3);
+        }
+
+        List<List<MutationLog.Mutation>> replayed = new ArrayList<>();
+        MutationLog.Replay result = MutationLog.replay(dir, replayed::add);
+
+        assertEquals(1, result.transactions());
+        assertTrue(result.discardedBytes() > 0);
+        assertEquals(intact - 3 - result.discardedBytes(), Files.size(segment));
+        // The repaired log accepts new transactions and replays cleanly
+        try (MutationLog log = MutationLog.open(dir, 1 << 20)) {
+            log.delete(List.of("a"));
+            log.commit();
+        }
+        assertEquals(new MutationLog.Replay(2, 2, 0), MutationLog.replay(dir, tx -> {}));
+    }
+
+    @Test
+    void rollsSegmentsAndResets(@TempDir Path dir) throws IOException {
+        try (MutationLog log = MutationLog.open(dir, 64)) {
+            for (int i = 0; i < 5; i++) {
+                log.add(List.of(chunk("c" + i, i)));
+                log.commit();
+            }
+            assertTrue(segments(dir).size() > 1);
+            assertTrue(log.size() > 0);
+
+            log.reset();
+
+            assertTrue(log.isEmpty());
+            assertEquals(1, segments(dir).size());
+        }
+        assertEquals(new MutationLog.Replay(0, 0, 0), MutationLog.replay(dir, tx -> {}));
+    }
+
+    private static SimpleVectorStoreContent chunk(String id, float x) {
+        return new SimpleVectorStoreContent(id, "text " + id, Map.of("source", "doc-" + id), new float[] {x, 0.5f});
+    }
+
+    private static List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NearDuplicateFilterTest {
+
+    private static final String CV = """
+        Kevin Mazali is a computer engineering student at NTNU in Trondheim. He has worked as a
+        software developer intern, building internal tools with Spring Boot, Vue and MySQL, and
+        has been a teaching assistant in algorithms and data structures for two semesters.""";
+
+    @Test
+    void dropsExactAndNearDuplicatesButKeepsDistinctChunks() {
+        NearDuplicateFilter filter = new NearDuplicateFilter(0.85, 3, 128, 32);
+        assertTrue(filter.accept(CV));
+        // Same text as exported elsewhere: different line breaks, casing and punctuation
+        assertFalse(filter.accept(CV.replace("\n", " ").toUpperCase().replace(",", " ;")));
+        // One extra clause at the end
+        assertFalse(filter.accept(CV + " He enjoys climbing."));
+        assertTrue(filter.accept("""
+            Courses: TDT4100 Object-oriented programming, TDT4120 Algorithms and data structures,
+            TDT4140 Software engineering, IDATT2105 Full-stack application development."""));
+
+        assertEquals(4, filter.checked());
+        assertEquals(2, filter.duplicates());
+    }
+
+    @Test
+    void estimatesJaccardSimilarity() {
+        NearDuplicateFilter filter = new NearDuplicateFilter(0.85, 1, 256, 64);
+        Random random = new Random(1);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 200; i++) words.add("w" + random.nextInt(1_000_000));
+        String a = String.join(" ", words.subList(0, 150));
+        String b = String.join(" ", words.subList(50, 200));
+        // 100 shared of 200 distinct words
+        assertEquals(0.5, filter.similarity(a, b), 0.1);
+    }
+
+    @Test
+    void seededChunksAreReferencesButNotCounted() {
+        NearDuplicateFilter filter = new NearDuplicateFilter(0.85, 3, 128, 32);
+        filter.seed(CV);
+        assertFalse(filter.accept(CV));
+        assertEquals(1, filter.checked());
+        assertEquals(1, filter.duplicates());
+        assertEquals(CV.length(), filter.duplicateChars());
+    }
+}
@@ -0,0 +1,79 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryEmbeddingCacheTest {
+
+    private final List<String> embedded = new ArrayList<>();
+    private final List<List<String>> batches = new ArrayList<>();
+
+    private float[] embed(String query) {
+        embedded.add(query);
+        return new float[] {query.length()};
+    }
+
+    @Test
+    void embedsEachNormalizedQueryOnce() {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(this::embed, 10);
+
+        float[] first = cache.embed("What projects has Kevin worked on?");
+        float[] second = cache.embed("  what projects has   kevin worked on ");
+
+        assertArrayEquals(first, second);
+        assertEquals(List.of("What projects has Kevin worked on?"), embedded);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    private List<float[]> embedBatch(List<String> queries) {
+        batches.add(queries);
+        return queries.stream().map(this::embed).toList();
+    }
+
+    @Test
+    void embedsTheMissesOfABatchInOneCall() {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(this::embed, this::embedBatch, 10);
+        cache.embed("cached");
+
+        List<float[]> embeddings = cache.embedAll(List.of("new one", "Cached!", "NEW ONE", "another"));
+
+        assertEquals(List.of(List.of("new one", "another")), batches);
+        assertEquals(4, embeddings.size());
+        assertArrayEquals(new float[] {"cached".length()}, embeddings.get(1));
+        assertArrayEquals(embeddings.get(0), embeddings.get(2));
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedQuery() {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(this::embed, 2);
+
+        cache.embed("first");
+        cache.embed("second");
+        cache.embed("first");
+        cache.embed("third");
+        cache.embed("first");
+        cache.embed("second");
+
+        assertEquals(List.of("first", "second", "third", "second"), embedded);
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void cachesNothingWhenSizeIsZero() {
+        QueryEmbeddingCache cache = new QueryEmbeddingCache(this::embed, 0);
+
+        cache.embed("same");
+        cache.embed("same");
+
+        assertEquals(2, embedded.size());
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,162 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Scatter-gather search over shards returns the same top-K as one store and persistence
+ * round-trips through per-shard files. A benchmark checks that the parallel scan speeds up
+ * with core count.
+ */
+@Slf4j
+class ShardedVectorStoreTest {
+
+    private static final EmbeddingModel EMBEDDINGS = Mockito.mock(EmbeddingModel.class);
+
+    @Test
+    void scatterGatherMatchesSingleStore() {
+        Random random = new Random(7);
+        List<SimpleVectorStoreContent> contents = corpus(random, 5000, 64, 200);
+        IndexedVectorStore single = new IndexedVectorStore(EMBEDDINGS);
+        single.replaceContents(contents);
+        ShardedVectorStore sharded = sharded(4, contents);
+
+        assertEquals(contents.size(), sharded.size());
+        for (int q = 0; q < 50; q++) {
+            float[] query = gaussian(random, 64);
+            assertEquals(ids(single.similaritySearch(query, 10, 0.0, null)),
+                ids(sharded.similaritySearch(query, 10, 0.0, null)));
+        }
+    }
+
+    @Test
+    void mergeKeepsBestScoresAcrossRankings() {
+        List<Document> merged = ShardedVectorStore.mergeTopK(List.of(
+            List.of(doc("a", 0.9), doc("b", 0.5), doc("c", 0.1)),
+            List.of(),
+            List.of(doc("d", 0.7), doc("e", 0.6))), 4);
+        assertEquals(List.of("a", "d", "e", "b"), ids(merged));
+    }
+
+    @Test
+    void documentsStayOnOneShardAndSurviveResharding(@TempDir Path dir) {
+        List<SimpleVectorStoreContent> contents = corpus(new Random(3), 400, 16, 40);
+        ShardedVectorStore sharded = sharded(4, contents);
+
+        File file = dir.resolve("vectorstore-1.json").toFile();
+        sharded.save(file);
+        assertTrue(ShardedVectorStore.isManifest(file.toPath()));
+        assertEquals(4, ShardedVectorStore.shardFiles(file.toPath()).size());
+
+        ShardedVectorStore reloaded = sharded(4, List.of());
+        reloaded.load(file);
+        assertEquals(400, reloaded.size());
+
+        ShardedVectorStore resharded = sharded(3, List.of());
+        assertFalse(resharded.matchesLayout(file));
+        resharded.load(file);
+        assertEquals(400, resharded.size());
+        for (int i = 0; i < 3; i++) {
+            for (SimpleVectorStoreContent c : resharded.shards().get(i).contents()) {
+                assertEquals(i, resharded.shardOf(c.getMetadata(), c.getId()));
+            }
+        }
+        float[] query = gaussian(new Random(5), 16);
+        assertEquals(ids(sharded.similaritySearch(query, 5, 0.0, null)),
+            ids(resharded.similaritySearch(query, 5, 0.0, null)));
+    }
+
+    /**
+     * Full-width scan over 60k x 512-dimension chunks with 1, 2, 4, ... shards up to the
+     * core count. Logs the table and checks that four or more shards at least halve the scan
+     * time. The result depends on the host, so it only runs with the benchmarks.
+     */
+    @Test
+    @Tag("benchmark")
+    void searchSpeedsUpWithCores() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        assumeTrue(cores >= 4, "needs at least four cores");
+        Random random = new Random(11);
+        List<SimpleVectorStoreContent> contents = corpus(random, 60_000, 512, 6000);
+        List<float[]> queries = new ArrayList<>();
+        for (int q = 0; q < 40; q++) queries.add(gaussian(random, 512));
+
+        double baseline = 0;
+        double best = 0;
+        for (int shards = 1; shards <= cores; shards *= 2) {
+            ShardedVectorStore store = sharded(shards, contents);
+            double millis = medianMillis(store, queries);
+            if (shards == 1) baseline = millis;
+            double speedup = baseline / millis;
+            best = Math.max(best, speedup);
+            log.info("shards={} median={} ms speedup={}x", shards, String.format("%.2f", millis),
+                String.format("%.2f", speedup));
+        }
+        assertTrue(best > 2.0, "expected the parallel scan to beat a single shard, best speedup " + best);
+    }
+
+    private static double medianMillis(ShardedVectorStore store, List<float[]> queries) {
+        for (float[] q : queries) store.similaritySearch(q, 20, 0.0, null); // warm-up
+        double[] samples = new double[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            store.similaritySearch(queries.get(i), 20, 0.0, null);
+            samples[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+
+    private static ShardedVectorStore sharded(int count, List<SimpleVectorStoreContent> contents) {
+        List<IndexedVectorStore> shards = new ArrayList<>();
+        for (int i = 0; i < count; i++) shards.add(new IndexedVectorStore(EMBEDDINGS));
+        ShardedVectorStore store = new ShardedVectorStore(shards);
+        List<List<SimpleVectorStoreContent>> routed = new ArrayList<>();
+        for (int i = 0; i < count; i++) routed.add(new ArrayList<>());
+        for (SimpleVectorStoreContent c : contents) routed.get(store.shardOf(c.getMetadata(), c.getId())).add(c);
+        for (int i = 0; i < count; i++) shards.get(i).replaceContents(routed.get(i));
+        return store;
+    }
+
+    private static List<SimpleVectorStoreContent> corpus(Random random, int n, int dimensions, int sources) {
+        List<SimpleVectorStoreContent> contents = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            contents.add(new SimpleVectorStoreContent("chunk-" + i, "text " + i,
+                Map.of("source", "file:/docs/doc-" + random.nextInt(sources) + ".pdf"), gaussian(random, dimensions)));
+        }
+        return contents;
+    }
+
+    private static float[] gaussian(Random random, int dimensions) {
+        float[] v = new float[dimensions];
+        for (int d = 0; d < dimensions; d++) v[d] = (float) random.nextGaussian();
+        return v;
+    }
+
+    private static Document doc(String id, double score) {
+        return Document.builder().id(id).text(id).score(score).build();
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+}
@@ -0,0 +1,181 @@
+package com.kevinmazali.portfolio.vectorstore;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class StreamingDocumentParserTest {
+
+    private static final long MB = 1024 * 1024;
+
+    /** Keeps the churned buffers from being optimized away. */
+    private static volatile byte[] blackhole;
+
+    /** Echoes the input, allocating and dropping 32 MB of short-lived buffers halfway through. */
+    private static final StreamingDocumentParser.TextExtractor CHURN = (in, out) -> {
+        String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        out.write(text, 0, text.length() / 2);
+        for (int i = 0; i < 512; i++) {
+            blackhole = new byte[64 * 1024];
+        }
+        out.write(text, text.length() / 2, text.length() - text.length() / 2);
+    };
+
+    /** Writes the input back out as text, a few characters per call like a SAX handler. */
+    private static final StreamingDocumentParser.TextExtractor ECHO = (in, out) -> {
+        String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        for (int i = 0; i < text.length(); i += 37) {
+            out.write(text, i, Math.min(37, text.length() - i));
+        }
+    };
+
+    private static ByteArrayResource resource(String text) {
+        return new ByteArrayResource(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String lines(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append("Line ").append(i).append(" of the document, with some words to pad it out a little.\n");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void handsOverSegmentsCutAtLineBreaks() {
+        StreamingDocumentParser parser =
+            new StreamingDocumentParser(ECHO, 10 * MB, 1_000_000, Duration.ofSeconds(10), 512 * MB, 0, 2000);
+        String text = lines(500);
+        List<String> segments = new ArrayList<>();
+
+        StreamingDocumentParser.Result result = parser.parse(resource(text), segments::add);
+
+        assertEquals(text, String.join("", segments));
+        assertEquals(text.length(), result.chars());
+        assertFalse(result.truncated());
+        assertTrue(segments.size() > 10);
+        for (String segment : segments) {
+            assertTrue(segment.length() <= 2000);
+            assertTrue(segment.endsWith("\n"));
+        }
+    }
+
+    @Test
+    void cutsTextThatEndsExactlyOnASegmentEdge() {
+        StreamingDocumentParser.TextExtractor oneWrite = (in, out) -> out.write(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        StreamingDocumentParser parser =
+            new StreamingDocumentParser(oneWrite, 10 * MB, 1_000_000, Duration.ofSeconds(10), 512 * MB, 0, 2000);
+        // Whitespace only in the first half, so no boundary is found near the end
+        String text = "word ".repeat(100) + "x".repeat(1500);
+        List<String> segments = new ArrayList<>();
+
+        StreamingDocumentParser.Result result = parser.parse(resource(text), segments::add);
+
+        assertEquals(2000, text.length());
+        assertEquals(List.of(text), segments);
+        assertEquals(2000, result.chars());
+    }
+
+    @Test
+    void truncatesTextBeyondTheCharacterCap() {
+        StreamingDocumentParser parser =
+            new StreamingDocumentParser(ECHO, 10 * MB, 5000, Duration.ofSeconds(10), 512 * MB, 0, 2000);
+        List<String> segments = new ArrayList<>();
+
+        StreamingDocumentParser.Result result = parser.parse(resource(lines(500)), segments::add);
+
+        assertTrue(result.truncated());
+        assertEquals(5000, result.chars());
+        assertEquals(lines(500).substring(0, 5000), String.join("", segments));
+    }
+
+    @Test
+    void rejectsFilesOverTheByteCapWhileReading() {
+        StreamingDocumentParser parser =
+            new StreamingDocumentParser(ECHO, 1000, 1_000_000, Duration.ofSeconds(10), 512 * MB, 0, 2000);
+
+        StreamingDocumentParser.ParseFailedException e = assertThrows(StreamingDocumentParser.ParseFailedException.class,
+            () -> parser.parse(resource(lines(100)), s -> { }));
+        assertTrue(e.getMessage().contains("larger than 1000 bytes"), e.getMessage());
+    }
+
+    @Test
+    void allocationCapScalesWithTheInputSize() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+            && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+        String text = lines(12);
+
+        StreamingDocumentParser flat =
+            new StreamingDocumentParser(CHURN, 10 * MB, 1_000_000, Duration.ofSeconds(10), 8 * MB, 0, 2000);
+        StreamingDocumentParser.ParseFailedException e = assertThrows(StreamingDocumentParser.ParseFailedException.class,
+            () -> flat.parse(resource(text), s -> { }));
+        assertTrue(e.getMessage().contains("allocation cap"), e.getMessage());
+        assertFalse(e.getMessage().contains("memory"), e.getMessage());
+
+        // Allocation far beyond what is ever held at once passes when the cap scales with the file
+        StreamingDocumentParser scaled =
+            new StreamingDocumentParser(CHURN, 10 * MB, 1_000_000, Duration.ofSeconds(10), 8 * MB, 200_000, 2000);
+        List<String> segments = new ArrayList<>();
+        scaled.parse(resource(text), segments::add);
+        assertEquals(text, String.join("", segments));
+    }
+
+    @Test
+    void abandonsAParserThatIgnoresTheTimeout() {
+        StreamingDocumentParser.TextExtractor hangsOnRequest = (in, out) -> {
+            String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            if (text.equals("hang")) {
+                long until = System.nanoTime() + Duration.ofSeconds(3).toNanos();
+                while (System.nanoTime() < until) {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException ignored) {
+                        // a misbehaving parser
+                    }
+                }
+            }
+            out.write(text);
+        };
+        StreamingDocumentParser parser =
+            new StreamingDocumentParser(hangsOnRequest, 10 * MB, 1_000_000, Duration.ofMillis(300), 512 * MB, 0, 2000);
+
+        StreamingDocumentParser.ParseFailedException e = assertThrows(StreamingDocumentParser.ParseFailedException.class,
+            () -> parser.parse(resource("hang"), s -> { }));
+        assertTrue(e.getMessage().contains("longer than"), e.getMessage());
+
+        long start = System.nanoTime();
+        List<String> segments = new ArrayList<>();
+        parser.parse(resource("fine"), segments::add);
+        assertEquals(List.of("fine"), segments);
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos());
+    }
+
+    @Test
+    void timeoutDoesNotCountTimeSpentByTheConsumer() {
+        StreamingDocumentParser parser =
+            new StreamingDocumentParser(ECHO, 10 * MB, 1_000_000, Duration.ofMillis(500), 512 * MB, 0, 2000);
+        List<String> segments = new ArrayList<>();
+
+        parser.parse(resource(lines(100)), segment -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            segments.add(segment);
+        });
+
+        assertEquals(lines(100), String.join("", segments));
+    }
+}